@@ -18,18 +18,24 @@ under the License.
 */
 package quarks.analytics.sensors;
 
+import java.io.Serializable;
 import java.util.concurrent.TimeUnit;
 
 import quarks.function.Function;
 import quarks.function.Predicate;
+import quarks.oplet.Checkpointable;
 
 /**
  * Deadband predicate function.
+ * <P>
+ * Its state, whether the last value was out of band and
+ * when a value was last sent, is checkpointed by the filter oplet.
+ * </P>
  *
  * @param <T> Tuple type.
  * @param <V> Value type for the deadband function.
  */
-class Deadband<T, V> implements Predicate<T> {
+class Deadband<T, V> implements Predicate<T>, Checkpointable {
 
     private static final long serialVersionUID = 1L;
 
@@ -55,7 +61,7 @@ class Deadband<T, V> implements Predicate<T> {
     }
 
     @Override
-    public boolean test(final T t) {
+    public synchronized boolean test(final T t) {
         final V value = valueFunction.apply(t);
         boolean passTuple;
         long now = 0;
@@ -83,5 +89,16 @@ class Deadband<T, V> implements Predicate<T> {
         return passTuple;
     }
 
+    @Override
+    public synchronized Serializable checkpoint() {
+        return new long[] {outOfBand ? 1 : 0, lastSend};
+    }
+
+    @Override
+    public synchronized void restore(Serializable state) {
+        long[] values = (long[]) state;
+        outOfBand = values[0] != 0;
+        lastSend = values[1];
+    }
 }
 
@@ -39,6 +39,46 @@ package quarks.execution;
  *    <td>String</td>
  *    <td>The name of the job.</td>
  *  </tr>
+ * <tr>
+ *    <td>{@link #FUSE_OPERATORS fuseOperators}</td>
+ *    <td>Boolean</td>
+ *    <td>Fuse linear chains of stateless oplets at execution time.</td>
+ *  </tr>
+ * <tr>
+ *    <td>{@link #VIRTUAL_THREADS virtualThreads}</td>
+ *    <td>Boolean</td>
+ *    <td>Execute the job's user threads as virtual threads.</td>
+ *  </tr>
+ * <tr>
+ *    <td>{@link #USER_POOL_SIZE userPoolSize}</td>
+ *    <td>Integer</td>
+ *    <td>Number of threads of the job's scheduler and executor.</td>
+ *  </tr>
+ * <tr>
+ *    <td>{@link #CONTROL_POOL_SIZE controlPoolSize}</td>
+ *    <td>Integer</td>
+ *    <td>Number of threads of the job's control scheduler.</td>
+ *  </tr>
+ * <tr>
+ *    <td>{@link #THREAD_PRIORITY threadPriority}</td>
+ *    <td>Integer</td>
+ *    <td>Priority of the job's user threads.</td>
+ *  </tr>
+ * <tr>
+ *    <td>{@link #SHARED_POOL sharedPool}</td>
+ *    <td>Boolean</td>
+ *    <td>Schedule the job's tasks on a pool shared with other jobs.</td>
+ *  </tr>
+ * <tr>
+ *    <td>{@link #CHECKPOINT_DIRECTORY checkpointDirectory}</td>
+ *    <td>String</td>
+ *    <td>Directory for checkpoints of the job's oplet state.</td>
+ *  </tr>
+ * <tr>
+ *    <td>{@link #CHECKPOINT_PERIOD checkpointPeriod}</td>
+ *    <td>Long</td>
+ *    <td>Period in milliseconds between checkpoints.</td>
+ *  </tr>
  * </table>
  * </p>
  */
@@ -49,4 +89,102 @@ public interface Configs {
      * The value is {@value}.
      */
     String JOB_NAME = "jobName";
+
+    /**
+     * FUSE_OPERATORS is used to identify the submission configuration property
+     * that enables fusing linear chains of stateless oplets, such as
+     * those declared by {@code map}, {@code filter} and {@code peek},
+     * into a single stream handler when the job is initialized.
+     * Fusion does not change the job's graph.
+     * The default is {@code false}.
+     * The value is {@value}.
+     */
+    String FUSE_OPERATORS = "fuseOperators";
+
+    /**
+     * VIRTUAL_THREADS is used to identify the submission configuration property
+     * that executes the job's user threads, such as those of isolates,
+     * event sources and the job's scheduled executor, as virtual threads.
+     * Virtual threads are only used if the Java virtual machine
+     * supports them, otherwise the property is ignored.
+     * Thread tracking for job completion is unchanged.
+     * The default is {@code false}.
+     * The value is {@value}.
+     */
+    String VIRTUAL_THREADS = "virtualThreads";
+
+    /**
+     * USER_POOL_SIZE is used to identify the submission configuration property
+     * containing the number of threads kept by the job's scheduler,
+     * which executes tasks scheduled by oplets and functions,
+     * and the parallelism of the job's executor, which executes per-tuple
+     * tasks such as those of unordered isolates, pressure relievers
+     * and aggregations of key groups.
+     * A task that blocks, such as a sink writing synchronously to
+     * an external system, occupies one of the threads while blocked.
+     * The default is four times the number of available processors.
+     * The value is {@value}.
+     */
+    String USER_POOL_SIZE = "userPoolSize";
+
+    /**
+     * CONTROL_POOL_SIZE is used to identify the submission configuration property
+     * containing the number of threads kept by the job's control scheduler,
+     * which initializes, starts and closes the job's oplets.
+     * The default is four times the number of available processors.
+     * The value is {@value}.
+     */
+    String CONTROL_POOL_SIZE = "controlPoolSize";
+
+    /**
+     * THREAD_PRIORITY is used to identify the submission configuration property
+     * containing the priority of the job's user threads, between
+     * {@code Thread.MIN_PRIORITY} and {@code Thread.MAX_PRIORITY}.
+     * By default threads have the priority of the thread
+     * that created them.
+     * The value is {@value}.
+     */
+    String THREAD_PRIORITY = "threadPriority";
+
+    /**
+     * SHARED_POOL is used to identify the submission configuration property
+     * that schedules the job's tasks, the control tasks that initialize,
+     * start and close its oplets, and its per-tuple tasks on thread pools shared by all
+     * jobs submitted to the same provider that set this property, rather than
+     * on pools owned by the job. The job's tasks remain tracked
+     * for job completion. {@link #USER_POOL_SIZE} and {@link #CONTROL_POOL_SIZE}
+     * are ignored when the shared pools are used.
+     * The default is {@code false}.
+     * The value is {@value}.
+     */
+    String SHARED_POOL = "sharedPool";
+
+    /**
+     * CHECKPOINT_DIRECTORY is used to identify the submission configuration property
+     * containing the directory in which the state of the job's
+     * checkpointable oplets ({@code quarks.oplet.Checkpointable}),
+     * such as windows, is periodically saved. When a job is submitted
+     * with a directory containing a checkpoint, such as when it is restarted,
+     * its oplets' state is restored before the job starts.
+     * <BR>
+     * A job's checkpoint is held in a sub-directory named from the
+     * job's name ({@link #JOB_NAME}), or the topology's name if the job
+     * name is not set, so a restarted job must be submitted with the same name.
+     * State is only restored if the job is submitted from the same topology
+     * declaration, as state is identified by oplet; a checkpoint taken
+     * from a different topology is ignored.
+     * Checkpointing is disabled if the property is not set.
+     * The value is {@value}.
+     */
+    String CHECKPOINT_DIRECTORY = "checkpointDirectory";
+
+    /**
+     * CHECKPOINT_PERIOD is used to identify the submission configuration property
+     * containing the period in milliseconds between checkpoints of
+     * the job's oplet state, when {@link #CHECKPOINT_DIRECTORY} is set.
+     * A final checkpoint is taken when the job is closed.
+     * The default is ten seconds.
+     * The value is {@value}.
+     */
+    String CHECKPOINT_PERIOD = "checkpointPeriod";
 }
@@ -172,4 +172,19 @@ public interface JobMXBean {
      * @return a JSON-formatted string representing the running graph. 
      */
     String graphSnapshot();
+
+    /**
+     * Pauses a running job. Sources stop generating tuples while
+     * tuples already in flight continue to be processed.
+     * 
+     * @throws IllegalArgumentException if the job is not running.
+     */
+    void pause();
+
+    /**
+     * Resumes a paused job.
+     * 
+     * @throws IllegalArgumentException if the job is not paused.
+     */
+    void resume();
 }
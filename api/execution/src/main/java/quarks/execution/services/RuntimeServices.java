@@ -39,6 +39,18 @@ public interface RuntimeServices {
      * execute asynchronous and repeating tasks using this scheduler. 
      * </LI>
      * </UL>
+     * These services may be provided by implementations:
+     * <UL>
+     * <LI>
+     * {@code java.util.concurrent.ExecutorService} - Executor for immediate tasks,
+     * such as a task per tuple. When not provided runtime code should use
+     * the {@code ScheduledExecutorService}.
+     * </LI>
+     * <LI>
+     * {@code quarks.oplet.Demand} - Demand of an oplet's downstream processing,
+     * provided to an oplet when downstream processing controls the flow of tuples.
+     * </LI>
+     * </UL>
      * </P>
      * 
      * 
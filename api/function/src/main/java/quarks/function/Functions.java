@@ -90,24 +90,54 @@ public class Functions {
     /**
      * Return a thread-safe version of a {@code Function} function.
      * If the function is guaranteed to be immutable (stateless)
+     * or implements {@link ThreadSafe}
      * then the function is returned, as it is thread safe,
      * otherwise a wrapper is returned that grabs synchronization
      * on {@code function} when calling {@link Function#apply(Object)}.
      * <BR>
      * If {@code function} implements {@code AutoCloseable} then
      * the function is assumed to be stateful and a thread-safe
-     * version is returned.
+     * version is returned, unless it implements {@link ThreadSafe}.
      * @param function Function to return a thread-safe version of.
      * @return A thread-safe function
      */
     public static <T,R> Function<T,R> synchronizedFunction(final Function<T,R> function) {
-        if (isImmutable(function) && !(function instanceof AutoCloseable))
+        if (isThreadSafe(function))
             return function;
         
         // Return a function that is synchronized on the passed in function reference.
         return new ThreadSafeFunction<T,R>(function);
     }
     
+    /**
+     * Return a version of a {@code Function} that is called
+     * without synchronization by the runtime.
+     * The caller asserts that {@code function} is thread safe,
+     * the returned function implements {@link ThreadSafe}.
+     * @param function Function that is thread safe.
+     * @return {@code function} if it implements {@code ThreadSafe},
+     * otherwise a wrapper that calls {@code function} and implements {@code ThreadSafe}.
+     */
+    public static <T,R> Function<T,R> concurrentFunction(final Function<T,R> function) {
+        if (function instanceof ThreadSafe)
+            return function;
+        return new ConcurrentFunction<T,R>(function);
+    }
+    
+    private static class ConcurrentFunction<T,R> extends WrappedFunction<Function<T,R>>
+              implements Function<T,R>, ThreadSafe {
+        private static final long serialVersionUID = 1L;
+
+        ConcurrentFunction(Function<T,R> function) {
+            super(function);
+        }
+
+        @Override
+        public R apply(T value) {
+            return f().apply(value);
+        }
+    }
+    
     private static class ThreadSafeFunction<T,R> extends WrappedFunction<Function<T,R>> implements Function<T,R> {
         private static final long serialVersionUID = 1L;
 
@@ -127,24 +157,54 @@ public class Functions {
     /**
      * Return a thread-safe version of a {@code Supplier} function.
      * If the function is guaranteed to be immutable (stateless)
+     * or implements {@link ThreadSafe}
      * then the function is returned, as it is thread safe,
      * otherwise a wrapper is returned that grabs synchronization
      * on {@code function} when calling {@link Supplier#get()}.
      * <BR>
      * If {@code function} implements {@code AutoCloseable} then
      * the function is assumed to be stateful and a thread-safe
-     * version is returned.
+     * version is returned, unless it implements {@link ThreadSafe}.
      * @param function Function to return a thread-safe version of.
      * @return A thread-safe function
      */
     public static <T> Supplier<T> synchronizedSupplier(final Supplier<T> function) {
-        if (isImmutable(function) && !(function instanceof AutoCloseable))
+        if (isThreadSafe(function))
             return function;
         
         // Return a function that is synchronized on the passed in function reference.
         return new ThreadSafeSupplier<T>(function);
     }
 
+    /**
+     * Return a version of a {@code Supplier} that is called
+     * without synchronization by the runtime.
+     * The caller asserts that {@code function} is thread safe,
+     * the returned function implements {@link ThreadSafe}.
+     * @param function Function that is thread safe.
+     * @return {@code function} if it implements {@code ThreadSafe},
+     * otherwise a wrapper that calls {@code function} and implements {@code ThreadSafe}.
+     */
+    public static <T> Supplier<T> concurrentSupplier(final Supplier<T> function) {
+        if (function instanceof ThreadSafe)
+            return function;
+        return new ConcurrentSupplier<T>(function);
+    }
+    
+    private static class ConcurrentSupplier<T> extends WrappedFunction<Supplier<T>>
+              implements Supplier<T>, ThreadSafe {
+        private static final long serialVersionUID = 1L;
+
+        ConcurrentSupplier(Supplier<T> function) {
+            super(function);
+        }
+
+        @Override
+        public T get() {
+            return f().get();
+        }
+    }
+
     private static class ThreadSafeSupplier<T> extends WrappedFunction<Supplier<T>> implements Supplier<T> {
         private static final long serialVersionUID = 1L;
 
@@ -164,24 +224,54 @@ public class Functions {
     /**
      * Return a thread-safe version of a {@code Consumer} function.
      * If the function is guaranteed to be immutable (stateless)
+     * or implements {@link ThreadSafe}
      * then the function is returned, as it is thread safe,
      * otherwise a wrapper is returned that grabs synchronization
      * on {@code function} when calling {@link Consumer#accept(Object)}.
      * <BR>
      * If {@code function} implements {@code AutoCloseable} then
      * the function is assumed to be stateful and a thread-safe
-     * version is returned.
+     * version is returned, unless it implements {@link ThreadSafe}.
      * @param function Function to return a thread-safe version of.
      * @return A thread-safe function
      */
     public static <T> Consumer<T> synchronizedConsumer(final Consumer<T> function) {
-        if (isImmutable(function) && !(function instanceof AutoCloseable))
+        if (isThreadSafe(function))
             return function;
         
         // Return a function that is synchronized on the passed in function reference.
         return new ThreadSafeConsumer<T>(function);
     }
 
+    /**
+     * Return a version of a {@code Consumer} that is called
+     * without synchronization by the runtime.
+     * The caller asserts that {@code function} is thread safe,
+     * the returned function implements {@link ThreadSafe}.
+     * @param function Function that is thread safe.
+     * @return {@code function} if it implements {@code ThreadSafe},
+     * otherwise a wrapper that calls {@code function} and implements {@code ThreadSafe}.
+     */
+    public static <T> Consumer<T> concurrentConsumer(final Consumer<T> function) {
+        if (function instanceof ThreadSafe)
+            return function;
+        return new ConcurrentConsumer<T>(function);
+    }
+    
+    private static class ConcurrentConsumer<T> extends WrappedFunction<Consumer<T>>
+              implements Consumer<T>, ThreadSafe {
+        private static final long serialVersionUID = 1L;
+
+        ConcurrentConsumer(Consumer<T> function) {
+            super(function);
+        }
+
+        @Override
+        public void accept(T value) {
+            f().accept(value);
+        }
+    }
+
     private static class ThreadSafeConsumer<T>
               extends WrappedFunction<Consumer<T>> implements Consumer<T> {
         private static final long serialVersionUID = 1L;
@@ -202,24 +292,54 @@ public class Functions {
     /**
      * Return a thread-safe version of a {@code BiFunction} function.
      * If the function is guaranteed to be immutable (stateless)
+     * or implements {@link ThreadSafe}
      * then the function is returned, as it is thread safe,
      * otherwise a wrapper is returned that grabs synchronization
      * on {@code function} when calling {@link BiFunction#apply(Object, Object)}.
      * <BR>
      * If {@code function} implements {@code AutoCloseable} then
      * the function is assumed to be stateful and a thread-safe
-     * version is returned.
+     * version is returned, unless it implements {@link ThreadSafe}.
      * @param function Function to return a thread-safe version of.
      * @return A thread-safe function
      */
     public static <T,U,R> BiFunction<T,U,R> synchronizedBiFunction(final BiFunction<T,U,R> function) {
-        if (isImmutable(function) && !(function instanceof AutoCloseable))
+        if (isThreadSafe(function))
             return function;
         
         // Return a function that is synchronized on the passed in function reference.
         return new ThreadSafeBiFunction<T,U,R>(function);
     }
 
+    /**
+     * Return a version of a {@code BiFunction} that is called
+     * without synchronization by the runtime.
+     * The caller asserts that {@code function} is thread safe,
+     * the returned function implements {@link ThreadSafe}.
+     * @param function Function that is thread safe.
+     * @return {@code function} if it implements {@code ThreadSafe},
+     * otherwise a wrapper that calls {@code function} and implements {@code ThreadSafe}.
+     */
+    public static <T,U,R> BiFunction<T,U,R> concurrentBiFunction(final BiFunction<T,U,R> function) {
+        if (function instanceof ThreadSafe)
+            return function;
+        return new ConcurrentBiFunction<T,U,R>(function);
+    }
+    
+    private static class ConcurrentBiFunction<T,U,R> extends WrappedFunction<BiFunction<T,U,R>>
+              implements BiFunction<T,U,R>, ThreadSafe {
+        private static final long serialVersionUID = 1L;
+
+        ConcurrentBiFunction(BiFunction<T,U,R> function) {
+            super(function);
+        }
+
+        @Override
+        public R apply(T t, U u) {
+            return f().apply(t, u);
+        }
+    }
+
     private static class ThreadSafeBiFunction<T,U,R>
               extends WrappedFunction<BiFunction<T,U,R>> implements BiFunction<T,U,R> {
         private static final long serialVersionUID = 1L;
@@ -237,6 +357,21 @@ public class Functions {
         }       
     }
     
+    /**
+     * See if a function can be called concurrently without synchronization.
+     * A function is thread safe if it implements {@link ThreadSafe},
+     * or it is {@link #isImmutable(Object) immutable} and does
+     * not implement {@code AutoCloseable}.
+     * 
+     * @param function Function to check
+     * @return True if the function can be called concurrently.
+     */
+    public static boolean isThreadSafe(Object function) {
+        if (function instanceof ThreadSafe)
+            return true;
+        return isImmutable(function) && !(function instanceof AutoCloseable);
+    }
+    
     /**
      * See if the functional logic is immutable.
      * 
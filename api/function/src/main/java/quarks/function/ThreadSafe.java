@@ -0,0 +1,45 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.function;
+
+/**
+ * Marker interface for functions that can be called concurrently
+ * by multiple threads.
+ * <P>
+ * The runtime may call a function from multiple threads, for example
+ * when an unordered isolate or pressure reliever is upstream of it,
+ * so by default a stateful function is called while holding a lock on
+ * the function (see {@link Functions#synchronizedFunction(Function)}).
+ * A function that implements {@code ThreadSafe} is called without
+ * any synchronization, so it must itself be thread safe, for example
+ * by only using state held in concurrent collections or atomic variables.
+ * </P>
+ * <P>
+ * A lambda expression can implement {@code ThreadSafe} using an
+ * intersection cast:
+ * <pre>{@code
+ * AtomicLong count = new AtomicLong();
+ * stream.map((Function<String,Long> & ThreadSafe) v -> count.incrementAndGet());
+ * }</pre>
+ * or be wrapped using {@link Functions#concurrentFunction(Function)}
+ * and its relatives.
+ * </P>
+ */
+public interface ThreadSafe {
+}
@@ -28,12 +28,16 @@ import static quarks.function.Functions.identity;
 import static quarks.function.Functions.unpartitioned;
 import static quarks.function.Functions.zero;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
+import quarks.function.BiFunction;
 import quarks.function.Consumer;
 import quarks.function.Function;
 import quarks.function.Functions;
 import quarks.function.Supplier;
+import quarks.function.ThreadSafe;
 
 public class FunctionsTest {
     
@@ -228,6 +232,41 @@ public class FunctionsTest {
         }        
     }
     
+    @Test
+    public void testConcurrentFunction() {
+        
+        AtomicInteger count = new AtomicInteger();
+        Function<Integer,Integer> f1 = v -> v + count.incrementAndGet();
+        assertFalse(Functions.isThreadSafe(f1));
+        assertNotSame(f1, Functions.synchronizedFunction(f1));
+        
+        Function<Integer,Integer> f1c = Functions.concurrentFunction(f1);
+        assertTrue(f1c instanceof ThreadSafe);
+        assertTrue(Functions.isThreadSafe(f1c));
+        assertSame(f1c, Functions.synchronizedFunction(f1c));
+        assertSame(f1c, Functions.concurrentFunction(f1c));
+        assertEquals(8, f1c.apply(7).intValue());
+        
+        Function<Integer,Integer> f2 = (Function<Integer,Integer> & ThreadSafe) v -> v + count.incrementAndGet();
+        assertSame(f2, Functions.synchronizedFunction(f2));
+        
+        // AutoCloseable functions can be declared thread safe
+        Function<Integer,Integer> f6 = Functions.concurrentFunction(new F6());
+        assertSame(f6, Functions.synchronizedFunction(f6));
+        
+        Supplier<Integer> s1 = Functions.concurrentSupplier(() -> count.get());
+        assertSame(s1, Functions.synchronizedSupplier(s1));
+        
+        Consumer<Integer> c1 = Functions.concurrentConsumer(v -> count.addAndGet(v));
+        assertSame(c1, Functions.synchronizedConsumer(c1));
+        c1.accept(10);
+        assertEquals(11, count.get());
+        
+        BiFunction<Integer,Integer,Integer> b1 = Functions.concurrentBiFunction((a, b) -> a + b + count.get());
+        assertSame(b1, Functions.synchronizedBiFunction(b1));
+        assertEquals(14, b1.apply(1, 2).intValue());
+    }
+
     @Test
     public void testIdentity() {
         String s = "hello";
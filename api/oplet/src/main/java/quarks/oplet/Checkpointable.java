@@ -0,0 +1,61 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet;
+
+import java.io.Serializable;
+
+/**
+ * An oplet whose state can be checkpointed and restored.
+ * <P>
+ * When checkpointing is enabled for a job, the runtime periodically
+ * calls {@link #checkpoint()} for every oplet of the job implementing
+ * {@code Checkpointable} and saves the returned state. When the
+ * job is next submitted, for example when it is restarted, each
+ * oplet's saved state is passed to {@link #restore(Serializable)}
+ * after all the job's oplets are initialized and before they are started.
+ * </P>
+ * <P>
+ * {@code checkpoint()} is called concurrently with the oplet processing
+ * tuples. An implementation takes a consistent copy of its state using its
+ * own synchronization and returns promptly, the state is serialized
+ * and saved asynchronously. The state must not be modified by the
+ * oplet once returned.
+ * </P>
+ *
+ * @see quarks.execution.Configs#CHECKPOINT_DIRECTORY
+ */
+public interface Checkpointable {
+
+    /**
+     * Take a copy of the oplet's state.
+     * 
+     * @return State of the oplet, or {@code null} if the oplet has no state to save.
+     * @throws Exception Error taking the state.
+     */
+    Serializable checkpoint() throws Exception;
+
+    /**
+     * Restore the oplet's state from a checkpoint.
+     * Called before the oplet is started.
+     * 
+     * @param state State previously returned by {@link #checkpoint()}.
+     * @throws Exception Error restoring the state.
+     */
+    void restore(Serializable state) throws Exception;
+}
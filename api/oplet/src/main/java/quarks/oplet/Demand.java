@@ -0,0 +1,64 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Demand for tuples, expressed as credits.
+ * <P>
+ * Each credit allows one tuple to be submitted without it being
+ * queued beyond the capacity of downstream processing.
+ * An oplet obtains the demand of its downstream processing
+ * from its context using {@code getService(Demand.class)},
+ * {@code null} is returned when downstream processing
+ * does not limit the flow of tuples.
+ * </P>
+ * <P>
+ * Credits are advisory, an oplet may submit tuples when no
+ * credits are available and they are processed as without flow control.
+ * {@link quarks.oplet.core.Source Source} oplets wait for
+ * credits before submitting a tuple.
+ * </P>
+ * 
+ * @see FlowControl
+ */
+public interface Demand {
+    
+    /**
+     * Credits of a demand that is not limited.
+     */
+    long UNBOUNDED = Long.MAX_VALUE;
+    
+    /**
+     * Get the number of tuples that can currently be submitted.
+     * @return Available credits, {@link #UNBOUNDED} if not limited.
+     */
+    long available();
+    
+    /**
+     * Wait for at least one credit to be available.
+     * @param timeout Maximum time to wait.
+     * @param unit Unit of {@code timeout}.
+     * @return {@code true} if a credit is available,
+     * {@code false} if the wait timed out.
+     * @throws InterruptedException Waiting thread was interrupted.
+     */
+    boolean await(long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -0,0 +1,53 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet;
+
+/**
+ * An oplet that controls the flow of its input tuples.
+ * <P>
+ * Typically implemented by oplets that queue tuples for
+ * asynchronous downstream processing, such as isolates.
+ * The demand for an oplet's output tuples is the minimum
+ * of the demands for the input tuples of its downstream oplets.
+ * An oplet that does not implement {@code FlowControl} passes the
+ * demand for its output tuples through as the demand for its input tuples.
+ * A {@code FlowControl} oplet issues its own credits for its input tuples.
+ * </P>
+ * <P>
+ * To pass demand through, a {@code FlowControl} oplet obtains the
+ * demand for its output tuples from its context using
+ * {@code getService(Demand.class)} and limits its credits to
+ * those of its downstream processing less the tuples it holds.
+ * Otherwise upstream processing is isolated from the demand of
+ * downstream processing.
+ * </P>
+ * 
+ * @see Demand
+ */
+public interface FlowControl {
+    
+    /**
+     * Get the credits this oplet issues for its input tuples.
+     * Called before the oplet is initialized, credits
+     * are only requested once the job has started.
+     * @return Demand for input tuples, or {@code null} if
+     * this oplet accepts all input tuples, for example by dropping tuples.
+     */
+    Demand getInputDemand();
+}
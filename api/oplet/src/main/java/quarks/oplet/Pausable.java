@@ -0,0 +1,50 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet;
+
+/**
+ * An oplet that can suspend the generation of tuples.
+ * <P>
+ * When a job is paused every oplet of the job implementing {@code Pausable}
+ * is paused. Typically only source oplets implement {@code Pausable}, so that
+ * no new tuples enter the job while tuples already in flight continue
+ * to be processed by downstream oplets.
+ * </P>
+ */
+public interface Pausable {
+
+    /**
+     * Suspend generation of tuples not derived from input tuples.
+     * Tuples may continue to be submitted by an in-progress
+     * call to the oplet.
+     */
+    void pause();
+
+    /**
+     * Resume generation of tuples after {@link #pause()}.
+     */
+    void resume();
+
+    /**
+     * Release any thread blocked by {@link #pause()} as the job is
+     * closed, without resuming generation of tuples.
+     * Tuples submitted by released threads are discarded.
+     */
+    void release();
+}
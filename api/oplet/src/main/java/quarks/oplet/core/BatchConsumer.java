@@ -0,0 +1,48 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet.core;
+
+import java.util.List;
+
+import quarks.function.Consumer;
+
+/**
+ * Consumer that can also accept tuples in batches.
+ * <P>
+ * When the destination of a stream implements {@code BatchConsumer}
+ * an oplet that has a number of tuples available can pass them
+ * with a single call to {@link #acceptBatch(List)}, amortizing
+ * the per-tuple hand-off cost. Passing a batch must be equivalent
+ * to passing each tuple in the batch in order to {@link #accept(Object)}.
+ * </P>
+ * <P>
+ * A batch must not be modified by the receiver and
+ * must not be modified by the caller once it has been passed.
+ * </P>
+ *
+ * @param <T> Tuple type.
+ */
+public interface BatchConsumer<T> extends Consumer<T> {
+    
+    /**
+     * Process a batch of tuples.
+     * @param tuples Tuples to process, in stream order.
+     */
+    void acceptBatch(List<T> tuples);
+}
@@ -0,0 +1,56 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pipe oplet that processes its input tuples in batches.
+ * <P>
+ * When the upstream oplet hands off tuples in batches
+ * (for example a batching {@link quarks.oplet.plumbing.Isolate Isolate})
+ * each batch is passed to {@link #acceptBatch(List)}
+ * with a single call. Individually submitted tuples are passed
+ * as a batch of one.
+ * </P>
+ *
+ * @param <I>
+ *            Data container type for input tuples.
+ * @param <O>
+ *            Data container type for output tuples.
+ */
+public abstract class BatchingPipe<I, O> extends Pipe<I, O> implements BatchConsumer<I> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Process a single tuple as a batch of one.
+     */
+    @Override
+    public void accept(I tuple) {
+        acceptBatch(Collections.singletonList(tuple));
+    }
+
+    /**
+     * Process a batch of input tuples.
+     * @param tuples Tuples to process, in stream order.
+     */
+    @Override
+    public abstract void acceptBatch(List<I> tuples);
+}
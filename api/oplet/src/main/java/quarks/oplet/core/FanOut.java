@@ -23,7 +23,7 @@ import java.util.List;
 
 import quarks.function.Consumer;
 
-public final class FanOut<T> extends AbstractOplet<T, T> implements Consumer<T> {
+public final class FanOut<T> extends AbstractOplet<T, T> implements BatchConsumer<T> {
     
     /**
      * 
@@ -49,6 +49,19 @@ public final class FanOut<T> extends AbstractOplet<T, T> implements Consumer<T>
         for (int i = 0; i < n; i++)
             targets.get(i).accept(tuple);
     }
+    
+    @Override
+    public void acceptBatch(List<T> tuples) {
+        for (int i = 0; i < n; i++) {
+            Consumer<T> target = targets.get(i);
+            if (target instanceof BatchConsumer) {
+                ((BatchConsumer<T>) target).acceptBatch(tuples);
+                continue;
+            }
+            for (int t = 0; t < tuples.size(); t++)
+                target.accept(tuples.get(t));
+        }
+    }
 
     @Override
     public void close() {
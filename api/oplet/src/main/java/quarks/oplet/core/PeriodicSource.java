@@ -31,6 +31,7 @@ public abstract class PeriodicSource<T> extends Source<T> implements Runnable, P
     private long period;
     private TimeUnit unit;
     private ScheduledFuture<?> future;
+    private boolean paused;
 
     protected PeriodicSource(long period, TimeUnit unit) {
         this.period = period;
@@ -61,8 +62,15 @@ public abstract class PeriodicSource<T> extends Source<T> implements Runnable, P
 
     protected abstract void fetchTuples() throws Exception;
 
+    /**
+     * Fetch tuples unless downstream processing has no {@link #hasDemand() demand},
+     * in which case the fetch is skipped, slowing intake to the pace of
+     * downstream processing without blocking the scheduler's thread.
+     */
     @Override
     public void run() {
+        if (!hasDemand())
+            return;
         try {
             fetchTuples();
         } catch (Exception e) {
@@ -85,9 +93,31 @@ public abstract class PeriodicSource<T> extends Source<T> implements Runnable, P
         if (period <= 0)
             throw new IllegalArgumentException();
         if (this.period != period) {
-            future.cancel(false);
             this.period = period;
-            schedule(true);
+            if (!paused) {
+                future.cancel(false);
+                schedule(true);
+            }
         }  
     }
+
+    /**
+     * Pause by unscheduling the periodic fetch, a fetch
+     * in progress completes and submits its tuples.
+     */
+    @Override
+    public synchronized void pause() {
+        if (!paused) {
+            paused = true;
+            future.cancel(false);
+        }
+    }
+
+    @Override
+    public synchronized void resume() {
+        if (paused) {
+            paused = false;
+            schedule(true);
+        }
+    }
 }
@@ -64,4 +64,21 @@ public abstract class Pipe<I, O> extends AbstractOplet<I, O>implements Consumer<
     protected void submit(O tuple) {
         getDestination().accept(tuple);
     }
+    
+    /**
+     * Submit a batch of tuples to single output.
+     * If the destination is a {@link BatchConsumer} the batch
+     * is passed with a single call, otherwise each tuple
+     * is submitted in order.
+     * @param tuples Tuples to be submitted.
+     */
+    protected void submitBatch(List<O> tuples) {
+        Consumer<O> destination = getDestination();
+        if (destination instanceof BatchConsumer) {
+            ((BatchConsumer<O>) destination).acceptBatch(tuples);
+            return;
+        }
+        for (int i = 0; i < tuples.size(); i++)
+            destination.accept(tuples.get(i));
+    }
 }
@@ -25,7 +25,14 @@ public abstract class ProcessSource<T> extends Source<T>implements Runnable {
     @Override
     public void start() {
         Thread t = getOpletContext().getService(ThreadFactory.class).newThread(this);
-        t.setDaemon(false);
+        if (t.isDaemon()) {
+            try {
+                t.setDaemon(false);
+            } catch (IllegalArgumentException e) {
+                // A virtual thread, which is always a daemon thread.
+                // The thread factory tracks it as a non-daemon thread.
+            }
+        }
         t.start();
     }
 
@@ -20,19 +20,51 @@ package quarks.oplet.core;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import quarks.function.Consumer;
+import quarks.oplet.Demand;
 import quarks.oplet.OpletContext;
+import quarks.oplet.Pausable;
 
-public abstract class Source<T> extends AbstractOplet<Void, T> {
+/**
+ * Source oplet with a single output and no inputs.
+ * <P>
+ * While a source is {@link #pause() paused} calls to
+ * {@link #submit(Object)} block until it is resumed, applying
+ * backpressure to the thread generating the tuples.
+ * If the job is closed while the source is paused blocked calls
+ * return without submitting their tuples.
+ * </P>
+ * <P>
+ * When downstream processing limits the flow of tuples, calls to
+ * {@link #submit(Object)} also block until the {@link Demand}
+ * of downstream processing has a credit available,
+ * so that tuples are not queued within the job while
+ * downstream processing cannot keep up.
+ * </P>
+ *
+ * @param <T> Data container type for output tuples.
+ */
+public abstract class Source<T> extends AbstractOplet<Void, T> implements Pausable {
+
+    /**
+     * Maximum time to wait for demand before checking
+     * it again, demand is released when the job is closed.
+     */
+    private static final long DEMAND_WAIT_MS = 100;
 
     private Consumer<T> destination;
+    private Demand demand;
+    private volatile boolean paused;
+    private boolean released;
 
     @Override
     public void initialize(OpletContext<Void, T> context) {
         super.initialize(context);
 
         destination = context.getOutputs().get(0);
+        demand = context.getService(Demand.class);
     }
 
     protected Consumer<T> getDestination() {
@@ -44,8 +76,79 @@ public abstract class Source<T> extends AbstractOplet<Void, T> {
      * @param tuple Tuple to be submitted.
      */
     protected void submit(T tuple) {
+        if (paused && !awaitResume())
+            return;
+        if (!hasDemand() && !awaitDemand())
+            return;
         getDestination().accept(tuple);
     }
+    
+    /**
+     * See if downstream processing has demand for a tuple.
+     * @return {@code true} if a tuple can be submitted
+     * without waiting for demand.
+     */
+    protected boolean hasDemand() {
+        return demand == null || demand.available() > 0;
+    }
+    
+    /**
+     * Wait for downstream processing to have demand for a tuple.
+     * @return {@code true} if demand is available, {@code false} if the
+     * waiting thread was interrupted.
+     */
+    private boolean awaitDemand() {
+        try {
+            while (!hasDemand())
+                demand.await(DEMAND_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Wait while this source is paused.
+     * @return {@code true} if resumed, {@code false} if the
+     * waiting thread was interrupted or the source was released.
+     */
+    private boolean awaitResume() {
+        synchronized (this) {
+            while (paused) {
+                if (released)
+                    return false;
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void pause() {
+        paused = true;
+    }
+
+    @Override
+    public void resume() {
+        synchronized (this) {
+            paused = false;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public void release() {
+        synchronized (this) {
+            released = true;
+            notifyAll();
+        }
+    }
 
     @Override
     public final List<Consumer<Void>> getInputs() {
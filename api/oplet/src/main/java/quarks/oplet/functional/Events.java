@@ -63,7 +63,14 @@ public class Events<T> extends Source<T>implements Consumer<T> {
                         // cancelled; we're done.
                     }
                 });
-        endlessEventSource.setDaemon(false);
+        if (endlessEventSource.isDaemon()) {
+            try {
+                endlessEventSource.setDaemon(false);
+            } catch (IllegalArgumentException e) {
+                // A virtual thread, which is always a daemon thread.
+                // The thread factory tracks it as a non-daemon thread.
+            }
+        }
         endlessEventSource.start();
 
         // It's possible for uses to do things like a blocking connect
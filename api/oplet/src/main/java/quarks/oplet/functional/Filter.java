@@ -20,10 +20,23 @@ package quarks.oplet.functional;
 
 import static quarks.function.Functions.closeFunction;
 
+import java.io.Serializable;
+
 import quarks.function.Predicate;
+import quarks.oplet.Checkpointable;
 import quarks.oplet.core.Pipe;
 
-public class Filter<T> extends Pipe<T, T> {
+/**
+ * Filter tuples using a predicate.
+ * <P>
+ * The oplet is {@link Checkpointable} through its predicate, the state
+ * of a predicate that implements {@code Checkpointable}, such as
+ * a deadband filter, is checkpointed and restored.
+ * </P>
+ * 
+ * @param <T> Tuple type.
+ */
+public class Filter<T> extends Pipe<T, T> implements Checkpointable {
     private static final long serialVersionUID = 1L;
     private Predicate<T> filter;
 
@@ -31,12 +44,33 @@ public class Filter<T> extends Pipe<T, T> {
         this.filter = filter;
     }
 
+    /**
+     * Get the predicate used to filter tuples.
+     * @return the filter predicate.
+     */
+    public Predicate<T> getPredicate() {
+        return filter;
+    }
+
     @Override
     public void accept(T tuple) {
         if (filter.test(tuple))
             submit(tuple);
     }
 
+    @Override
+    public Serializable checkpoint() throws Exception {
+        if (filter instanceof Checkpointable)
+            return ((Checkpointable) filter).checkpoint();
+        return null;
+    }
+
+    @Override
+    public void restore(Serializable state) throws Exception {
+        if (filter instanceof Checkpointable)
+            ((Checkpointable) filter).restore(state);
+    }
+
     @Override
     public void close() throws Exception {
         closeFunction(filter);
@@ -40,6 +40,14 @@ public class Map<I, O> extends Pipe<I, O> {
         this.function = function;
     }
 
+    /**
+     * Get the function used to map tuples.
+     * @return the mapping function.
+     */
+    public Function<I, O> getFunction() {
+        return function;
+    }
+
     @Override
     public void accept(I tuple) {
         O output = function.apply(tuple);
@@ -0,0 +1,265 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet.plumbing;
+
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import quarks.execution.services.ControlService;
+import quarks.oplet.Demand;
+import quarks.oplet.FlowControl;
+import quarks.oplet.OpletContext;
+import quarks.oplet.core.Pipe;
+import quarks.oplet.plumbing.OverflowPolicy.Action;
+import quarks.oplet.plumbing.mbeans.IsolateMXBean;
+import quarks.window.CircularList;
+import quarks.window.Policies;
+
+/**
+ * Isolate upstream processing from downstream
+ * processing guaranteeing tuple order, holding
+ * a bounded number of tuples.
+ * Input tuples are placed at the tail of a queue
+ * and dedicated thread removes them from the
+ * head and is used for downstream processing.
+ * <P>
+ * When a tuple arrives and the queue holds {@code capacity}
+ * tuples the isolate's {@link OverflowPolicy} is applied, which blocks
+ * upstream processing, drops tuples or spills tuples to disk.
+ * Thus heap use is bounded when downstream processing cannot
+ * keep up with bursts of tuples.
+ * </P>
+ * <P>
+ * With the {@link OverflowPolicy#block() block} policy tuples are held
+ * by a bounded {@link Isolate#Isolate(int) Isolate}, whose ring buffer holds
+ * {@code capacity} rounded up to a power of two tuples, and
+ * the isolate passes the {@link Demand demand} of its downstream processing
+ * through to upstream processing, less the tuples it holds and limited by its capacity.
+ * With other policies tuples are held in a list that supports
+ * dropping or spilling the oldest tuple, and upstream processing is isolated from
+ * downstream demand, as the policy handles overflow.
+ * </P>
+ * <P>
+ * Upstream processing blocked by the isolate is released
+ * when the isolate is closed, discarding its tuples.
+ * </P>
+ * <P>
+ * If a {@link ControlService} is available the oplet registers
+ * itself as an {@link IsolateMXBean} control of type {@code isolate},
+ * exposing counts of overflowing, dropped and spilled tuples.
+ * </P>
+ *
+ * @param <T> Type of the tuple.
+ */
+public class BoundedIsolate<T> extends Pipe<T,T> implements Runnable, IsolateMXBean, FlowControl {
+    private static final long serialVersionUID = 1L;
+    
+    private final int capacity;
+    private final OverflowPolicy<T> policy;
+    
+    /**
+     * Isolate holding the tuples with the block policy,
+     * {@code null} with other policies.
+     */
+    private final Isolate<T> blocking;
+    
+    /**
+     * Queue of tuples with policies other than block, removal of the
+     * head is constant time. Spilling uses a list that spills its
+     * oldest tuples to disk, dropping policies a circular list
+     * of {@code capacity} tuples.
+     */
+    private final List<T> tuples;
+    private Thread thread;
+    private String controlId;
+    
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+    
+    // Guarded by tuples
+    private int sampled;
+    private boolean closed;
+    
+    /**
+     * Create an isolate holding at most {@code capacity} tuples on heap.
+     * @param capacity Maximum number of tuples held on heap between
+     * upstream and downstream processing.
+     * @param policy Policy applied when a tuple arrives and
+     * {@code capacity} tuples are held.
+     */
+    public BoundedIsolate(int capacity, OverflowPolicy<T> policy) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity <= 0");
+        if (policy == null)
+            throw new NullPointerException("policy");
+        this.capacity = capacity;
+        this.policy = policy;
+        if (policy.getAction() == Action.BLOCK) {
+            blocking = new Isolate<>(capacity);
+            tuples = null;
+        } else {
+            blocking = null;
+            if (policy.getAction() == Action.SPILL)
+                tuples = Policies.spillingInsertionTimeList(capacity,
+                        policy.getSerializer(), policy.getDirectory()).get();
+            else
+                tuples = new CircularList<>(capacity);
+        }
+    }
+    
+    @Override
+    public void initialize(OpletContext<T, T> context) {
+        super.initialize(context);
+        if (blocking != null)
+            blocking.initialize(context);
+        else
+            thread = context.getService(ThreadFactory.class).newThread(this);
+        
+        ControlService cs = context.getService(ControlService.class);
+        if (cs != null)
+            controlId = cs.registerControl("isolate", context.uniquify(getClass().getSimpleName()), null, IsolateMXBean.class, this);
+    }
+   
+    @Override
+    public void start() {
+        super.start();
+        if (blocking != null)
+            blocking.start();
+        else
+            thread.start();
+    }
+
+    @Override
+    public void accept(T tuple) {
+        if (blocking != null) {
+            if (blocking.isFull())
+                overflowCount.incrementAndGet();
+            blocking.accept(tuple);
+            return;
+        }
+        synchronized (tuples) {
+            if (closed)
+                return;
+            if (tuples.size() >= capacity) {
+                overflowCount.incrementAndGet();
+                switch (policy.getAction()) {
+                case DROP_NEWEST:
+                    droppedCount.incrementAndGet();
+                    return;
+                case SAMPLE:
+                    if (++sampled < policy.getSampleRate()) {
+                        droppedCount.incrementAndGet();
+                        return;
+                    }
+                    sampled = 0;
+                    // fall through to make space for the sampled tuple
+                case DROP_OLDEST:
+                    tuples.remove(0);
+                    droppedCount.incrementAndGet();
+                    break;
+                case SPILL:
+                    // the list moves its oldest heap tuple to disk
+                    spilledCount.incrementAndGet();
+                    break;
+                default:
+                    throw new IllegalStateException(policy.toString());
+                }
+            }
+            tuples.add(tuple);
+            if (tuples.size() == 1)
+                tuples.notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.interrupted()) {
+            T tuple;
+            synchronized (tuples) {
+                try {
+                    while (tuples.isEmpty())
+                        tuples.wait();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                tuple = tuples.remove(0);
+            }
+            submit(tuple);
+        }
+    }
+    
+    @Override
+    public Demand getInputDemand() {
+        return blocking != null ? blocking.getInputDemand() : null;
+    }
+    
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String getOverflowPolicy() {
+        return policy.toString();
+    }
+
+    @Override
+    public int getSize() {
+        if (blocking != null)
+            return blocking.size();
+        synchronized (tuples) {
+            return tuples.size();
+        }
+    }
+
+    @Override
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+    
+    @Override
+    public void close() throws Exception {
+        if (controlId != null)
+            getOpletContext().getService(ControlService.class).unregister(controlId);
+        if (blocking != null) {
+            // Releases upstream processing waiting for space.
+            blocking.close();
+            return;
+        }
+        // Releases any segment files holding spilled tuples.
+        synchronized (tuples) {
+            closed = true;
+            tuples.clear();
+            tuples.notifyAll();
+        }
+    }
+}
@@ -18,10 +18,17 @@ under the License.
 */
 package quarks.oplet.plumbing;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+import quarks.oplet.Demand;
+import quarks.oplet.FlowControl;
 import quarks.oplet.OpletContext;
+import quarks.oplet.core.BatchConsumer;
 import quarks.oplet.core.Pipe;
 
 /**
@@ -30,19 +37,145 @@ import quarks.oplet.core.Pipe;
  * Input tuples are placed at the tail of a queue
  * and dedicated thread removes them from the
  * head and is used for downstream processing.
+ * <P>
+ * By default the queue is unbounded. When created with
+ * a {@link #Isolate(int) capacity} the queue is a
+ * fixed size ring buffer and upstream processing
+ * is blocked while the ring buffer is full.
+ * Once the isolate is closed blocked upstream processing
+ * is released, discarding its tuples.
+ * How threads wait for the ring buffer to become
+ * non-empty (downstream) or non-full (upstream) is
+ * defined by a {@link WaitStrategy}.
+ * </P>
+ * <P>
+ * A bounded {@code Isolate} may also be created with a
+ * {@link #Isolate(int, WaitStrategy, int, long, TimeUnit) batch size},
+ * in which case its thread hands off up to {@code batchSize}
+ * tuples at a time to downstream processing,
+ * waiting at most {@code batchTime} to fill a batch.
+ * A downstream {@link BatchConsumer} receives each
+ * batch with a single call.
+ * </P>
+ * <P>
+ * An {@code Isolate} passes the {@link Demand demand} of its downstream
+ * processing through to upstream processing, less the tuples it holds.
+ * A bounded {@code Isolate} also limits the credits it issues to the
+ * free slots in its ring buffer, so that sources wait for downstream
+ * processing rather than being blocked by a full ring buffer.
+ * </P>
  *
  * @param <T> Type of the tuple.
  */
-public class Isolate<T> extends Pipe<T,T> implements Runnable {
+public class Isolate<T> extends Pipe<T,T> implements Runnable, FlowControl, Demand {
     private static final long serialVersionUID = 1L;
     
+    /**
+     * Strategy used by a bounded {@code Isolate} when
+     * its thread has to wait for tuples, or when
+     * upstream processing has to wait for space.
+     * {@code SPIN} and {@code YIELD} are only suitable when
+     * a core is available for each waiting thread.
+     */
+    public enum WaitStrategy {
+        /**
+         * Busy spin, lowest latency at the cost of a fully used core.
+         */
+        SPIN,
+        /**
+         * Spin calling {@code Thread.yield()}, allowing other threads to run.
+         */
+        YIELD,
+        /**
+         * Park the waiting thread, lowest CPU usage.
+         */
+        PARK
+    }
+    
+    /**
+     * Maximum time an upstream thread parks waiting for
+     * space before checking the ring buffer again.
+     */
+    private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    
     private Thread thread;
-    private LinkedBlockingQueue<T> tuples = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<T> tuples;
+    private final RingBuffer<T> ring;
+    private final WaitStrategy waitStrategy;
+    private final int batchSize;
+    private final long batchNanos;
+    private volatile boolean consumerParked;
+    private volatile boolean closed;
+    private Demand downstream;
+    
+    /**
+     * Create an isolate using an unbounded queue.
+     */
+    public Isolate() {
+        this.tuples = new LinkedBlockingQueue<>();
+        this.ring = null;
+        this.waitStrategy = null;
+        this.batchSize = 1;
+        this.batchNanos = 0;
+    }
+    
+    /**
+     * Create an isolate using a ring buffer that holds at least
+     * {@code capacity} tuples, parking waiting threads.
+     * @param capacity Minimum number of tuples held between
+     * upstream and downstream processing.
+     */
+    public Isolate(int capacity) {
+        this(capacity, WaitStrategy.PARK);
+    }
+    
+    /**
+     * Create an isolate using a ring buffer that holds at least
+     * {@code capacity} tuples.
+     * @param capacity Minimum number of tuples held between
+     * upstream and downstream processing.
+     * @param waitStrategy How threads wait for the ring buffer.
+     */
+    public Isolate(int capacity, WaitStrategy waitStrategy) {
+        this(capacity, waitStrategy, 1, 0, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Create an isolate using a ring buffer that holds at least
+     * {@code capacity} tuples and hands off tuples to downstream
+     * processing in batches.
+     * <BR>
+     * A batch is handed off when it contains {@code batchSize} tuples
+     * or {@code batchTime} has elapsed since its first tuple was removed
+     * from the ring buffer, whichever comes first. With a {@code batchTime}
+     * of zero a batch contains only the tuples that are immediately available.
+     * @param capacity Minimum number of tuples held between
+     * upstream and downstream processing.
+     * @param waitStrategy How threads wait for the ring buffer.
+     * @param batchSize Maximum number of tuples in a batch.
+     * @param batchTime Maximum time to wait to fill a batch.
+     * @param unit Unit of {@code batchTime}.
+     */
+    public Isolate(int capacity, WaitStrategy waitStrategy,
+            int batchSize, long batchTime, TimeUnit unit) {
+        if (waitStrategy == null)
+            throw new NullPointerException("waitStrategy");
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize: " + batchSize);
+        if (batchTime < 0)
+            throw new IllegalArgumentException("batchTime: " + batchTime);
+        this.tuples = null;
+        this.ring = new RingBuffer<>(capacity);
+        this.waitStrategy = waitStrategy;
+        this.batchSize = batchSize;
+        this.batchNanos = unit.toNanos(batchTime);
+    }
     
     @Override
     public void initialize(OpletContext<T, T> context) {
         super.initialize(context);
         thread = context.getService(ThreadFactory.class).newThread(this);
+        downstream = context.getService(Demand.class);
     }
    
     @Override
@@ -53,6 +186,10 @@ public class Isolate<T> extends Pipe<T,T> implements Runnable {
 
     @Override
     public void accept(T tuple) {
+        if (ring != null) {
+            offer(tuple);
+            return;
+        }
         try {
             tuples.put(tuple);
         } catch (InterruptedException e) {
@@ -60,9 +197,34 @@ public class Isolate<T> extends Pipe<T,T> implements Runnable {
             throw new RuntimeException(e);
         }      
     }
+    
+    private void offer(T tuple) {
+        while (!ring.offer(tuple)) {
+            if (closed)
+                return;
+            switch (waitStrategy) {
+            case SPIN:
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            case PARK:
+                LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+                break;
+            }
+            if (Thread.currentThread().isInterrupted())
+                throw new RuntimeException(new InterruptedException());
+        }
+        if (consumerParked)
+            LockSupport.unpark(thread);
+    }
 
     @Override
     public void run() {
+        if (ring != null) {
+            runRing();
+            return;
+        }
         while (!Thread.interrupted()) {
             try {
                 submit(tuples.take());
@@ -72,8 +234,124 @@ public class Isolate<T> extends Pipe<T,T> implements Runnable {
         }
     }
     
+    private void runRing() {
+        while (!Thread.interrupted()) {
+            T tuple = ring.poll();
+            if (tuple == null) {
+                await(0);
+                continue;
+            }
+            if (batchSize == 1) {
+                submit(tuple);
+                continue;
+            }
+            List<T> batch = new ArrayList<>(Math.min(batchSize, ring.capacity()));
+            batch.add(tuple);
+            fill(batch);
+            submitBatch(batch);
+        }
+    }
+    
+    /**
+     * Add tuples to the batch until it is full or
+     * the batch time has elapsed.
+     */
+    private void fill(List<T> batch) {
+        final long deadline = System.nanoTime() + batchNanos;
+        while (batch.size() < batchSize) {
+            T tuple = ring.poll();
+            if (tuple != null) {
+                batch.add(tuple);
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted())
+                return;
+            await(remaining);
+        }
+    }
+    
+    /**
+     * Wait for the ring buffer to become non-empty.
+     * @param nanos Maximum time to park, zero to park until unparked.
+     */
+    private void await(long nanos) {
+        switch (waitStrategy) {
+        case SPIN:
+            break;
+        case YIELD:
+            Thread.yield();
+            break;
+        case PARK:
+            consumerParked = true;
+            if (ring.isEmpty()) {
+                if (nanos == 0)
+                    LockSupport.park(this);
+                else
+                    LockSupport.parkNanos(this, nanos);
+            }
+            consumerParked = false;
+            break;
+        }
+    }
+    
+    @Override
+    public Demand getInputDemand() {
+        return this;
+    }
+    
+    /**
+     * Credits limited by the capacity of the ring buffer and the
+     * downstream demand, less the tuples held.
+     */
+    @Override
+    public long available() {
+        long limit = ring == null ? UNBOUNDED : ring.capacity();
+        if (downstream != null)
+            limit = Math.min(limit, downstream.available());
+        if (limit == UNBOUNDED)
+            return UNBOUNDED;
+        return Math.max(0, limit - (ring == null ? tuples.size() : ring.size()));
+    }
+    
+    /**
+     * Wait for a credit, parking as upstream
+     * processing does when the ring buffer is full.
+     */
+    @Override
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (available() == 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            LockSupport.parkNanos(this, Math.min(remaining, PRODUCER_PARK_NANOS));
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+        return true;
+    }
+    
+    /**
+     * Approximate number of tuples held.
+     * @return Number of tuples held.
+     */
+    int size() {
+        return ring == null ? tuples.size() : ring.size();
+    }
+
+    /**
+     * Is a bounded isolate full, so that upstream processing
+     * will wait for space.
+     * @return {@code true} if the ring buffer is full.
+     */
+    boolean isFull() {
+        return ring != null && ring.size() >= ring.capacity();
+    }
+    
     @Override
     public void close() throws Exception {
+        closed = true;
     }
     
 }
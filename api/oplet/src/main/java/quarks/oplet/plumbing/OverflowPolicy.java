@@ -0,0 +1,181 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet.plumbing;
+
+import java.io.File;
+import java.io.Serializable;
+
+import quarks.window.TupleSerializer;
+
+/**
+ * Policy applied by a {@link BoundedIsolate} when a tuple
+ * arrives and the isolate already holds its capacity of tuples.
+ *
+ * @param <T> Type of the tuple.
+ */
+public final class OverflowPolicy<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Action taken on overflow.
+     */
+    public enum Action {
+        /**
+         * Block upstream processing until a tuple has been consumed.
+         */
+        BLOCK,
+        /**
+         * Drop the arriving tuple.
+         */
+        DROP_NEWEST,
+        /**
+         * Drop the oldest held tuple to make space for the arriving tuple.
+         */
+        DROP_OLDEST,
+        /**
+         * Keep every Nth arriving tuple, dropping the oldest held tuple
+         * to make space for it, and drop the others.
+         */
+        SAMPLE,
+        /**
+         * Spill the oldest held tuples to disk.
+         */
+        SPILL
+    }
+    
+    private static final OverflowPolicy<Object> BLOCK = new OverflowPolicy<>(Action.BLOCK, 0, null, null);
+    private static final OverflowPolicy<Object> DROP_NEWEST = new OverflowPolicy<>(Action.DROP_NEWEST, 0, null, null);
+    private static final OverflowPolicy<Object> DROP_OLDEST = new OverflowPolicy<>(Action.DROP_OLDEST, 0, null, null);
+    
+    private final Action action;
+    private final int sampleRate;
+    private final TupleSerializer<T> serializer;
+    private final File directory;
+    
+    private OverflowPolicy(Action action, int sampleRate, TupleSerializer<T> serializer, File directory) {
+        this.action = action;
+        this.sampleRate = sampleRate;
+        this.serializer = serializer;
+        this.directory = directory;
+    }
+    
+    /**
+     * Block upstream processing while the isolate is full.
+     * No tuples are lost and upstream processing is paced
+     * by downstream processing.
+     * Tuples are held in the ring buffer of a bounded {@link Isolate},
+     * so the capacity is rounded up to a power of two.
+     * @return Blocking policy.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> OverflowPolicy<T> block() {
+        return (OverflowPolicy<T>) BLOCK;
+    }
+    
+    /**
+     * Drop arriving tuples while the isolate is full.
+     * Downstream processing sees the oldest tuples of a burst.
+     * @return Drop newest policy.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> OverflowPolicy<T> dropNewest() {
+        return (OverflowPolicy<T>) DROP_NEWEST;
+    }
+    
+    /**
+     * Drop the oldest held tuple for each tuple that arrives
+     * while the isolate is full.
+     * Downstream processing sees the most recent tuples of a burst.
+     * @return Drop oldest policy.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> OverflowPolicy<T> dropOldest() {
+        return (OverflowPolicy<T>) DROP_OLDEST;
+    }
+    
+    /**
+     * Sample the tuples that arrive while the isolate is full.
+     * Every {@code n}th such tuple is kept, replacing the oldest
+     * held tuple, and the others are dropped. Downstream processing
+     * sees a burst thinned to one in {@code n} tuples.
+     * @param n Sample rate, one keeps every tuple as with {@link #dropOldest()}.
+     * @return Sampling policy.
+     */
+    public static <T> OverflowPolicy<T> sample(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("n: " + n);
+        return new OverflowPolicy<>(Action.SAMPLE, n, null, null);
+    }
+    
+    /**
+     * Spill the oldest held tuples to memory-mapped segment files
+     * while the isolate is full. No tuples are lost and upstream processing
+     * is not blocked, heap use is bounded but disk use is not.
+     * Segment files are deleted as their tuples are consumed.
+     * @param serializer Serializer for spilled tuples.
+     * @param directory Directory for segment files, {@code null} for the
+     *      default temporary-file directory.
+     * @return Spilling policy.
+     * 
+     * @see quarks.window.Policies#spillingInsertionTimeList(int, TupleSerializer, File)
+     */
+    public static <T> OverflowPolicy<T> spill(TupleSerializer<T> serializer, File directory) {
+        if (serializer == null)
+            throw new NullPointerException("serializer");
+        return new OverflowPolicy<>(Action.SPILL, 0, serializer, directory);
+    }
+    
+    /**
+     * Get the action taken on overflow.
+     * @return the action
+     */
+    public Action getAction() {
+        return action;
+    }
+    
+    /**
+     * Get the sample rate for {@link Action#SAMPLE}.
+     * @return the sample rate, zero for other actions.
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    /**
+     * Get the serializer for {@link Action#SPILL}.
+     * @return the serializer, {@code null} for other actions.
+     */
+    public TupleSerializer<T> getSerializer() {
+        return serializer;
+    }
+    
+    /**
+     * Get the directory for spilled tuples.
+     * @return the directory, {@code null} for the default
+     *      temporary-file directory or other actions.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+    
+    @Override
+    public String toString() {
+        return action == Action.SAMPLE ? action + "(" + sampleRate + ")" : action.toString();
+    }
+}
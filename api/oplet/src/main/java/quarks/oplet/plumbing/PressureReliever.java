@@ -18,15 +18,27 @@ under the License.
 */
 package quarks.oplet.plumbing;
 
-import java.util.LinkedList;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import quarks.execution.services.ControlService;
 import quarks.function.BiConsumer;
 import quarks.function.Function;
 import quarks.function.Functions;
+import quarks.oplet.Checkpointable;
+import quarks.oplet.Demand;
+import quarks.oplet.FlowControl;
 import quarks.oplet.OpletContext;
 import quarks.oplet.core.Pipe;
+import quarks.oplet.window.mbeans.WindowMXBean;
+import quarks.window.CircularList;
 import quarks.window.Partition;
 import quarks.window.PartitionedState;
 import quarks.window.Policies;
@@ -65,21 +77,37 @@ import quarks.window.Windows;
  * </UL>
  * </P>
  * <P>
+ * The number of partitions can be bounded using
+ * {@link #PressureReliever(int, Function, int, long, TimeUnit)},
+ * removing least recently used or idle partitions and discarding
+ * their tuples. If a {@link ControlService} is available the oplet
+ * registers itself as a {@link WindowMXBean} control of type {@code window}.
+ * </P>
+ * <P>
+ * The oplet is {@link Checkpointable}, its state is the tuples
+ * not yet submitted, which requires serializable tuples and keys.
+ * Restored tuples are submitted when the oplet is started.
+ * </P>
+ * <P>
  * <BR>
  * Insertion of the oplet into a stream disconnects the
  * upstream processing from the downstream processing,
  * so that downstream processing is executed on a different
  * thread to the thread that processed the input tuple.
+ * The oplet accepts all input tuples, so the {@link Demand demand}
+ * of downstream processing is not passed through to upstream processing.
  * </P>
  * 
  * @param <T> Tuple type.
  * @param <K> Key type.
  */
-public class PressureReliever<T, K> extends Pipe<T, T> {
+public class PressureReliever<T, K> extends Pipe<T, T> implements WindowMXBean, Checkpointable, FlowControl {
     private static final long serialVersionUID = 1L;
 
-    private ScheduledExecutorService executor;
-    private final Window<T, K, LinkedList<T>> window;
+    private ExecutorService executor;
+    private final Window<T, K, CircularList<T>> window;
+    private String controlId;
+    private Map<K, ? extends List<T>> restored;
 
     /**
      * Pressure reliever that maintains up to {@code count} most recent tuples per key.
@@ -88,22 +116,62 @@ public class PressureReliever<T, K> extends Pipe<T, T> {
      * @param keyFunction Key function for tuples.
      */
     public PressureReliever(int count, Function<T, K> keyFunction) {
+        this(count, keyFunction, 0, 0, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Pressure reliever that maintains up to {@code count} most recent tuples per key,
+     * with a bounded number of keys.
+     *
+     * @param count Number of tuples to maintain where downstream processing cannot keep up.
+     * @param keyFunction Key function for tuples.
+     * @param maxPartitions Maximum number of keys maintained, zero for no limit.
+     * @param idleTime Time after which a key that has not been seen is discarded, zero for no limit.
+     * @param unit Unit for {@code idleTime}.
+     * 
+     * @see Windows#window(quarks.function.BiFunction, BiConsumer, quarks.function.Consumer, BiConsumer, Function, quarks.function.Supplier, int, long, TimeUnit)
+     */
+    public PressureReliever(int count, Function<T, K> keyFunction,
+            int maxPartitions, long idleTime, TimeUnit unit) {
+        FirstSubmitter submitter = new FirstSubmitter();
         window = Windows.window(
                 Policies.alwaysInsert(),
                 Policies.countContentsPolicy(count),
                 Policies.evictOldest(),
-                new FirstSubmitter(),
+                submitter,
                 keyFunction,
-                () -> new LinkedList<T>());
+                Policies.circularList(count),
+                maxPartitions, idleTime, unit);
 
         // No processing of the window takes place
         window.registerPartitionProcessor((tuples, k) -> { });
+        window.registerPartitionRemovalListener(partition -> submitter.partitionRemoved(partition));
     }    
 
     @Override
     public void initialize(OpletContext<T, T> context) {
         super.initialize(context);
-        executor = context.getService(ScheduledExecutorService.class);
+        // Prefer an executor for immediate tasks, the
+        // scheduler is only required by runtimes without one.
+        executor = context.getService(ExecutorService.class);
+        if (executor == null)
+            executor = context.getService(ScheduledExecutorService.class);
+        
+        ControlService cs = context.getService(ControlService.class);
+        if (cs != null)
+            controlId = cs.registerControl("window", context.uniquify(getClass().getSimpleName()), null, WindowMXBean.class, this);
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        if (restored != null) {
+            for (List<T> tuples : restored.values()) {
+                for (T tuple : tuples)
+                    window.insert(tuple);
+            }
+            restored = null;
+        }
     }
 
     @Override
@@ -111,12 +179,45 @@ public class PressureReliever<T, K> extends Pipe<T, T> {
         window.insert(tuple);
     }
 
+    /**
+     * Returns {@code null} as all input tuples are accepted,
+     * earlier tuples are discarded when downstream processing cannot keep up.
+     */
+    @Override
+    public Demand getInputDemand() {
+        return null;
+    }
+
+    @Override
+    public Serializable checkpoint() {
+        HashMap<K, ArrayList<T>> contents = Windows.copyContents(window);
+        return contents.isEmpty() ? null : contents;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void restore(Serializable state) {
+        restored = (Map<K, ? extends List<T>>) state;
+    }
+
+    @Override
+    public int getPartitionCount() {
+        return window.getPartitions().size();
+    }
+
+    @Override
+    public long getEvictedPartitionCount() {
+        return window.getEvictedPartitionCount();
+    }
+
     @Override
     public void close() throws Exception {
+        if (controlId != null)
+            getOpletContext().getService(ControlService.class).unregister(controlId);
     }
 
     private class FirstSubmitter extends PartitionedState<K, AtomicBoolean>
-            implements BiConsumer<Partition<T, K, LinkedList<T>>, T> {
+            implements BiConsumer<Partition<T, K, CircularList<T>>, T> {
 
         /**
          * 
@@ -126,6 +227,13 @@ public class PressureReliever<T, K> extends Pipe<T, T> {
         FirstSubmitter() {
             super(() -> new AtomicBoolean());
         }
+        
+        /**
+         * Discard the submission state of a removed partition.
+         */
+        void partitionRemoved(Partition<T, K, CircularList<T>> partition) {
+            removeState(partition.getKey());
+        }
 
         /**
          * Process the window (to consume the oldest tuple in the partition)
@@ -136,11 +244,11 @@ public class PressureReliever<T, K> extends Pipe<T, T> {
          * @return
          */
         @Override
-        public void accept(Partition<T, K, LinkedList<T>> partition, T tuple) {
+        public void accept(Partition<T, K, CircularList<T>> partition, T tuple) {
             submitNextTuple(partition);
         }
 
-        private void submitNextTuple(Partition<T, K, LinkedList<T>> partition) {
+        private void submitNextTuple(Partition<T, K, CircularList<T>> partition) {
             final K key = partition.getKey();
             final AtomicBoolean latch = getState(key);
             if (!latch.compareAndSet(false, true))
@@ -148,13 +256,13 @@ public class PressureReliever<T, K> extends Pipe<T, T> {
             
             final T firstTuple;
             synchronized (partition) {
-                final LinkedList<T> contents = partition.getContents();
+                final CircularList<T> contents = partition.getContents();
                 if (contents.isEmpty()) {
                     latch.set(false);
                     return;
                 }
 
-                firstTuple = contents.removeFirst();
+                firstTuple = contents.remove(0);
             }
 
             Runnable submit = Functions.delayedConsume(getDestination(), firstTuple);
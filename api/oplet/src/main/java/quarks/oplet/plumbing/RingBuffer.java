@@ -0,0 +1,135 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet.plumbing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded array backed ring buffer with a single consumer.
+ * <P>
+ * Producers claim a slot by advancing the tail with a
+ * compare-and-set and publish the tuple by advancing the
+ * slot's sequence number, so multiple producers are safe
+ * though the common case is a single producer. A single
+ * consumer removes tuples from the head. No allocation
+ * takes place per tuple.
+ * </P>
+ *
+ * @param <T> Type of the tuple.
+ */
+final class RingBuffer<T> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * Create a ring buffer that can hold at least {@code capacity} tuples.
+     * The actual capacity is {@code capacity} rounded up to a power of two.
+     * @param capacity Minimum capacity of the buffer.
+     */
+    RingBuffer(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity <= 0");
+        if (capacity > (1 << 30))
+            throw new IllegalArgumentException("capacity > 2^30");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        slots = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+        mask = size - 1;
+    }
+
+    /**
+     * Get the capacity of this buffer.
+     * @return Number of tuples this buffer can hold.
+     */
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Insert a tuple at the tail if there is room.
+     * @param tuple Tuple to insert.
+     * @return {@code true} if the tuple was inserted, {@code false} if the buffer is full.
+     */
+    boolean offer(T tuple) {
+        long pos = tail.get();
+        for (;;) {
+            final int index = (int) pos & mask;
+            final long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots[index] = tuple;
+                    // Volatile write publishes the tuple to the consumer
+                    // and orders it before any read of consumer state by the caller.
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the tuple at the head.
+     * Must only be called by the single consumer.
+     * @return Tuple at the head, {@code null} if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        final long pos = head;
+        final int index = (int) pos & mask;
+        if (sequences.get(index) != pos + 1)
+            return null;
+        final T tuple = (T) slots[index];
+        slots[index] = null;
+        head = pos + 1;
+        sequences.lazySet(index, pos + slots.length);
+        return tuple;
+    }
+
+    /**
+     * Is the buffer empty.
+     * @return {@code true} if no tuples are waiting to be consumed.
+     */
+    boolean isEmpty() {
+        final long pos = head;
+        return sequences.get((int) pos & mask) != pos + 1;
+    }
+
+    /**
+     * Approximate number of tuples in the buffer.
+     * @return Number of tuples in the buffer.
+     */
+    int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, slots.length));
+    }
+}
@@ -18,9 +18,16 @@ under the License.
 */
 package quarks.oplet.plumbing;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import quarks.function.Functions;
+import quarks.oplet.Demand;
+import quarks.oplet.FlowControl;
 import quarks.oplet.OpletContext;
 import quarks.oplet.core.Pipe;
 
@@ -30,23 +37,125 @@ import quarks.oplet.core.Pipe;
  * An executor is used for downstream processing
  * thus tuple order cannot be guaranteed as the
  * scheduler does not guarantee execution order.
+ * <P>
+ * When created with a {@link #UnorderedIsolate(int) capacity}
+ * upstream processing is blocked while {@code capacity}
+ * tuples are waiting for or undergoing downstream processing.
+ * </P>
+ * <P>
+ * An {@code UnorderedIsolate} passes the {@link Demand demand} of its
+ * downstream processing through to upstream processing, less the
+ * tuples waiting for or undergoing downstream processing, limited
+ * by {@code capacity} when bounded.
+ * </P>
  *
  * @param <T> Type of the tuple.
  */
-public class UnorderedIsolate<T> extends Pipe<T,T> {
+public class UnorderedIsolate<T> extends Pipe<T,T> implements FlowControl, Demand {
     private static final long serialVersionUID = 1L;
     
-    private ScheduledExecutorService executor;
+    /**
+     * Maximum time waiting for a credit parks before checking again.
+     */
+    private static final long DEMAND_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    
+    private ExecutorService executor;
+    private final int capacity;
+    private final Semaphore permits;
+    private final AtomicInteger pending = new AtomicInteger();
+    private Demand downstream;
+    
+    /**
+     * Create an isolate that does not limit the number
+     * of tuples waiting for downstream processing.
+     */
+    public UnorderedIsolate() {
+        this.capacity = 0;
+        this.permits = null;
+    }
+    
+    /**
+     * Create an isolate that limits the number of tuples
+     * waiting for downstream processing to {@code capacity}.
+     * @param capacity Maximum number of tuples held between
+     * upstream and downstream processing.
+     */
+    public UnorderedIsolate(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity <= 0");
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+    }
     
     @Override
     public void initialize(OpletContext<T, T> context) {
         super.initialize(context);
-        executor = context.getService(ScheduledExecutorService.class);
+        // Prefer an executor for immediate tasks, the
+        // scheduler is only required by runtimes without one.
+        executor = context.getService(ExecutorService.class);
+        if (executor == null)
+            executor = context.getService(ScheduledExecutorService.class);
+        downstream = context.getService(Demand.class);
     }
 
     @Override
     public void accept(T tuple) {
-        executor.execute(Functions.delayedConsume(getDestination(), tuple));      
+        if (permits != null) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        pending.incrementAndGet();
+        try {
+            executor.execute(Functions.runWithFinal(
+                    Functions.delayedConsume(getDestination(), tuple),
+                    () -> release()));
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+    
+    private void release() {
+        pending.decrementAndGet();
+        if (permits != null)
+            permits.release();
+    }
+    
+    @Override
+    public Demand getInputDemand() {
+        return this;
+    }
+    
+    /**
+     * Credits limited by the capacity and the downstream demand,
+     * less the tuples waiting for or undergoing downstream processing.
+     */
+    @Override
+    public long available() {
+        long limit = permits == null ? UNBOUNDED : capacity;
+        if (downstream != null)
+            limit = Math.min(limit, downstream.available());
+        if (limit == UNBOUNDED)
+            return UNBOUNDED;
+        return Math.max(0, limit - pending.get());
+    }
+    
+    @Override
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (available() == 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            LockSupport.parkNanos(this, Math.min(remaining, DEMAND_PARK_NANOS));
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+        return true;
     }
     
     @Override
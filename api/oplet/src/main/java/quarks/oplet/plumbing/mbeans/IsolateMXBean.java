@@ -0,0 +1,67 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet.plumbing.mbeans;
+
+/**
+ * Control interface for a bounded isolate.
+ * Counters are cumulative from the start of the oplet.
+ * 
+ * @see quarks.oplet.plumbing.BoundedIsolate
+ */
+public interface IsolateMXBean {
+    
+    /**
+     * Get the maximum number of tuples held on heap.
+     * @return capacity
+     */
+    public int getCapacity();
+    
+    /**
+     * Get the policy applied when the isolate is full.
+     * @return Name of the overflow policy.
+     */
+    public String getOverflowPolicy();
+    
+    /**
+     * Get the number of tuples currently held,
+     * including any spilled tuples.
+     * @return number of tuples held
+     */
+    public int getSize();
+    
+    /**
+     * Get the number of tuples that arrived
+     * while the isolate was full.
+     * @return overflow count
+     */
+    public long getOverflowCount();
+    
+    /**
+     * Get the number of tuples dropped, either on arrival
+     * or by being displaced by a newer tuple.
+     * @return dropped count
+     */
+    public long getDroppedCount();
+    
+    /**
+     * Get the number of tuples spilled to disk.
+     * @return spilled count
+     */
+    public long getSpilledCount();
+}
@@ -20,14 +20,23 @@ package quarks.oplet.window;
 
 import static quarks.function.Functions.closeFunction;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 
+import quarks.execution.services.ControlService;
 import quarks.function.BiConsumer;
 import quarks.function.BiFunction;
+import quarks.oplet.Checkpointable;
 import quarks.oplet.OpletContext;
 import quarks.oplet.core.Pipe;
+import quarks.oplet.window.mbeans.WindowMXBean;
+import quarks.window.Partition;
 import quarks.window.Window;
+import quarks.window.Windows;
 
 /**
  * Aggregate a window.
@@ -37,24 +46,51 @@ import quarks.window.Window;
  * the partition key. The returned value
  * is submitted to the sole output port
  * if it is not {@code null}. 
+ * <P>
+ * If a {@link ControlService} is available the oplet registers
+ * itself as a {@link WindowMXBean} control of type {@code window}
+ * reporting the window's partition count and partition evictions.
+ * </P>
+ * <P>
+ * The oplet is {@link Checkpointable}, its state is the contents
+ * of each partition, which requires serializable tuples and keys.
+ * The window is restored by inserting the checkpointed tuples,
+ * without submitting the aggregations this causes, so that policy
+ * state such as incremental aggregations is rebuilt. Restored
+ * tuples keep their insertion times, tuples that have expired
+ * since the checkpoint are evicted when the oplet is started,
+ * submitting any aggregation caused by the eviction, such as
+ * for a session that closed while the job was not running.
+ * </P>
+ * <P>
+ * When the oplet is closed its partitions are removed, releasing
+ * policy state, without processing them. Thus tuples held by the window,
+ * such as an event time window's final batch, are not submitted.
+ * </P>
  *
  * @param <T> Type of the input tuples.
  * @param <U> Type of the output tuples.
  * @param <K> Type of the partition key.
  */
-public class Aggregate<T,U,K> extends Pipe<T, U> {
+public class Aggregate<T,U,K> extends Pipe<T, U> implements WindowMXBean, Checkpointable {
     private static final long serialVersionUID = 1L;
     private final Window<T,K, ? extends List<T>> window;
     /**
      * The aggregator provided by the user.
      */
     private final BiFunction<List<T>,K, U> aggregator;
+    private String controlId;
+    private volatile boolean restoring;
+    private volatile boolean closed;
+    private List<K> evictOnStart;
     
     public Aggregate(Window<T,K, ? extends List<T>> window, BiFunction<List<T>,K, U> aggregator){
         this.aggregator = aggregator;
         BiConsumer<List<T>, K> partProcessor = (tuples, key) -> {
+            if (closed)
+                return;
             U aggregateTuple = aggregator.apply(tuples, key);
-            if (aggregateTuple != null)
+            if (aggregateTuple != null && !restoring)
                 submit(aggregateTuple);
             };
             
@@ -66,6 +102,19 @@ public class Aggregate<T,U,K> extends Pipe<T, U> {
     public void initialize(OpletContext<T,U> context) {
         super.initialize(context);
         window.registerScheduledExecutorService(this.getOpletContext().getService(ScheduledExecutorService.class));
+        
+        ControlService cs = context.getService(ControlService.class);
+        if (cs != null)
+            controlId = cs.registerControl("window", context.uniquify(getClass().getSimpleName()), null, WindowMXBean.class, this);
+    }
+    
+    @Override
+    public void start() {
+        super.start();
+        if (evictOnStart != null) {
+            evictRestored(window, evictOnStart);
+            evictOnStart = null;
+        }
     }
     
     @Override
@@ -73,9 +122,70 @@ public class Aggregate<T,U,K> extends Pipe<T, U> {
         window.insert(tuple);   
     }
 
+    @Override
+    public int getPartitionCount() {
+        return window.getPartitions().size();
+    }
+
+    @Override
+    public long getEvictedPartitionCount() {
+        return window.getEvictedPartitionCount();
+    }
+
+    @Override
+    public Serializable checkpoint() {
+        HashMap<K, Serializable> contents = Windows.checkpointContents(window);
+        return contents.isEmpty() ? null : contents;
+    }
+
+    @Override
+    public void restore(Serializable state) {
+        @SuppressWarnings("unchecked")
+        Map<K, Serializable> contents = (Map<K, Serializable>) state;
+        List<K> evict = new ArrayList<>();
+        restoring = true;
+        try {
+            for (Map.Entry<K, Serializable> entry : contents.entrySet()) {
+                if (Windows.restoreContents(window, entry.getKey(), entry.getValue()))
+                    evict.add(entry.getKey());
+            }
+            evictOnStart = evict;
+        } finally {
+            restoring = false;
+        }
+    }
+
     @Override
     public void close() throws Exception {
+        if (controlId != null)
+            getOpletContext().getService(ControlService.class).unregister(controlId);
+        closed = true;
+        removePartitions(window);
         closeFunction(aggregator);
     }
+    
+    /**
+     * Evict the restored partitions of a window so that tuples
+     * that expired since the checkpoint are removed.
+     */
+    static <T, K, L extends List<T>> void evictRestored(Window<T, K, L> window, List<K> keys) {
+        for (K key : keys) {
+            Partition<T, K, L> partition = window.getPartitions().get(key);
+            if (partition != null)
+                partition.evict();
+        }
+    }
+    
+    /**
+     * Remove all of a window's partitions so that its policies
+     * release state they hold, such as tuples held for late arrivals.
+     * Called on close once partition processing is disabled, as
+     * downstream oplets may already be closed, so any final
+     * processing caused by the removal is not submitted.
+     */
+    static <T, K, L extends List<T>> void removePartitions(Window<T, K, L> window) {
+        for (Partition<T, K, L> partition : window.getPartitions().values())
+            window.removePartition(partition);
+    }
 
 }
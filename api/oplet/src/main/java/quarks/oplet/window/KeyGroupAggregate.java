@@ -0,0 +1,259 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet.window;
+
+import static quarks.function.Functions.closeFunction;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import quarks.execution.services.ControlService;
+import quarks.function.BiConsumer;
+import quarks.function.BiFunction;
+import quarks.function.Function;
+import quarks.oplet.Checkpointable;
+import quarks.oplet.OpletContext;
+import quarks.oplet.core.Pipe;
+import quarks.oplet.window.mbeans.WindowMXBean;
+import quarks.window.Window;
+import quarks.window.Windows;
+
+/**
+ * Aggregate a window with its partitions sharded into key groups
+ * that are processed in parallel.
+ * <P>
+ * Each key group is a separate window holding the partitions
+ * whose keys hash to the group. Input tuples are queued to their key's
+ * group and each group's queue is drained by a single task at a time
+ * on the job's executor, so a group's window is only inserted into by
+ * one thread at a time while independent groups are processed concurrently.
+ * Tuple order is maintained within a key but not across keys.
+ * </P>
+ * <P>
+ * As with {@link Aggregate}, window contents are aggregated
+ * by an aggregator function passing the list of tuples in the
+ * partition and the partition key, and a non-null result is submitted to
+ * the sole output port. The outputs of all key groups are merged
+ * onto the output port, being submitted from the groups' threads.
+ * The aggregator function is called from each group's task, so calls
+ * for different key groups are concurrent unless the function
+ * synchronizes them, as a function wrapped with
+ * {@link quarks.function.Functions#synchronizedBiFunction(BiFunction)}
+ * does. Windows declared through the topology API wrap stateful
+ * aggregators this way, so their calls stay serialized across groups.
+ * </P>
+ * <P>
+ * Queues are unbounded, an {@link quarks.oplet.plumbing.Isolate}
+ * or {@link quarks.oplet.plumbing.PressureReliever} upstream
+ * bounds the tuples held when input arrives faster
+ * than it can be aggregated.
+ * </P>
+ *
+ * @param <T> Type of the input tuples.
+ * @param <U> Type of the output tuples.
+ * @param <K> Type of the partition key.
+ */
+public class KeyGroupAggregate<T,U,K> extends Pipe<T, U> implements WindowMXBean, Checkpointable {
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Maximum tuples a group's task inserts before
+     * yielding its thread to other groups.
+     */
+    private static final int DRAIN_LIMIT = 256;
+    
+    private final List<KeyGroup> groups;
+    private final Function<T, K> keyFunction;
+    private final BiFunction<List<T>,K, U> aggregator;
+    private Executor executor;
+    private String controlId;
+    private volatile boolean restoring;
+    private volatile boolean closed;
+    private List<K> evictOnStart;
+    
+    /**
+     * Aggregate with a key group for each window.
+     * @param windows Windows, one per key group, with the same key function and policies.
+     * @param aggregator Aggregator function.
+     */
+    public KeyGroupAggregate(List<? extends Window<T,K, ? extends List<T>>> windows, BiFunction<List<T>,K, U> aggregator){
+        if (windows.isEmpty())
+            throw new IllegalArgumentException("windows");
+        this.aggregator = aggregator;
+        this.keyFunction = windows.get(0).getKeyFunction();
+        BiConsumer<List<T>, K> partProcessor = (tuples, key) -> {
+            if (closed)
+                return;
+            U aggregateTuple = aggregator.apply(tuples, key);
+            if (aggregateTuple != null && !restoring)
+                submit(aggregateTuple);
+            };
+        groups = new ArrayList<>(windows.size());
+        for (Window<T,K, ? extends List<T>> window : windows) {
+            window.registerPartitionProcessor(partProcessor);
+            groups.add(new KeyGroup(window));
+        }
+    }
+    
+    @Override
+    public void initialize(OpletContext<T,U> context) {
+        super.initialize(context);
+        ScheduledExecutorService scheduler = context.getService(ScheduledExecutorService.class);
+        for (KeyGroup group : groups)
+            group.window.registerScheduledExecutorService(scheduler);
+        // Prefer an executor for immediate tasks, the
+        // scheduler is only required by runtimes without one.
+        executor = context.getService(ExecutorService.class);
+        if (executor == null)
+            executor = scheduler;
+        
+        ControlService cs = context.getService(ControlService.class);
+        if (cs != null)
+            controlId = cs.registerControl("window", context.uniquify(getClass().getSimpleName()), null, WindowMXBean.class, this);
+    }
+    
+    @Override
+    public void start() {
+        super.start();
+        if (evictOnStart != null) {
+            for (K key : evictOnStart)
+                Aggregate.evictRestored(group(key).window, Collections.singletonList(key));
+            evictOnStart = null;
+        }
+    }
+    
+    @Override
+    public void accept(T tuple) {
+        group(keyFunction.apply(tuple)).offer(tuple);
+    }
+    
+    private KeyGroup group(K key) {
+        // A null key forms a partition, as for a window.
+        int h = key == null ? 0 : key.hashCode();
+        h ^= h >>> 16;
+        return groups.get((h & Integer.MAX_VALUE) % groups.size());
+    }
+    
+    /**
+     * Get the number of key groups.
+     * @return number of key groups
+     */
+    public int getKeyGroupCount() {
+        return groups.size();
+    }
+
+    @Override
+    public int getPartitionCount() {
+        int count = 0;
+        for (KeyGroup group : groups)
+            count += group.window.getPartitions().size();
+        return count;
+    }
+
+    @Override
+    public long getEvictedPartitionCount() {
+        long count = 0;
+        for (KeyGroup group : groups)
+            count += group.window.getEvictedPartitionCount();
+        return count;
+    }
+
+    /**
+     * The state is the contents of each partition of every
+     * key group, as for {@link Aggregate#checkpoint()}.
+     */
+    @Override
+    public Serializable checkpoint() {
+        HashMap<K, Serializable> contents = new HashMap<>();
+        for (KeyGroup group : groups)
+            contents.putAll(Windows.checkpointContents(group.window));
+        return contents.isEmpty() ? null : contents;
+    }
+
+    @Override
+    public void restore(Serializable state) {
+        @SuppressWarnings("unchecked")
+        Map<K, Serializable> contents = (Map<K, Serializable>) state;
+        List<K> evict = new ArrayList<>();
+        restoring = true;
+        try {
+            for (Map.Entry<K, Serializable> entry : contents.entrySet()) {
+                if (Windows.restoreContents(group(entry.getKey()).window, entry.getKey(), entry.getValue()))
+                    evict.add(entry.getKey());
+            }
+            evictOnStart = evict;
+        } finally {
+            restoring = false;
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (controlId != null)
+            getOpletContext().getService(ControlService.class).unregister(controlId);
+        closed = true;
+        for (KeyGroup group : groups)
+            Aggregate.removePartitions(group.window);
+        closeFunction(aggregator);
+    }
+    
+    /**
+     * A key group's window and the queue of tuples to insert into it,
+     * drained by at most one task at a time.
+     */
+    private class KeyGroup implements Runnable {
+        private final Window<T,K, ? extends List<T>> window;
+        private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        
+        KeyGroup(Window<T,K, ? extends List<T>> window) {
+            this.window = window;
+        }
+        
+        void offer(T tuple) {
+            queue.offer(tuple);
+            if (scheduled.compareAndSet(false, true))
+                executor.execute(this);
+        }
+        
+        @Override
+        public void run() {
+            try {
+                T tuple;
+                for (int i = 0; i < DRAIN_LIMIT && (tuple = queue.poll()) != null; i++)
+                    window.insert(tuple);
+            } finally {
+                scheduled.set(false);
+                // Reschedule if tuples remain or were queued while
+                // the flag was set but after the queue was drained.
+                if (!queue.isEmpty() && scheduled.compareAndSet(false, true))
+                    executor.execute(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.oplet.window.mbeans;
+
+/**
+ * Management interface for an oplet that maintains a partitioned window.
+ * 
+ * @see quarks.oplet.window.Aggregate
+ * @see quarks.oplet.window.KeyGroupAggregate
+ * @see quarks.oplet.plumbing.PressureReliever
+ */
+public interface WindowMXBean {
+    
+    /**
+     * Get the number of partitions in the window.
+     * @return number of partitions
+     */
+    public int getPartitionCount();
+    
+    /**
+     * Get the number of partitions that have been evicted
+     * from the window due to its partition limits.
+     * @return number of evicted partitions
+     * 
+     * @see quarks.window.Window#getEvictedPartitionCount()
+     */
+    public long getEvictedPartitionCount();
+}
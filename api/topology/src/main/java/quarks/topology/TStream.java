@@ -23,6 +23,7 @@ import quarks.function.Consumer;
 import quarks.function.Function;
 import quarks.function.Predicate;
 import quarks.function.ToIntFunction;
+import quarks.function.ToLongFunction;
 import quarks.function.UnaryOperator;
 import quarks.oplet.core.Pipe;
 import quarks.oplet.core.Sink;
@@ -105,6 +106,10 @@ public interface TStream<T> extends TopologyElement {
      * </pre>
      * 
      * </P>
+     * <P>
+     * A stateful {@code mapper} is called while synchronized on {@code mapper}
+     * unless it implements {@link quarks.function.ThreadSafe ThreadSafe}.
+     * </P>
      * @param mapper
      *            Mapping logic to be executed against each tuple.
      * @return Stream that will contain tuples of type {@code U} mapped from this
@@ -400,6 +405,187 @@ public interface TStream<T> extends TopologyElement {
      */
     <K> TWindow<T, K> last(long time, TimeUnit unit, Function<T, K> keyFunction);
     
+    /**
+     * Declare a partitioned window that continually represents the last {@code count}
+     * tuples on this stream for each partition, with a bounded number of partitions.
+     * As {@link #last(int, Function)} except partitions are removed,
+     * discarding their tuples, so that a window over an ever changing
+     * set of keys does not grow without limit:
+     * <UL>
+     * <LI>If {@code maxPartitions} is greater than zero then when a tuple
+     * with a new key arrives and the window already has {@code maxPartitions}
+     * partitions, the least recently used partition is removed.</LI>
+     * <LI>If {@code idleTime} is greater than zero then partitions that
+     * have not seen a tuple for {@code idleTime} are removed.</LI>
+     * </UL>
+     * A removed partition starts empty if its key is seen again.
+     * 
+     * @param <K> Key type.
+     * 
+     * @param count Number of tuples to maintain in each partition.
+     * @param keyFunction Function that defines the key for each tuple.
+     * @param maxPartitions Maximum number of partitions, zero for no limit.
+     * @param idleTime Time after which a partition that has not seen a tuple is removed, zero for no limit.
+     * @param idleUnit Unit for {@code idleTime}.
+     * @return Window on this stream representing the last {@code count} tuples for each partition.
+     * 
+     * @see quarks.window.Windows#window(quarks.function.BiFunction, quarks.function.BiConsumer, quarks.function.Consumer, quarks.function.BiConsumer, Function, quarks.function.Supplier, int, long, TimeUnit)
+     */
+    <K> TWindow<T, K> last(int count, Function<T, K> keyFunction,
+            int maxPartitions, long idleTime, TimeUnit idleUnit);
+    
+    /**
+     * Declare a partitioned window that continually represents the last {@code time} seconds of 
+     * tuples on this stream for each partition, with a bounded number of partitions.
+     * As {@link #last(long, TimeUnit, Function)} with partitions
+     * removed as described by {@link #last(int, Function, int, long, TimeUnit)}.
+     * 
+     * @param <K> Key type.
+     * 
+     * @param time Time to retain a tuple in a partition.
+     * @param unit Unit for {@code time}.
+     * @param keyFunction Function that defines the key for each tuple.
+     * @param maxPartitions Maximum number of partitions, zero for no limit.
+     * @param idleTime Time after which a partition that has not seen a tuple is removed, zero for no limit.
+     * @param idleUnit Unit for {@code idleTime}.
+     * @return Partitioned window on this stream representing the last {@code time} of tuples.
+     */
+    <K> TWindow<T, K> last(long time, TimeUnit unit, Function<T, K> keyFunction,
+            int maxPartitions, long idleTime, TimeUnit idleUnit);
+    
+    /**
+     * Declare a partitioned window that continually represents the last {@code time} of 
+     * tuples on this stream for each partition by <em>event time</em>.
+     * As {@link #last(long, TimeUnit, Function)} except a tuple's time
+     * is obtained from the tuple itself using {@code timestampFunction}, rather than
+     * being the time the tuple arrives. Buffered or replayed tuples are
+     * thus windowed by the time they were measured, and are processed
+     * as fast as they arrive rather than in real time.
+     * <P>
+     * Each partition maintains a watermark, the latest event time seen for the
+     * partition less {@code allowedLateness}. Tuples are held back until
+     * the watermark reaches their event time and then enter the window in event
+     * time order, so tuples arriving out of order by up to {@code allowedLateness}
+     * are windowed correctly. Tuples that arrive later than that are discarded.
+     * If no tuple arrives for a partition for {@code allowedLateness}, by processing
+     * time, its watermark advances to the latest event time seen so that the
+     * tuples held back enter the window. Held back tuples also enter the window
+     * when the partition is removed. When the job is closed held back tuples
+     * and the final batch of a batch window are discarded without being processed.
+     * Since event time only advances with the arrival of tuples, tuples are not
+     * evicted from a partition while no tuples arrive for its key.
+     * </P>
+     * <P>
+     * For {@link TWindow#batch(quarks.function.BiFunction) batch} processing
+     * the window is divided into non-overlapping periods of {@code time}
+     * aligned to the epoch, a batch is processed once a tuple from a
+     * later period enters the window.
+     * </P>
+     * 
+     * @param <K> Key type.
+     * 
+     * @param time Time span of the window, by event time.
+     * @param unit Unit for {@code time} and {@code allowedLateness}.
+     * @param timestampFunction Function returning a tuple's event time in milliseconds since the epoch.
+     * @param allowedLateness How late a tuple may arrive relative to the latest
+     * event time seen for its partition and still be windowed.
+     * @param keyFunction Function that defines the key for each tuple.
+     * @return Partitioned window on this stream representing the last {@code time} of tuples by event time.
+     * 
+     * @see quarks.window.EventTimePolicy
+     */
+    <K> TWindow<T, K> last(long time, TimeUnit unit, ToLongFunction<T> timestampFunction,
+            long allowedLateness, Function<T, K> keyFunction);
+    
+    /**
+     * Declare a partitioned hopping window that represents the last {@code size}
+     * of tuples on this stream for each partition, processed every {@code advance}.
+     * <P>
+     * Unlike {@link #last(long, TimeUnit, Function)} a partition is not
+     * processed as each tuple arrives. Instead every {@code advance}, at times
+     * aligned to multiples of {@code advance} since the epoch, each non-empty
+     * partition is processed with the tuples that arrived in the preceding {@code size}.
+     * For example a five minute average every ten seconds is:
+     * </P>
+     * <pre><code>
+     * TStream&lt;Double&gt; averages = readings.hopping(5, TimeUnit.MINUTES, 10, TimeUnit.SECONDS, unpartitioned())
+     *     .aggregate(Aggregators.mean(v -&gt; v));
+     * </code></pre>
+     * <P>
+     * Tuples arriving in each period of {@code advance} form a pane that is
+     * shared by the overlapping windows. When aggregated using an
+     * {@link TWindow#aggregate(quarks.window.IncrementalAggregator) incremental aggregator}
+     * each tuple is added to the aggregation once and removed once,
+     * rather than the window being aggregated from all its tuples
+     * every {@code advance}.
+     * </P>
+     * <P>
+     * {@link TWindow#batch(quarks.function.BiFunction) Batch} processing
+     * is only supported for a {@link #tumbling(long, TimeUnit, Function) tumbling} window.
+     * </P>
+     * 
+     * @param <K> Key type.
+     * 
+     * @param size Size of the window.
+     * @param sizeUnit Unit for {@code size}.
+     * @param advance Period between processing of the window.
+     * @param advanceUnit Unit for {@code advance}.
+     * @param keyFunction Function that defines the key for each tuple.
+     * @return Partitioned hopping window on this stream.
+     * 
+     * @see quarks.window.HoppingPolicy
+     */
+    <K> TWindow<T, K> hopping(long size, TimeUnit sizeUnit, long advance, TimeUnit advanceUnit,
+            Function<T, K> keyFunction);
+    
+    /**
+     * Declare a partitioned tumbling window that represents
+     * non-overlapping periods of {@code size} of tuples on this stream for each partition.
+     * Each non-empty partition is processed once every {@code size}, at times
+     * aligned to multiples of {@code size} since the epoch, with the tuples
+     * that arrived in the preceding {@code size}. Each tuple is processed once.
+     * <BR>
+     * This is a {@link #hopping(long, TimeUnit, long, TimeUnit, Function) hopping}
+     * window whose advance is its size.
+     * 
+     * @param <K> Key type.
+     * 
+     * @param size Size of the window.
+     * @param unit Unit for {@code size}.
+     * @param keyFunction Function that defines the key for each tuple.
+     * @return Partitioned tumbling window on this stream.
+     */
+    <K> TWindow<T, K> tumbling(long size, TimeUnit unit, Function<T, K> keyFunction);
+    
+    /**
+     * Declare a partitioned session window on this stream.
+     * A partition's session starts with its first tuple and
+     * closes once no tuple has arrived for the partition for {@code gap}.
+     * When a session closes its partition is processed once with
+     * all the tuples of the session and the partition's state is released,
+     * the next tuple for the key starts a new session.
+     * <BR>
+     * For example the clicks of each user's visit, where a visit
+     * ends after thirty minutes of inactivity:
+     * <pre><code>
+     * TStream&lt;List&lt;Click&gt;&gt; visits = clicks.session(30, TimeUnit.MINUTES, click -&gt; click.getUser())
+     *     .batch((tuples, user) -&gt; new ArrayList&lt;&gt;(tuples));
+     * </code></pre>
+     * <P>
+     * {@link TWindow#aggregate(quarks.function.BiFunction) Aggregation}
+     * and {@link TWindow#batch(quarks.function.BiFunction) batch} processing
+     * are equivalent for a session window. Session windows cannot be joined.
+     * </P>
+     * 
+     * @param <K> Key type.
+     * 
+     * @param gap Inactivity gap that closes a session.
+     * @param unit Unit for {@code gap}.
+     * @param keyFunction Function that defines the key for each tuple.
+     * @return Partitioned session window on this stream.
+     */
+    <K> TWindow<T, K> session(long gap, TimeUnit unit, Function<T, K> keyFunction);
+    
     /**
      * Declare a stream that will contain all tuples from this stream and
      * {@code other}. A stream cannot be unioned with itself, in this case
@@ -447,6 +633,11 @@ public interface TStream<T> extends TopologyElement {
      * for the key {@code keyer.apply(tuple)}. Each tuple is
      * passed into {@code joiner} and the return value is submitted to the
      * returned stream. If call returns null then no tuple is submitted.
+     * <BR>
+     * {@code joiner} is passed an immutable snapshot of the
+     * partition's contents, published each time the window changes,
+     * so that joining does not block, nor is blocked by, tuples being
+     * inserted into {@code window}.
      * 
      * @param keyer Key function for this stream to match the window's key.
      * @param window Keyed window to join this stream with.
@@ -475,6 +666,11 @@ public interface TStream<T> extends TopologyElement {
      * passed into {@code joiner} and the return value is submitted to the
      * returned stream. If call returns null then no tuple is submitted.
      * </P>
+     * <P>
+     * The last tuple for each key is published as it arrives,
+     * so that joining does not block, nor is blocked by,
+     * tuples arriving on {@code lastStream}.
+     * </P>
      * @param keyer Key function for this stream
      * @param lastStream Stream to join with.
      * @param lastStreamKeyer Key function for {@code lastStream}
@@ -22,6 +22,7 @@ import java.util.List;
 
 import quarks.function.BiFunction;
 import quarks.function.Function;
+import quarks.window.IncrementalAggregator;
 
 /**
  * Partitioned window of tuples. Logically a window
@@ -62,6 +63,47 @@ public interface TWindow<T, K> extends TopologyElement {
      */
     <U> TStream<U> aggregate(BiFunction<List<T>, K, U> aggregator);
     
+    /**
+     * Declares a stream that is a continuous aggregation of
+     * partitions in this window, maintained incrementally.
+     * As a tuple is added to a partition it is passed to
+     * {@link IncrementalAggregator#add(Object, Object) aggregator.add()},
+     * and as a tuple is evicted from a partition it is passed to
+     * {@link IncrementalAggregator#remove(Object, Object) aggregator.remove()}.
+     * Each time the contents of a partition is updated
+     * the current aggregation {@code aggregator.result()}
+     * is present on the returned stream, unless it is {@code null}.
+     * <BR>
+     * Unlike {@link #aggregate(BiFunction)} the cost of an aggregation
+     * does not depend on the number of tuples in the partition.
+     * 
+     * @param aggregator
+     *            Incremental aggregation of a partition.
+     * @return A stream that contains the latest aggregations of partitions in this window.
+     * 
+     * @see quarks.window.Aggregators
+     */
+    <A, U> TStream<U> aggregate(IncrementalAggregator<T, A, U> aggregator);
+    
+    /**
+     * Declares a stream that is a continuous aggregation of
+     * partitions in this window, maintained incrementally,
+     * with the partition key combined into each result.
+     * As {@link #aggregate(IncrementalAggregator)} except
+     * the returned stream contains {@code resultFunction.apply(result, key)}
+     * for each non-null aggregation {@code result} of the partition for {@code key}.
+     * A stateful {@code resultFunction} is called while synchronized on {@code resultFunction}
+     * unless it implements {@link quarks.function.ThreadSafe ThreadSafe}.
+     * 
+     * @param aggregator
+     *            Incremental aggregation of a partition.
+     * @param resultFunction
+     *            Function combining the aggregation with the partition key.
+     * @return A stream that contains the latest aggregations of partitions in this window.
+     */
+    <A, U, R> TStream<R> aggregate(IncrementalAggregator<T, A, U> aggregator,
+            BiFunction<U, K, R> resultFunction);
+    
     /**
      * Declares a stream that represents a batched aggregation of
      * partitions in this window. Each time the contents of a partition equals 
@@ -81,6 +123,40 @@ public interface TWindow<T, K> extends TopologyElement {
      * @return A stream that contains the latest aggregations of partitions in this window.
      */
     <U> TStream<U> batch(BiFunction<List<T>, K, U> batcher);
+    
+    /**
+     * Process the partitions of this window in parallel, sharded into
+     * {@code count} key groups by the hash of their keys.
+     * <P>
+     * Each key group holds its own partitions and is processed by a single
+     * thread at a time, so that aggregations for keys in different groups
+     * are performed concurrently rather than on the thread that delivers
+     * the tuples. The results of all groups are merged onto the stream
+     * returned by {@link #aggregate(BiFunction) aggregate} or
+     * {@link #batch(BiFunction) batch}.
+     * Order of results is maintained for a key but not across keys.
+     * </P>
+     * <P>
+     * A stateful aggregation function is called while synchronized on
+     * the function unless it implements {@link quarks.function.ThreadSafe ThreadSafe},
+     * so its calls remain serialized across all key groups.
+     * Only the window maintenance for each group then runs in parallel.
+     * A stateless function, or one wrapped with
+     * {@link quarks.function.Functions#concurrentBiFunction(BiFunction) Functions.concurrentBiFunction},
+     * is called concurrently for different key groups.
+     * </P>
+     * <P>
+     * Applies to aggregations declared after this call. A limit on the number of
+     * partitions of this window is divided between the key groups.
+     * Key groups are not supported for windows that are joined.
+     * </P>
+     * 
+     * @param count Number of key groups, one processes all partitions
+     *      on the thread delivering tuples.
+     * @return This window.
+     */
+    TWindow<T, K> keyGroups(int count);
+    
     /**
      * Returns the key function used to map tuples to partitions.
      * @return Key function used to map tuples to partitions.
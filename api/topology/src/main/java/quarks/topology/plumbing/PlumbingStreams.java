@@ -18,10 +18,16 @@ under the License.
 */
 package quarks.topology.plumbing;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import quarks.function.BiFunction;
 import quarks.function.Function;
+import quarks.oplet.plumbing.BoundedIsolate;
 import quarks.oplet.plumbing.Isolate;
+import quarks.oplet.plumbing.OverflowPolicy;
 import quarks.oplet.plumbing.PressureReliever;
 import quarks.oplet.plumbing.UnorderedIsolate;
 import quarks.topology.TStream;
@@ -96,6 +102,11 @@ public class PlumbingStreams {
      * receives t2 80ms after it forwarded t1 and it will only delay another
      * 20ms (100ms - 80ms) before forwarding t2.  
      * Hence the overall delay between forwarding t1 and t2 remains 100ms.
+     * <p>
+     * To pace sources to slow downstream processing rather than to a
+     * fixed rate, isolate the downstream processing using a
+     * {@link #isolate(TStream, boolean, int) bounded isolate}, sources
+     * wait for or skip polls until the isolate has demand for tuples.
      * 
      * @param <T> tuple type
      * @param stream the stream to throttle
@@ -199,6 +210,30 @@ public class PlumbingStreams {
         return stream.pipe(new PressureReliever<>(count, keyFunction));
     }
     
+    /**
+     * Relieve pressure on upstream processing by discarding tuples,
+     * with a bounded number of keys.
+     * As {@link #pressureReliever(TStream, Function, int)} except that
+     * at most {@code maxPartitions} keys are maintained, removing the least
+     * recently seen key and discarding its tuples when the limit is reached,
+     * and keys that have not been seen for {@code idleTime} are discarded.
+     * A zero limit disables the corresponding limit.
+     * 
+     * @param <T> Tuple type.
+     * @param <K> Key type.
+     * @param stream Stream to be isolated from downstream processing.
+     * @param keyFunction Function defining the key of each tuple.
+     * @param count Maximum number of tuples to maintain for each key.
+     * @param maxPartitions Maximum number of keys maintained, zero for no limit.
+     * @param idleTime Time after which a key that has not been seen is discarded, zero for no limit.
+     * @param unit Unit for {@code idleTime}.
+     * @return Stream that is isolated from and thus relieves pressure on {@code stream}.
+     */
+    public static <T,K> TStream<T> pressureReliever(TStream<T> stream, Function<T,K> keyFunction, int count,
+            int maxPartitions, long idleTime, TimeUnit unit) {
+        return stream.pipe(new PressureReliever<>(count, keyFunction, maxPartitions, idleTime, unit));
+    }
+    
     /**
      * Isolate upstream processing from downstream processing.
      * <BR>
@@ -215,5 +250,157 @@ public class PlumbingStreams {
         return stream.pipe(
                 ordered ? new Isolate<T>() : new UnorderedIsolate<T>());
     }
+    
+    /**
+     * Isolate upstream processing from downstream processing
+     * using a bounded buffer.
+     * <BR>
+     * At most {@code capacity} tuples are held between upstream
+     * and downstream processing, when the buffer is full
+     * upstream processing is blocked until downstream processing
+     * has consumed a tuple. Thus memory use is bounded when
+     * downstream processing cannot keep up with the arrival rate
+     * of tuples on {@code stream}.
+     * <BR>
+     * The isolate's free capacity, and the demand of its downstream
+     * processing, is passed upstream as credits so that sources slow
+     * their intake rather than blocking when the buffer is full.
+     * <BR>
+     * When {@code ordered} is {@code true} tuples are passed
+     * through a fixed size ring buffer to a dedicated thread,
+     * its capacity is {@code capacity} rounded up to a power of two.
+     * 
+     * @param stream Stream to be isolated from downstream processing.
+     * @param ordered {@code true} to maintain arrival order on the returned stream,
+     * {@code false} to not guaranteed arrival order.
+     * @param capacity Maximum number of tuples held between upstream
+     * and downstream processing.
+     * @return Stream that is isolated from {@code stream}.
+     * 
+     * @see Isolate#Isolate(int)
+     * @see UnorderedIsolate#UnorderedIsolate(int)
+     */
+    public static <T> TStream<T> isolate(TStream<T> stream, boolean ordered, int capacity) {
+        return stream.pipe(
+                ordered ? new Isolate<T>(capacity) : new UnorderedIsolate<T>(capacity));
+    }
+    
+    /**
+     * Isolate upstream processing from downstream processing
+     * using a bounded buffer with a policy for overflow.
+     * <BR>
+     * Arrival order is maintained and at most {@code capacity} tuples
+     * are held on heap between upstream and downstream processing.
+     * When a tuple arrives and the buffer is full {@code policy} is applied,
+     * which may block upstream processing, drop the newest or oldest tuples,
+     * thin out a burst by sampling, or spill tuples to disk.
+     * Thus memory use is predictable under bursts of tuples
+     * without always pacing upstream processing to downstream processing.
+     * <BR>
+     * The number of tuples that overflowed, were dropped or were spilled
+     * is available through the isolate's
+     * {@link quarks.oplet.plumbing.mbeans.IsolateMXBean IsolateMXBean} control.
+     * 
+     * @param <T> Tuple type.
+     * @param stream Stream to be isolated from downstream processing.
+     * @param capacity Maximum number of tuples held on heap between upstream
+     * and downstream processing.
+     * @param policy Policy applied when the buffer is full.
+     * @return Stream that is isolated from {@code stream}.
+     * 
+     * @see BoundedIsolate
+     */
+    public static <T> TStream<T> isolate(TStream<T> stream, int capacity, OverflowPolicy<T> policy) {
+        return stream.pipe(new BoundedIsolate<T>(capacity, policy));
+    }
+    
+    /**
+     * Isolate upstream processing from downstream processing
+     * using a bounded buffer, handing off tuples to
+     * downstream processing in batches.
+     * <BR>
+     * Arrival order is maintained and upstream processing is
+     * blocked while {@code capacity} tuples are held, as with
+     * {@link #isolate(TStream, boolean, int) isolate(stream, true, capacity)}.
+     * Downstream processing receives up to {@code batchSize} tuples
+     * at a time, a batch is handed off when it is full or
+     * {@code batchTime} has elapsed since its first tuple.
+     * Batching amortizes the hand-off cost across tuples at
+     * the expense of latency, the effect is greatest when the
+     * downstream oplet is a {@link quarks.oplet.core.BatchingPipe BatchingPipe}
+     * or a connector that processes tuples in batches.
+     * 
+     * @param stream Stream to be isolated from downstream processing.
+     * @param capacity Maximum number of tuples held between upstream
+     * and downstream processing.
+     * @param batchSize Maximum number of tuples handed off at a time.
+     * @param batchTime Maximum time to wait to fill a batch.
+     * @param unit Unit of {@code batchTime}.
+     * @return Stream that is isolated from {@code stream}.
+     * 
+     * @see Isolate#Isolate(int, quarks.oplet.plumbing.Isolate.WaitStrategy, int, long, TimeUnit)
+     */
+    public static <T> TStream<T> isolate(TStream<T> stream, int capacity,
+            int batchSize, long batchTime, TimeUnit unit) {
+        return stream.pipe(new Isolate<T>(capacity, Isolate.WaitStrategy.PARK,
+                batchSize, batchTime, unit));
+    }
+
+    /**
+     * Perform processing of tuples in parallel across multiple channels,
+     * with all tuples with the same key processed by the same channel.
+     * <P>
+     * {@code stream} is split into {@code width} channels, each tuple is
+     * routed to a channel using the hash code of the key returned by
+     * {@code keyFunction}. Each channel is
+     * {@link #isolate(TStream, boolean) isolated} so that it is processed
+     * by its own thread, and {@code pipeline.apply(channelStream, channel)}
+     * is called once for each channel to declare the channel's processing.
+     * The resulting streams of all channels are merged into the returned stream.
+     * </P>
+     * <P>
+     * Tuple order is maintained for tuples with the same key,
+     * but is not guaranteed across keys.
+     * </P>
+     * Sample use:
+     * <pre>{@code
+     * TStream<Reading> readings = ...
+     * // Per-vehicle analytics using four threads
+     * TStream<Alert> alerts = PlumbingStreams.parallel(readings, 4,
+     *       r -> r.getVehicleId(),
+     *       (channelStream, channel) -> channelStream.last(10, r -> r.getVehicleId())
+     *                                     .aggregate((list, key) -> analyze(list)));
+     * }</pre>
+     * 
+     * @param <T> Tuple type.
+     * @param <U> Result tuple type.
+     * @param <K> Key type.
+     * @param stream Stream to process in parallel.
+     * @param width Number of parallel channels.
+     * @param keyFunction Function defining the key of each tuple.
+     * @param pipeline Function that declares the processing of a channel,
+     * passed the channel's stream and the channel index ({@code 0..width-1}).
+     * @return Stream containing the results of all channels.
+     */
+    public static <T,U,K> TStream<U> parallel(TStream<T> stream, int width,
+            Function<T,K> keyFunction, BiFunction<TStream<T>, Integer, TStream<U>> pipeline) {
+        if (width <= 0)
+            throw new IllegalArgumentException("width <= 0");
+        
+        if (width == 1)
+            return pipeline.apply(isolate(stream, true), 0);
+        
+        List<TStream<T>> channels = stream.split(width, t -> {
+            K key = keyFunction.apply(t);
+            int hash = key == null ? 0 : key.hashCode();
+            return (hash & Integer.MAX_VALUE) % width;
+        });
+        
+        List<TStream<U>> results = new ArrayList<>(width);
+        for (int i = 0; i < width; i++)
+            results.add(pipeline.apply(isolate(channels.get(i), true), i));
+        
+        return results.get(0).union(new HashSet<>(results.subList(1, width)));
+    }
 
 }
@@ -22,20 +22,32 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.junit.Ignore;
 import org.junit.Test;
 
 import quarks.function.Functions;
+import quarks.oplet.core.BatchingPipe;
+import quarks.oplet.plumbing.BoundedIsolate;
+import quarks.oplet.plumbing.OverflowPolicy;
 import quarks.topology.TStream;
 import quarks.topology.Topology;
 import quarks.topology.plumbing.PlumbingStreams;
 import quarks.topology.tester.Condition;
+import quarks.window.TupleSerializer;
 
 @Ignore
 public abstract class PlumbingTest extends TopologyAbstractTest {
@@ -218,4 +230,358 @@ public abstract class PlumbingTest extends TopologyAbstractTest {
         assertTrue(tcCount.valid());
         assertTrue(contents.valid());
     }
+    
+    @Test
+    public void testBoundedIsolateOrdered() throws Exception {
+
+        Topology topology = newTopology();
+        
+        String[] values = new String[100];
+        for (int i = 0; i < values.length; i++)
+            values[i] = Integer.toString(i);
+        
+        TStream<String> raw = topology.strings(values);
+        
+        // capacity smaller than the number of tuples so
+        // upstream processing has to wait for the slow downstream
+        TStream<String> isolated = PlumbingStreams.isolate(raw, true, 8);
+        isolated = PlumbingStreams.blockingDelay(isolated, 1, TimeUnit.MILLISECONDS);
+        
+        completeAndValidate("", topology, isolated, 10, values);
+    }
+    
+    /**
+     * Passes each batch through unchanged, recording the number of batches.
+     */
+    private static class CountBatches<T> extends BatchingPipe<T,T> {
+        private static final long serialVersionUID = 1L;
+        private final AtomicInteger batches;
+        
+        CountBatches(AtomicInteger batches) {
+            this.batches = batches;
+        }
+
+        @Override
+        public void acceptBatch(List<T> tuples) {
+            batches.incrementAndGet();
+            submitBatch(tuples);
+        }
+
+        @Override
+        public void close() throws Exception {
+        }
+    }
+    
+    @Test
+    public void testBatchingIsolate() throws Exception {
+
+        Topology topology = newTopology();
+        
+        String[] values = new String[100];
+        for (int i = 0; i < values.length; i++)
+            values[i] = Integer.toString(i);
+        
+        TStream<String> raw = topology.strings(values);
+        
+        AtomicInteger batches = new AtomicInteger();
+        TStream<String> isolated = PlumbingStreams.isolate(raw, 32, 10, 50, TimeUnit.MILLISECONDS);
+        isolated = isolated.pipe(new CountBatches<>(batches));
+        
+        completeAndValidate("", topology, isolated, 10, values);
+        
+        assertTrue(batches.get() >= values.length / 10);
+        assertTrue(batches.get() < values.length);
+    }
+    
+    @Test
+    public void testBoundedIsolateUnordered() throws Exception {
+
+        Topology topology = newTopology();
+        
+        String[] values = new String[100];
+        for (int i = 0; i < values.length; i++)
+            values[i] = Integer.toString(i);
+        
+        TStream<String> raw = topology.strings(values);
+        
+        TStream<String> isolated = PlumbingStreams.isolate(raw, false, 4);
+        
+        completeAndValidate(false, "", topology, isolated, 10, values);
+    }
+    
+    /**
+     * Pass tuples through an isolate of capacity 4.
+     * Completes once every tuple has been received or dropped.
+     * <BR>
+     * When {@code hold} is true the isolate's thread takes the first
+     * tuple before any other tuple is submitted, and is then held
+     * downstream until the isolate has held or dropped every other
+     * tuple, so that the isolate overflows deterministically.
+     */
+    private List<String> isolateOverflow(BoundedIsolate<String> isolate, boolean hold, String... values) throws Exception {
+        assertEquals(4, isolate.getCapacity());
+
+        Topology topology = newTopology();
+        
+        TStream<String> raw = topology.strings(values);
+        CountDownLatch firstReceived = new CountDownLatch(1);
+        if (hold) {
+            raw = raw.peek(tuple -> {
+                if (!values[0].equals(tuple))
+                    awaitUninterruptibly(firstReceived);
+            });
+        }
+        TStream<String> isolated = raw.pipe(isolate);
+        if (hold) {
+            isolated = isolated.peek(tuple -> {
+                if (!values[0].equals(tuple))
+                    return;
+                firstReceived.countDown();
+                final long deadline = System.currentTimeMillis() + 10_000;
+                while (isolate.getSize() + isolate.getDroppedCount() < values.length - 1
+                        && System.currentTimeMillis() < deadline)
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            });
+        }
+        
+        Condition<List<String>> contents = topology.getTester().streamContents(isolated);
+        Condition<Long> accounted = new Condition<Long>() {
+            @Override
+            public boolean valid() {
+                return getResult() == values.length;
+            }
+            @Override
+            public Long getResult() {
+                return isolate.getDroppedCount() + contents.getResult().size();
+            }
+        };
+        complete(topology, accounted);
+        
+        assertTrue("accounted:" + accounted.getResult(), accounted.valid());
+        assertEquals(0, isolate.getSize());
+        return contents.getResult();
+    }
+    
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static String[] values(int n) {
+        String[] values = new String[n];
+        for (int i = 0; i < values.length; i++)
+            values[i] = Integer.toString(i);
+        return values;
+    }
+    
+    @Test
+    public void testIsolateOverflowBlock() throws Exception {
+        String[] values = values(20);
+        BoundedIsolate<String> isolate = new BoundedIsolate<>(4, OverflowPolicy.block());
+        
+        assertEquals(Arrays.asList(values), isolateOverflow(isolate, false, values));
+        assertEquals(0, isolate.getDroppedCount());
+        // The source waits for credits rather than overflowing the isolate
+        assertEquals(0, isolate.getOverflowCount());
+    }
+    
+    @Test
+    public void testIsolateOverflowDropNewest() throws Exception {
+        String[] values = values(20);
+        BoundedIsolate<String> isolate = new BoundedIsolate<>(4, OverflowPolicy.dropNewest());
+        List<String> received = isolateOverflow(isolate, true, values);
+        
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4"), received);
+        assertEquals(15, isolate.getOverflowCount());
+        assertEquals(15, isolate.getDroppedCount());
+    }
+    
+    @Test
+    public void testIsolateOverflowDropOldest() throws Exception {
+        String[] values = values(20);
+        BoundedIsolate<String> isolate = new BoundedIsolate<>(4, OverflowPolicy.dropOldest());
+        List<String> received = isolateOverflow(isolate, true, values);
+        
+        assertEquals(Arrays.asList("0", "16", "17", "18", "19"), received);
+        assertEquals(15, isolate.getOverflowCount());
+        assertEquals(15, isolate.getDroppedCount());
+    }
+    
+    @Test
+    public void testIsolateOverflowSample() throws Exception {
+        String[] values = values(20);
+        BoundedIsolate<String> isolate = new BoundedIsolate<>(4, OverflowPolicy.sample(3));
+        assertEquals("SAMPLE(3)", isolate.getOverflowPolicy());
+        List<String> received = isolateOverflow(isolate, true, values);
+        
+        // Tuples 5 to 19 overflow, every third of them
+        // is kept replacing the oldest held tuple.
+        assertEquals(Arrays.asList("0", "10", "13", "16", "19"), received);
+        assertEquals(15, isolate.getOverflowCount());
+        assertEquals(15, isolate.getDroppedCount());
+    }
+    
+    /**
+     * Serializes strings using modified UTF-8.
+     */
+    private static class StringSerializer implements TupleSerializer<String> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void serialize(String tuple, DataOutput out) throws IOException {
+            out.writeUTF(tuple);
+        }
+
+        @Override
+        public String deserialize(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    }
+    
+    @Test
+    public void testIsolateOverflowSpill() throws Exception {
+        String[] values = values(20);
+        BoundedIsolate<String> isolate = new BoundedIsolate<>(4,
+                OverflowPolicy.spill(new StringSerializer(), null));
+        
+        assertEquals(Arrays.asList(values), isolateOverflow(isolate, true, values));
+        assertEquals(0, isolate.getDroppedCount());
+        assertEquals(15, isolate.getOverflowCount());
+        assertEquals(15, isolate.getSpilledCount());
+    }
+    
+    @Test
+    public void testEventsWaitForDemand() throws Exception {
+
+        Topology topology = newTopology();
+        
+        AtomicInteger submitted = new AtomicInteger();
+        TStream<Integer> events = topology.events(submitter -> {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    submitter.accept(i);
+                    submitted.incrementAndGet();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        });
+        
+        // Demand passes through the unbounded isolate so the
+        // external thread waits for the slow downstream processing.
+        TStream<Integer> isolated = PlumbingStreams.isolate(events, true);
+        isolated = PlumbingStreams.isolate(isolated, 4, OverflowPolicy.block());
+        TStream<Integer> slow = PlumbingStreams.blockingDelay(isolated, 10, TimeUnit.MILLISECONDS);
+        
+        AtomicInteger submittedAtTenth = new AtomicInteger();
+        slow = slow.peek(tuple -> {
+            if (tuple == 9)
+                submittedAtTenth.set(submitted.get());
+        });
+        
+        Condition<Long> count = topology.getTester().atLeastTupleCount(slow, 10);
+        complete(topology, count);
+        assertTrue(count.valid());
+        
+        // Without demand all tuples are queued by the unbounded isolate.
+        assertTrue("submitted:" + submittedAtTenth.get(), submittedAtTenth.get() < 50);
+    }
+    
+    @Test
+    public void testPressureRelieverIsolatesDemand() throws Exception {
+
+        Topology topology = newTopology();
+
+        AtomicInteger submitted = new AtomicInteger();
+        TStream<Integer> events = topology.events(submitter -> {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    submitter.accept(i);
+                    submitted.incrementAndGet();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        });
+
+        // The reliever discards tuples rather than passing the
+        // demand of the bounded isolate through to the source.
+        TStream<Integer> relieved = PlumbingStreams.pressureReliever(events, Functions.unpartitioned(), 5);
+        TStream<Integer> isolated = PlumbingStreams.isolate(relieved, 4, OverflowPolicy.block());
+        TStream<Integer> slow = PlumbingStreams.blockingDelay(isolated, 20, TimeUnit.MILLISECONDS);
+
+        AtomicInteger received = new AtomicInteger();
+        AtomicInteger submittedAtFifth = new AtomicInteger();
+        slow = slow.peek(tuple -> {
+            if (received.incrementAndGet() == 5)
+                submittedAtFifth.set(submitted.get());
+        });
+
+        Condition<Long> count = topology.getTester().atLeastTupleCount(slow, 5);
+        complete(topology, count);
+        assertTrue(count.valid());
+
+        // The external thread is not throttled by the slow downstream processing.
+        assertEquals(200, submittedAtFifth.get());
+    }
+
+    @Test
+    public void testPollSkippedWithoutDemand() throws Exception {
+        // Timing variances on shared machines can cause this test to fail
+        assumeTrue(!Boolean.getBoolean("quarks.build.ci"));
+
+        Topology topology = newTopology();
+        
+        AtomicInteger polled = new AtomicInteger();
+        TStream<Integer> raw = topology.poll(() -> polled.incrementAndGet(), 1, TimeUnit.MILLISECONDS);
+        
+        TStream<Integer> isolated = PlumbingStreams.isolate(raw, false, 4);
+        TStream<Integer> slow = PlumbingStreams.blockingDelay(isolated, 20, TimeUnit.MILLISECONDS);
+        
+        Condition<Long> count = topology.getTester().atLeastTupleCount(slow, 20);
+        complete(topology, count);
+        assertTrue(count.valid());
+        
+        // Polls are skipped while the isolate is full, rather than
+        // polling every millisecond and blocking the scheduler.
+        assertTrue("polled:" + polled.get(), polled.get() < 100);
+    }
+    
+    @Test
+    public void testParallel() throws Exception {
+
+        Topology topology = newTopology();
+        
+        Integer[] values = new Integer[300];
+        for (int i = 0; i < values.length; i++)
+            values[i] = i;
+        
+        TStream<Integer> raw = topology.of(values);
+        
+        // key is the value's last digit, each result records
+        // the key, value and channel
+        TStream<String> results = PlumbingStreams.parallel(raw, 3, v -> v % 10,
+                (channelStream, channel) -> channelStream.map(v -> (v % 10) + ":" + v + ":" + channel));
+        
+        Condition<Long> tc = topology.getTester().tupleCount(results, values.length);
+        Condition<List<String>> contents = topology.getTester().streamContents(results);
+        complete(topology, tc);
+        assertTrue("valid:" + tc.getResult(), tc.valid());
+        
+        // Each key is processed in order by a single channel
+        Map<String,Integer> lastValue = new HashMap<>();
+        Map<String,String> keyChannel = new HashMap<>();
+        for (String result : contents.getResult()) {
+            String[] parts = result.split(":");
+            int value = Integer.valueOf(parts[1]);
+            Integer last = lastValue.put(parts[0], value);
+            assertTrue(result, last == null || last < value);
+            String channel = keyChannel.put(parts[0], parts[2]);
+            assertTrue(result, channel == null || channel.equals(parts[2]));
+        }
+        assertEquals(10, lastValue.size());
+    }
 }
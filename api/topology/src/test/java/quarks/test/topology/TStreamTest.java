@@ -32,6 +32,7 @@ import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Executors;
@@ -43,6 +44,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import quarks.function.Function;
 import quarks.topology.TSink;
 import quarks.topology.TStream;
 import quarks.topology.TWindow;
@@ -709,13 +711,14 @@ public abstract class TStreamTest extends TopologyAbstractTest {
         });
         
         TWindow<Integer, Integer> window = intStream.last(10, tuple -> tuple % 10);
+        Set<Integer> joinedKeys = Collections.synchronizedSet(new HashSet<>());
         TStream<Integer> joinsHappened = lookupIntStream.join(tuple -> tuple % 10, window, (number, partitionContents) -> {
             assertTrue(partitionContents.size() == 10);
             for(Integer element : partitionContents)
                 assertTrue(number % 10 == element % 10);
             
             // Causes an error if two numbers map to the same partition, which shouldn't happen
-            partitionContents.clear();
+            assertTrue(joinedKeys.add(number % 10));
             return 0;
         });
     
@@ -723,6 +726,45 @@ public abstract class TStreamTest extends TopologyAbstractTest {
         complete(t, tc);      
     }
     
+    @Test
+    public void testJoinWithTimeWindow() throws Exception{
+        Topology t = newTopology();
+        
+        List<Integer> ints = new ArrayList<>();
+        for(int i = 0; i < 100; i++){
+            ints.add(i);
+        }
+        TStream<Integer> intStream = t.collection(ints);
+        
+        // Wait until the window is populated, and then submit tuples
+        TStream<Integer> lookupIntStream = t.source(() -> {
+            try {
+                Thread.sleep(500);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return ints.subList(0, 10);
+        });
+        
+        TWindow<Integer, Integer> window = intStream.last(10, TimeUnit.SECONDS, tuple -> tuple % 10);
+        TStream<Integer> joinsHappened = lookupIntStream.join(tuple -> tuple % 10, window, (number, partitionContents) -> {
+            // Joined contents are a snapshot and cannot modify the window
+            try {
+                partitionContents.clear();
+                return null;
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+            return partitionContents.size();
+        });
+    
+        Condition<Long> tc = t.getTester().tupleCount(joinsHappened, 10);
+        Condition<List<Integer>> contents = t.getTester().streamContents(joinsHappened,
+                10, 10, 10, 10, 10, 10, 10, 10, 10, 10);
+        complete(t, tc);
+        assertTrue(contents.getResult().toString(), contents.valid());
+    }
+    
     @Test
     public void testJoinLastWithKeyer() throws Exception{
         Topology t = newTopology();
@@ -753,6 +795,42 @@ public abstract class TStreamTest extends TopologyAbstractTest {
         complete(t, tc);      
     }
 
+    @Test
+    public void testJoinLastNullKey() throws Exception{
+        Topology t = newTopology();
+        
+        List<Integer> ints = new ArrayList<>();
+        for(int i = 0; i < 100; i++){
+            ints.add(i);
+        }
+        
+        TStream<Integer> intStream = t.collection(ints);
+        
+        // Wait until the window is populated, and then submit tuples
+        TStream<Integer> lookupIntStream = t.source(() -> {
+            try {
+                Thread.sleep(500);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return ints;
+        });
+        
+        // Even tuples have a null key and join the last even tuple.
+        Function<Integer, Integer> keyer = tuple -> tuple % 2 == 0 ? null : tuple;
+        TStream<Integer> joinsHappened = lookupIntStream.joinLast(keyer, intStream, keyer,
+                (a, b) -> a % 2 == 0 ? b : b - a);
+        
+        Integer[] expected = new Integer[100];
+        for(int i = 0; i < 100; i++){
+            expected[i] = i % 2 == 0 ? 98 : 0;
+        }
+        Condition<Long> tc = t.getTester().tupleCount(joinsHappened, 100);
+        Condition<List<Integer>> contents = t.getTester().streamContents(joinsHappened, expected);
+        complete(t, tc);
+        assertTrue(contents.getResult().toString(), contents.valid());
+    }
+
     private void waitForCompletion(ExecutorCompletionService<Boolean> completer, int numtasks) throws ExecutionException {
         int remainingTasks = numtasks;
         while (remainingTasks > 0) {
@@ -21,6 +21,7 @@ package quarks.test.topology;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 import static quarks.function.Functions.identity;
 import static quarks.function.Functions.unpartitioned;
@@ -40,6 +41,7 @@ import quarks.topology.TStream;
 import quarks.topology.TWindow;
 import quarks.topology.Topology;
 import quarks.topology.tester.Condition;
+import quarks.window.Aggregators;
 
 @Ignore
 public abstract class TWindowTest extends TopologyAbstractTest{
@@ -82,6 +84,70 @@ public abstract class TWindowTest extends TopologyAbstractTest{
         }
     }
     
+    @Test
+    public void testTumblingAndHoppingWindows() throws Exception{
+        Topology top = newTopology();
+        TStream<Integer> ints = top.poll(() -> {
+            return 1;
+        }, 10, TimeUnit.MILLISECONDS);
+        
+        TStream<Integer> tumbling = ints.tumbling(500, TimeUnit.MILLISECONDS, tuple -> 0)
+                .batch((tuples, key) -> tuples.size());
+        TWindow<Integer, Integer> window = ints.hopping(500, TimeUnit.MILLISECONDS,
+                250, TimeUnit.MILLISECONDS, tuple -> 0);
+        TStream<Double> hopping = window.aggregate(Aggregators.sum(tuple -> tuple));
+        try {
+            window.batch((tuples, key) -> tuples.size());
+            fail("Batches of hopping windows overlap");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        Condition<Long> tumblingCount = top.getTester().atLeastTupleCount(tumbling, 5);
+        Condition<Long> hoppingCount = top.getTester().atLeastTupleCount(hopping, 8);
+        Condition<List<Integer>> tumblingContents = top.getTester().streamContents(tumbling);
+        Condition<List<Double>> hoppingContents = top.getTester().streamContents(hopping);
+        complete(top, top.getTester().and(tumblingCount, hoppingCount));
+        
+        // The first window of each is partial.
+        List<Integer> sizes = tumblingContents.getResult();
+        for(Integer size : sizes.subList(1, sizes.size())){
+            assertTrue("Tumbling: " + sizes, size >= 40 && size <= 60);
+        }
+        List<Double> sums = hoppingContents.getResult();
+        for(Double sum : sums.subList(2, sums.size())){
+            assertTrue("Hopping: " + sums, sum >= 40 && sum <= 60);
+        }
+    }
+    
+    @Test
+    public void testSessionWindow() throws Exception {
+        Topology t = newTopology();
+        
+        TStream<Integer> integers = t.collection(Arrays.asList(1,2,3,4,5,6));
+        TWindow<Integer, Integer> window = integers.session(100, TimeUnit.MILLISECONDS,
+                tuple -> tuple % 2);
+        TStream<Integer> sums = window.aggregate((tuples, key) -> {
+            int sum = 0;
+            for(Integer tuple : tuples)
+                sum+=tuple;
+            return sum;
+        });
+        TStream<Double> incrementalSums = window.aggregate(Aggregators.sum(tuple -> tuple));
+        
+        // One result per session, in either order.
+        Condition<Long> tc = t.getTester().tupleCount(sums, 2);
+        Condition<Long> itc = t.getTester().tupleCount(incrementalSums, 2);
+        Condition<List<Integer>> contents = t.getTester().streamContents(sums);
+        Condition<List<Double>> incrementalContents = t.getTester().streamContents(incrementalSums);
+        complete(t, t.getTester().and(tc, itc));
+
+        assertTrue(tc.valid());
+        assertTrue(itc.valid());
+        assertEquals(new HashSet<>(Arrays.asList(9, 12)), new HashSet<>(contents.getResult()));
+        assertEquals(new HashSet<>(Arrays.asList(9.0, 12.0)), new HashSet<>(incrementalContents.getResult()));
+    }
+    
     @Test
     public void testKeyedWindowSum() throws Exception {
         Topology t = newTopology();
@@ -131,6 +197,135 @@ public abstract class TWindowTest extends TopologyAbstractTest{
         assertTrue(contents.valid());
     }
     
+    @Test
+    public void testIncrementalWindowSum() throws Exception {
+        Topology t = newTopology();
+        
+        TStream<Integer> integers = t.collection(Arrays.asList(1,2,3,4,5,6));
+        TWindow<Integer, Integer> window = integers.last(2, tuple -> tuple % 2);
+        TStream<Double> sums = window.aggregate(Aggregators.sum(tuple -> tuple));
+        TStream<String> keyed = window.aggregate(Aggregators.count(),
+                (count, key) -> key + ":" + count);
+
+        Condition<Long> tc = t.getTester().tupleCount(sums, 6);
+        Condition<List<Double>> contents = t.getTester().streamContents(sums,
+                1.0, 2.0, 4.0, 6.0, 8.0, 10.0);
+        Condition<List<String>> keyedContents = t.getTester().streamContents(keyed,
+                "1:1", "0:1", "1:2", "0:2", "1:2", "0:2");
+        complete(t, t.getTester().and(tc, keyedContents));
+
+        assertTrue(contents.valid());
+        assertTrue(keyedContents.valid());
+    }
+    
+    @Test
+    public void testKeyGroups() throws Exception {
+        Topology t = newTopology();
+
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 32; i++)
+            values.add(i);
+        TStream<Integer> integers = t.collection(values);
+        TWindow<Integer, Integer> window = integers.last(2, tuple -> tuple % 8);
+        assertSame(window, window.keyGroups(3));
+
+        // Sums depend on the tuples being inserted in order for each key
+        TStream<String> sums = window.aggregate((tuples, key) -> {
+            int sum = 0;
+            for(Integer tuple : tuples)
+                sum+=tuple;
+            return key + ":" + sum;
+        });
+        TStream<String> counts = window.aggregate(Aggregators.count(),
+                (count, key) -> key + ":" + count);
+
+        List<String> expectedSums = new ArrayList<>();
+        List<String> expectedCounts = new ArrayList<>();
+        for (int k = 0; k < 8; k++) {
+            expectedSums.add(k + ":" + k);
+            expectedSums.add(k + ":" + (2*k + 8));
+            expectedSums.add(k + ":" + (2*k + 24));
+            expectedSums.add(k + ":" + (2*k + 40));
+            expectedCounts.add(k + ":" + 1);
+            for (int i = 0; i < 3; i++)
+                expectedCounts.add(k + ":" + 2);
+        }
+
+        Condition<List<String>> contents = t.getTester().contentsUnordered(sums,
+                expectedSums.toArray(new String[0]));
+        Condition<List<String>> countContents = t.getTester().contentsUnordered(counts,
+                expectedCounts.toArray(new String[0]));
+        complete(t, t.getTester().and(contents, countContents));
+
+        assertTrue(contents.getResult().toString(), contents.valid());
+        assertTrue(countContents.getResult().toString(), countContents.valid());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKeyGroupsInvalid() throws Exception {
+        Topology t = newTopology();
+        t.strings("a").last(1, identity()).keyGroups(0);
+    }
+
+    @Test
+    public void testWindowMaxPartitions() throws Exception {
+        Topology t = newTopology();
+        
+        TStream<Integer> integers = t.collection(Arrays.asList(1,1,2,1,2,2));
+        TWindow<Integer, Integer> window = integers.last(10, identity(), 1, 0, TimeUnit.SECONDS);
+        TStream<Integer> sizes = window.aggregate((tuples, key) -> tuples.size());
+        TStream<Long> counts = window.aggregate(Aggregators.count());
+
+        Condition<Long> tc = t.getTester().tupleCount(counts, 6);
+        Condition<List<Integer>> contents = t.getTester().streamContents(sizes,
+                1, 2, 1, 1, 1, 2);
+        Condition<List<Long>> countContents = t.getTester().streamContents(counts,
+                1L, 2L, 1L, 1L, 1L, 2L);
+        complete(t, t.getTester().and(tc, contents));
+
+        assertTrue(contents.valid());
+        assertTrue(countContents.valid());
+    }
+    
+    @Test
+    public void testEventTimeWindow() throws Exception {
+        Topology t = newTopology();
+        
+        // Each tuple is its own event time in seconds,
+        // 2 arrives out of order, 6 arrives too late.
+        // 20 and 30 are held for late arrivals until
+        // no tuple has arrived for the allowed lateness.
+        TStream<Integer> integers = t.collection(Arrays.asList(1,3,2,8,12,6,20,30));
+        TWindow<Integer, Integer> window = integers.last(10, TimeUnit.SECONDS,
+                tuple -> tuple * 1000L, 1, unpartitioned());
+        TStream<Integer> sums = window.aggregate((tuples, key) -> {
+            int sum = 0;
+            for(Integer tuple : tuples)
+                sum+=tuple;
+            return sum;
+        });
+        TStream<Double> incrementalSums = window.aggregate(Aggregators.sum(tuple -> tuple));
+        TStream<Integer> batches = window.batch((tuples, key) -> {
+            int sum = 0;
+            for(Integer tuple : tuples)
+                sum+=tuple;
+            return sum;
+        });
+
+        Condition<Long> tc = t.getTester().tupleCount(sums, 7);
+        Condition<List<Integer>> contents = t.getTester().streamContents(sums,
+                1, 3, 6, 14, 23, 32, 30);
+        Condition<List<Double>> incrementalContents = t.getTester().streamContents(incrementalSums,
+                1.0, 3.0, 6.0, 14.0, 23.0, 32.0, 30.0);
+        // The final batch, 30, is discarded when the job is closed.
+        Condition<List<Integer>> batchContents = t.getTester().streamContents(batches, 14, 12, 20);
+        complete(t, t.getTester().and(tc, incrementalContents, batchContents));
+
+        assertTrue(contents.valid());
+        assertTrue(incrementalContents.valid());
+        assertTrue(batchContents.valid());
+    }
+    
     @Test
     public void testTimeWindowTimeDiff() throws Exception {
 		// Timing variances on shared machines can cause this test to fail
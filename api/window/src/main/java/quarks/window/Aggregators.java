@@ -0,0 +1,270 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.window;
+
+import java.util.ArrayDeque;
+
+import quarks.function.ToDoubleFunction;
+
+/**
+ * Built-in {@link IncrementalAggregator incremental aggregators}.
+ * <P>
+ * Numeric aggregators apply a function to each tuple to
+ * obtain the value that is aggregated. The cost of adding
+ * or removing a tuple is constant, except for {@link #min(ToDoubleFunction) min}
+ * and {@link #max(ToDoubleFunction) max} where it is amortized constant.
+ * </P>
+ */
+public class Aggregators {
+
+    /**
+     * Count of tuples in the partition.
+     * @return Aggregator counting tuples.
+     */
+    public static <T> IncrementalAggregator<T, ?, Long> count() {
+        return new IncrementalAggregator<T, long[], Long>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public long[] newAccumulator() {
+                return new long[1];
+            }
+
+            @Override
+            public void add(long[] accumulator, T tuple) {
+                accumulator[0]++;
+            }
+
+            @Override
+            public void remove(long[] accumulator, T tuple) {
+                accumulator[0]--;
+            }
+
+            @Override
+            public Long result(long[] accumulator) {
+                return accumulator[0];
+            }
+        };
+    }
+
+    /**
+     * Sum of values in the partition, zero for an empty partition.
+     * Compensated summation is used so that rounding errors
+     * do not accumulate as values are added and removed.
+     * @param value Function returning the value to sum for a tuple.
+     * @return Aggregator summing values.
+     */
+    public static <T> IncrementalAggregator<T, ?, Double> sum(ToDoubleFunction<T> value) {
+        return new IncrementalAggregator<T, Sum, Double>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Sum newAccumulator() {
+                return new Sum();
+            }
+
+            @Override
+            public void add(Sum accumulator, T tuple) {
+                accumulator.add(value.applyAsDouble(tuple));
+            }
+
+            @Override
+            public void remove(Sum accumulator, T tuple) {
+                accumulator.add(-value.applyAsDouble(tuple));
+            }
+
+            @Override
+            public Double result(Sum accumulator) {
+                return accumulator.sum + accumulator.compensation;
+            }
+        };
+    }
+
+    /**
+     * Arithmetic mean of values in the partition,
+     * {@code null} for an empty partition.
+     * @param value Function returning the value for a tuple.
+     * @return Aggregator calculating the mean.
+     */
+    public static <T> IncrementalAggregator<T, ?, Double> mean(ToDoubleFunction<T> value) {
+        return new MomentsAggregator<T>(value) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Double result(Moments accumulator) {
+                return accumulator.n == 0 ? null : accumulator.mean;
+            }
+        };
+    }
+
+    /**
+     * Sample variance of values in the partition,
+     * {@code null} if the partition contains less than two tuples.
+     * @param value Function returning the value for a tuple.
+     * @return Aggregator calculating the variance.
+     */
+    public static <T> IncrementalAggregator<T, ?, Double> variance(ToDoubleFunction<T> value) {
+        return new MomentsAggregator<T>(value) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Double result(Moments accumulator) {
+                if (accumulator.n < 2)
+                    return null;
+                return Math.max(0.0, accumulator.m2 / (accumulator.n - 1));
+            }
+        };
+    }
+
+    /**
+     * Minimum of values in the partition,
+     * {@code null} for an empty partition.
+     * @param value Function returning the value for a tuple.
+     * @return Aggregator calculating the minimum.
+     */
+    public static <T> IncrementalAggregator<T, ?, Double> min(ToDoubleFunction<T> value) {
+        return new ExtremeAggregator<T>(value, true);
+    }
+
+    /**
+     * Maximum of values in the partition,
+     * {@code null} for an empty partition.
+     * @param value Function returning the value for a tuple.
+     * @return Aggregator calculating the maximum.
+     */
+    public static <T> IncrementalAggregator<T, ?, Double> max(ToDoubleFunction<T> value) {
+        return new ExtremeAggregator<T>(value, false);
+    }
+
+    /**
+     * Kahan-Babuska compensated sum.
+     */
+    private static final class Sum {
+        double sum;
+        double compensation;
+
+        void add(double v) {
+            double t = sum + v;
+            if (Math.abs(sum) >= Math.abs(v))
+                compensation += (sum - t) + v;
+            else
+                compensation += (v - t) + sum;
+            sum = t;
+        }
+    }
+
+    /**
+     * Count, mean and sum of squared differences from the mean,
+     * maintained using Welford's algorithm and its inverse for removal.
+     */
+    private static final class Moments {
+        long n;
+        double mean;
+        double m2;
+    }
+
+    private static abstract class MomentsAggregator<T> implements IncrementalAggregator<T, Moments, Double> {
+        private static final long serialVersionUID = 1L;
+        private final ToDoubleFunction<T> value;
+
+        MomentsAggregator(ToDoubleFunction<T> value) {
+            this.value = value;
+        }
+
+        @Override
+        public Moments newAccumulator() {
+            return new Moments();
+        }
+
+        @Override
+        public void add(Moments m, T tuple) {
+            double v = value.applyAsDouble(tuple);
+            m.n++;
+            double delta = v - m.mean;
+            m.mean += delta / m.n;
+            m.m2 += delta * (v - m.mean);
+        }
+
+        @Override
+        public void remove(Moments m, T tuple) {
+            if (m.n <= 1) {
+                m.n = 0;
+                m.mean = 0;
+                m.m2 = 0;
+                return;
+            }
+            double v = value.applyAsDouble(tuple);
+            double delta = v - m.mean;
+            m.n--;
+            m.mean -= delta / m.n;
+            m.m2 -= delta * (v - m.mean);
+        }
+    }
+
+    /**
+     * Minimum or maximum maintained with a monotonic deque,
+     * relying on tuples being removed in the order they were added.
+     * Values are ordered by {@link Double#compare(double, double)},
+     * so {@code NaN} is greater than any other value.
+     */
+    private static final class ExtremeAggregator<T> implements IncrementalAggregator<T, ArrayDeque<Double>, Double> {
+        private static final long serialVersionUID = 1L;
+        private final ToDoubleFunction<T> value;
+        private final boolean min;
+
+        ExtremeAggregator(ToDoubleFunction<T> value, boolean min) {
+            this.value = value;
+            this.min = min;
+        }
+
+        @Override
+        public ArrayDeque<Double> newAccumulator() {
+            return new ArrayDeque<>();
+        }
+
+        /**
+         * Values that can no longer be the extreme are discarded,
+         * the head of the deque is the current extreme.
+         */
+        @Override
+        public void add(ArrayDeque<Double> candidates, T tuple) {
+            double v = value.applyAsDouble(tuple);
+            while (!candidates.isEmpty() && supersedes(v, candidates.peekLast()))
+                candidates.pollLast();
+            candidates.addLast(v);
+        }
+
+        @Override
+        public void remove(ArrayDeque<Double> candidates, T tuple) {
+            double v = value.applyAsDouble(tuple);
+            if (!candidates.isEmpty() && Double.compare(candidates.peekFirst(), v) == 0)
+                candidates.pollFirst();
+        }
+
+        @Override
+        public Double result(ArrayDeque<Double> candidates) {
+            return candidates.peekFirst();
+        }
+
+        private boolean supersedes(double v, double candidate) {
+            int c = Double.compare(v, candidate);
+            return min ? c < 0 : c > 0;
+        }
+    }
+}
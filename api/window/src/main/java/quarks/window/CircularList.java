@@ -0,0 +1,175 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.window;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A bounded list held in a circular array, for the contents
+ * of count based window partitions.
+ * <P>
+ * Appending a tuple, removing the oldest (first) tuple
+ * and positional access are constant time operations that
+ * do not allocate per-tuple. Removal of any other tuple
+ * shifts the following tuples. Storage grows as required
+ * up to the list's capacity, adding a tuple to a full list
+ * throws {@code IllegalStateException}.
+ * </P>
+ * <P>
+ * A window's contents policy is expected to make room
+ * before a tuple is inserted, for example
+ * {@link Policies#countContentsPolicy(int)} with
+ * {@link Policies#evictOldest()}.
+ * </P>
+ *
+ * @param <T> Type of tuples in the list
+ * 
+ * @see Policies#circularList(int)
+ */
+public class CircularList<T> extends AbstractList<T> implements RandomAccess {
+    
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private final int capacity;
+    private Object[] tuples;
+    
+    /**
+     * Index of the first (oldest) tuple.
+     */
+    private int head;
+    private int size;
+    
+    /**
+     * Create an empty list that holds up to {@code capacity} tuples.
+     * @param capacity Maximum number of tuples in the list.
+     */
+    public CircularList(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity: " + capacity);
+        this.capacity = capacity;
+        this.tuples = new Object[Math.min(capacity, INITIAL_CAPACITY)];
+    }
+    
+    /**
+     * Get the maximum number of tuples in the list.
+     * @return capacity of the list.
+     */
+    public int capacity() {
+        return capacity;
+    }
+    
+    @Override
+    public boolean add(T tuple) {
+        if (size == tuples.length) {
+            if (size == capacity)
+                throw new IllegalStateException("List full: " + capacity);
+            grow();
+        }
+        tuples[slot(size)] = tuple;
+        size++;
+        modCount++;
+        return true;
+    }
+    
+    @Override
+    public T get(int index) {
+        checkIndex(index);
+        return tuple(slot(index));
+    }
+    
+    @Override
+    public T set(int index, T tuple) {
+        checkIndex(index);
+        int slot = slot(index);
+        T previous = tuple(slot);
+        tuples[slot] = tuple;
+        return previous;
+    }
+    
+    @Override
+    public T remove(int index) {
+        checkIndex(index);
+        int slot = slot(index);
+        T tuple = tuple(slot);
+        if (index == 0) {
+            tuples[slot] = null;
+            head = slot(1);
+        } else {
+            // Shift any later tuples towards the head.
+            for (int i = index; i < size - 1; i++)
+                tuples[slot(i)] = tuples[slot(i + 1)];
+            tuples[slot(size - 1)] = null;
+        }
+        size--;
+        modCount++;
+        return tuple;
+    }
+    
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            tuples[slot(i)] = null;
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public Object[] toArray() {
+        Object[] array = new Object[size];
+        int first = Math.min(size, tuples.length - head);
+        System.arraycopy(tuples, head, array, 0, first);
+        System.arraycopy(tuples, 0, array, first, size - first);
+        return array;
+    }
+    
+    /**
+     * Double the storage, limited by the capacity,
+     * moving the first tuple to index zero.
+     */
+    private void grow() {
+        Object[] newTuples = new Object[(int) Math.min(capacity, tuples.length * 2L)];
+        int first = tuples.length - head;
+        System.arraycopy(tuples, head, newTuples, 0, first);
+        System.arraycopy(tuples, 0, newTuples, first, head);
+        tuples = newTuples;
+        head = 0;
+    }
+    
+    private int slot(int index) {
+        int slot = head + index;
+        return slot < tuples.length ? slot : slot - tuples.length;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private T tuple(int slot) {
+        return (T) tuples[slot];
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.window;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import quarks.function.BiConsumer;
+import quarks.function.BiFunction;
+import quarks.function.Consumer;
+import quarks.function.ToLongFunction;
+
+/**
+ * Insertion policy for event time windows.
+ * <P>
+ * Each tuple's event time, in milliseconds, is obtained using
+ * a timestamp function rather than the time it is inserted,
+ * so that buffered or replayed tuples are windowed by when they
+ * were measured, and are processed as fast as they arrive.
+ * </P>
+ * <P>
+ * Each partition tracks a <em>watermark</em>, the highest
+ * event time seen in the partition less the allowed lateness.
+ * Insertion of a tuple is deferred, in a lateness buffer, until
+ * the partition's watermark reaches its event time. Deferred tuples
+ * are then inserted into the partition's contents in event time order,
+ * so tuples that arrive out of order by up to the allowed lateness
+ * are windowed correctly. A tuple with an event time earlier
+ * than the watermark is late, it is discarded and
+ * counted by {@link #getLateTupleCount()}.
+ * </P>
+ * <P>
+ * As each tuple is inserted into the contents:
+ * <UL>
+ * <LI>For a sliding window tuples with an event time
+ * {@code time} or more before the inserted tuple are evicted,
+ * and the partition is processed.</LI>
+ * <LI>For a batch window, if the tuple's event time is
+ * in a later period of {@code time} (aligned to the epoch)
+ * than the current contents, then the contents are
+ * processed and evicted before the tuple is inserted.</LI>
+ * </UL>
+ * As event time only advances with tuples, tuples are not evicted
+ * from a partition while no tuples are inserted into it.
+ * If an idle timeout is set then once no tuple has been inserted
+ * into a partition for the idle timeout, by processing time,
+ * its watermark advances to the highest event time seen,
+ * releasing the tuples in its lateness buffer. The timeout
+ * is driven by the window's {@link Window#getTimerWheel() timer wheel}.
+ * The lateness buffer is also released when the partition is
+ * removed, using {@link #partitionRemoved()}, and for a batch
+ * window the final batch is then processed.
+ * This policy always returns {@code false} as it performs the
+ * insertion itself.
+ * </P>
+ * 
+ * @param <T> Tuple type.
+ * @param <K> Key type.
+ */
+public class EventTimePolicy<T, K> extends PartitionedState<K, EventTimePolicy.EventTimeState<T>>
+        implements BiFunction<Partition<T, K, InsertionTimeList<T>>, T, Boolean> {
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Watermark and lateness buffer for a partition.
+     */
+    static class EventTimeState<T> {
+        private final PriorityQueue<Timestamped<T>> buffer =
+                new PriorityQueue<>(11, new Comparator<Timestamped<T>>() {
+                    @Override
+                    public int compare(Timestamped<T> t1, Timestamped<T> t2) {
+                        if (t1.timestamp != t2.timestamp)
+                            return t1.timestamp < t2.timestamp ? -1 : 1;
+                        return t1.sequence < t2.sequence ? -1 : (t1.sequence == t2.sequence ? 0 : 1);
+                    }
+                });
+        private long maxTimestamp = Long.MIN_VALUE;
+        private long idleWatermark = Long.MIN_VALUE;
+        private long sequence;
+        private long batchStart = Long.MIN_VALUE;
+        private long lastInsert;
+        private boolean idleScheduled;
+        private boolean removed;
+    }
+    
+    private static class Timestamped<T> {
+        final long timestamp;
+        final long sequence;
+        final T tuple;
+        Timestamped(long timestamp, long sequence, T tuple) {
+            this.timestamp = timestamp;
+            this.sequence = sequence;
+            this.tuple = tuple;
+        }
+    }
+    
+    private final long timeMs;
+    private final long latenessMs;
+    private final ToLongFunction<T> timestampFunction;
+    private final boolean batch;
+    private final long idleTimeoutMs;
+    private final BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> inserted;
+    private final BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> evicted;
+    private final AtomicLong lateTuples = new AtomicLong();
+    
+    /**
+     * Event time policy.
+     * @param time Time span of the window.
+     * @param allowedLateness Time a tuple may arrive after tuples with later event times.
+     * @param unit Unit of {@code time} and {@code allowedLateness}.
+     * @param timestampFunction Function returning a tuple's event time in milliseconds.
+     * @param batch {@code true} for non-overlapping batches of {@code time},
+     * {@code false} for a window that slides with each tuple.
+     */
+    public EventTimePolicy(long time, long allowedLateness, TimeUnit unit,
+            ToLongFunction<T> timestampFunction, boolean batch) {
+        this(time, allowedLateness, unit, timestampFunction, batch, 0,
+                Policies.doNothing(), Policies.doNothing());
+    }
+    
+    /**
+     * Event time policy with actions for tuples inserted into
+     * and evicted from a partition's contents, for example
+     * to maintain an incremental aggregation.
+     * @param time Time span of the window.
+     * @param allowedLateness Time a tuple may arrive after tuples with later event times.
+     * @param unit Unit of {@code time} and {@code allowedLateness}.
+     * @param timestampFunction Function returning a tuple's event time in milliseconds.
+     * @param batch {@code true} for non-overlapping batches of {@code time},
+     * {@code false} for a window that slides with each tuple.
+     * @param inserted Called after a tuple is inserted into a partition's contents.
+     * @param evicted Called after a tuple is evicted from a partition's contents.
+     */
+    public EventTimePolicy(long time, long allowedLateness, TimeUnit unit,
+            ToLongFunction<T> timestampFunction, boolean batch,
+            BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> inserted,
+            BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> evicted) {
+        this(time, allowedLateness, unit, timestampFunction, batch, 0, inserted, evicted);
+    }
+    
+    /**
+     * Event time policy with an idle timeout and actions for tuples
+     * inserted into and evicted from a partition's contents.
+     * The window must have a {@link Window#registerScheduledExecutorService(java.util.concurrent.ScheduledExecutorService)
+     * scheduled executor service} if {@code idleTimeout} is not zero.
+     * @param time Time span of the window.
+     * @param allowedLateness Time a tuple may arrive after tuples with later event times.
+     * @param unit Unit of {@code time}, {@code allowedLateness} and {@code idleTimeout}.
+     * @param timestampFunction Function returning a tuple's event time in milliseconds.
+     * @param batch {@code true} for non-overlapping batches of {@code time},
+     * {@code false} for a window that slides with each tuple.
+     * @param idleTimeout Processing time without an inserted tuple after which
+     * a partition's lateness buffer is released, zero to only release
+     * the buffer as later tuples are inserted.
+     * @param inserted Called after a tuple is inserted into a partition's contents.
+     * @param evicted Called after a tuple is evicted from a partition's contents.
+     */
+    public EventTimePolicy(long time, long allowedLateness, TimeUnit unit,
+            ToLongFunction<T> timestampFunction, boolean batch, long idleTimeout,
+            BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> inserted,
+            BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> evicted) {
+        super(() -> new EventTimeState<T>());
+        if (time <= 0)
+            throw new IllegalArgumentException("time: " + time);
+        if (allowedLateness < 0)
+            throw new IllegalArgumentException("allowedLateness: " + allowedLateness);
+        if (idleTimeout < 0)
+            throw new IllegalArgumentException("idleTimeout: " + idleTimeout);
+        this.timeMs = unit.toMillis(time);
+        this.latenessMs = unit.toMillis(allowedLateness);
+        this.timestampFunction = timestampFunction;
+        this.batch = batch;
+        this.idleTimeoutMs = unit.toMillis(idleTimeout);
+        this.inserted = inserted;
+        this.evicted = evicted;
+    }
+    
+    /**
+     * Get the number of tuples discarded because they
+     * arrived after their partition's watermark.
+     * @return number of late tuples.
+     */
+    public long getLateTupleCount() {
+        return lateTuples.get();
+    }
+    
+    /**
+     * Partition removal listener that releases the lateness buffer
+     * of a removed partition, processing the final batch of a batch
+     * window, then discards the partition's watermark and buffer.
+     * Requires that the listener is called before the partition's
+     * contents are discarded.
+     * @return Partition removal listener.
+     * 
+     * @see Window#registerPartitionRemovalListener(Consumer)
+     */
+    public Consumer<Partition<T, K, InsertionTimeList<T>>> partitionRemoved() {
+        return partition -> {
+            EventTimeState<T> state = removeState(partition.getKey());
+            if (state == null)
+                return;
+            state.removed = true;
+            release(partition, state, Long.MAX_VALUE);
+            if (batch && !partition.getContents().isEmpty())
+                partition.process();
+        };
+    }
+
+    @Override
+    public Boolean apply(Partition<T, K, InsertionTimeList<T>> partition, T tuple) {
+        EventTimeState<T> state = getState(partition.getKey());
+        long timestamp = timestampFunction.applyAsLong(tuple);
+        if (timestamp < watermark(state)) {
+            lateTuples.incrementAndGet();
+            return false;
+        }
+        
+        state.buffer.add(new Timestamped<>(timestamp, state.sequence++, tuple));
+        if (timestamp > state.maxTimestamp)
+            state.maxTimestamp = timestamp;
+        
+        release(partition, state, watermark(state));
+        
+        if (idleTimeoutMs != 0 && !state.buffer.isEmpty()) {
+            state.lastInsert = System.nanoTime();
+            if (!state.idleScheduled) {
+                state.idleScheduled = true;
+                scheduleIdle(partition, state, idleTimeoutMs);
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Insert buffered tuples with event times at or before {@code watermark}
+     * into the partition's contents, in event time order.
+     */
+    private void release(Partition<T, K, InsertionTimeList<T>> partition, EventTimeState<T> state, long watermark) {
+        final InsertionTimeList<T> contents = partition.getContents();
+        while (!state.buffer.isEmpty() && state.buffer.peek().timestamp <= watermark) {
+            Timestamped<T> next = state.buffer.poll();
+            if (batch) {
+                long start = next.timestamp - floorMod(next.timestamp, timeMs);
+                if (start != state.batchStart && !contents.isEmpty()) {
+                    partition.process();
+                    contents.evictOlderThan(Long.MAX_VALUE, t -> evicted.accept(partition, t));
+                }
+                state.batchStart = start;
+                contents.add(next.tuple, next.timestamp);
+                inserted.accept(partition, next.tuple);
+            } else {
+                contents.add(next.tuple, next.timestamp);
+                inserted.accept(partition, next.tuple);
+                contents.evictOlderThan(next.timestamp - timeMs, t -> evicted.accept(partition, t));
+                partition.process();
+            }
+        }
+    }
+    
+    private void scheduleIdle(Partition<T, K, InsertionTimeList<T>> partition, EventTimeState<T> state, long delayMs) {
+        partition.getWindow().getTimerWheel().schedule(() -> idle(partition, state), delayMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Timer task for a partition with buffered tuples, advancing its
+     * watermark if no tuple has been inserted for the idle timeout,
+     * otherwise waiting for the remainder of the timeout.
+     */
+    private void idle(Partition<T, K, InsertionTimeList<T>> partition, EventTimeState<T> state) {
+        synchronized (partition) {
+            if (state.removed || partition.getWindow().getPartitions().get(partition.getKey()) != partition)
+                return;
+            long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - state.lastInsert);
+            if (idleMs < idleTimeoutMs) {
+                scheduleIdle(partition, state, idleTimeoutMs - idleMs);
+                return;
+            }
+            state.idleScheduled = false;
+            state.idleWatermark = state.maxTimestamp;
+            release(partition, state, watermark(state));
+        }
+    }
+    
+    private long watermark(EventTimeState<T> state) {
+        if (state.maxTimestamp == Long.MIN_VALUE)
+            return Long.MIN_VALUE;
+        return Math.max(state.maxTimestamp - latenessMs, state.idleWatermark);
+    }
+    
+    private static long floorMod(long x, long y) {
+        long mod = x % y;
+        return mod < 0 ? mod + y : mod;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.window;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import quarks.function.BiConsumer;
+import quarks.function.Consumer;
+
+/**
+ * Policies for hopping and tumbling time windows.
+ * <P>
+ * A hopping window of size {@code S} and advance {@code A} is processed
+ * once every {@code A}, at times aligned to multiples of {@code A} since
+ * the epoch. When processed at time {@code t} the partition is processed
+ * with the tuples inserted in the period {@code [t-S, t)}. A tumbling window
+ * is a hopping window whose advance equals its size, so each tuple is
+ * processed once.
+ * </P>
+ * <P>
+ * Tuples are only processed when a partition is processed, not as
+ * each tuple is inserted. The tuples inserted in each period of {@code A},
+ * a <em>pane</em>, are shared by all the windows that overlap it.
+ * With actions for tuples inserted into and evicted from the window,
+ * such as an {@link IncrementalAggregation}, each tuple is added
+ * once when its pane is first processed and removed once when
+ * its pane leaves the window, rather than the whole window being
+ * scanned each time it is processed.
+ * </P>
+ * <P>
+ * Processing is driven by the window's {@link Window#getTimerWheel() timer wheel},
+ * a partition is scheduled while it contains tuples. A partition whose
+ * window is empty is not processed. The window must use
+ * {@link Policies#insertionTimeList()} for its contents, with
+ * {@link #contentsPolicy()} and {@link #evictDeterminer()} as its
+ * contents policy and evict determiner.
+ * </P>
+ * 
+ * @param <T> Tuple type.
+ * @param <K> Key type.
+ */
+public class HoppingPolicy<T, K> extends PartitionedState<K, long[]> {
+    
+    private final long sizeMs;
+    private final long advanceMs;
+    private final BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> added;
+    private final BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> evicted;
+    
+    /**
+     * Hopping window policy.
+     * @param size Size of the window.
+     * @param advance Period between processing of the window.
+     * @param unit Unit of {@code size} and {@code advance}.
+     */
+    public HoppingPolicy(long size, long advance, TimeUnit unit) {
+        this(size, advance, unit, Policies.doNothing(), Policies.doNothing());
+    }
+    
+    /**
+     * Hopping window policy with actions for tuples entering
+     * and leaving the window.
+     * @param size Size of the window.
+     * @param advance Period between processing of the window.
+     * @param unit Unit of {@code size} and {@code advance}.
+     * @param added Called for each tuple, in insertion order, when
+     * the first window that contains it is processed.
+     * @param evicted Called for each tuple, in insertion order, when
+     * it is no longer in the window.
+     */
+    public HoppingPolicy(long size, long advance, TimeUnit unit,
+            BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> added,
+            BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> evicted) {
+        // Number of tuples at the head of the contents
+        // that have been passed to added, and the end
+        // of the last window processed.
+        super(() -> new long[] {0, Long.MIN_VALUE});
+        this.sizeMs = unit.toMillis(size);
+        this.advanceMs = unit.toMillis(advance);
+        if (sizeMs <= 0)
+            throw new IllegalArgumentException("size: " + size + " " + unit);
+        if (advanceMs <= 0)
+            throw new IllegalArgumentException("advance: " + advance + " " + unit);
+        this.added = added;
+        this.evicted = evicted;
+    }
+    
+    /**
+     * Contents policy that schedules processing of the partition
+     * at the end of the current period if the partition is empty.
+     * @return Contents policy.
+     */
+    public BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> contentsPolicy() {
+        return (partition, tuple) -> {
+            if (partition.getContents().isEmpty())
+                schedule(partition, System.currentTimeMillis());
+        };
+    }
+    
+    /**
+     * Evict determiner, called at the end of each period,
+     * that processes the partition's window and evicts
+     * tuples that are no longer in the window.
+     * @return Evict determiner.
+     */
+    public Consumer<Partition<T, K, InsertionTimeList<T>>> evictDeterminer() {
+        return partition -> {
+            long now = System.currentTimeMillis();
+            long end = now - floorMod(now, advanceMs);
+            
+            InsertionTimeList<T> tuples = partition.getContents();
+            long[] state = getState(partition.getKey());
+            if (end <= state[1]) {
+                // Window already processed.
+                schedule(partition, now);
+                return;
+            }
+            state[1] = end;
+            
+            // Tuples inserted after the end of this window,
+            // while this processing was due, are in the next pane.
+            int count = tuples.countBefore(end);
+            for (int i = (int) state[0]; i < count; i++)
+                added.accept(partition, tuples.get(i));
+            
+            int before = tuples.size();
+            tuples.evictOlderThan(end - sizeMs - 1, tuple -> evicted.accept(partition, tuple));
+            int evictedCount = before - tuples.size();
+            count -= evictedCount;
+            state[0] = count;
+            
+            if (count != 0) {
+                List<T> window = Collections.unmodifiableList(tuples.subList(0, count));
+                partition.getWindow().getPartitionProcessor().accept(window, partition.getKey());
+            }
+            
+            if (!tuples.isEmpty())
+                schedule(partition, now);
+        };
+    }
+    
+    /**
+     * Partition removal listener that discards the
+     * state of a removed partition.
+     * @return Partition removal listener.
+     * 
+     * @see Window#registerPartitionRemovalListener(Consumer)
+     */
+    public Consumer<Partition<T, K, InsertionTimeList<T>>> partitionRemoved() {
+        return partition -> removeState(partition.getKey());
+    }
+    
+    private void schedule(Partition<T, K, InsertionTimeList<T>> partition, long now) {
+        long delay = advanceMs - floorMod(now, advanceMs);
+        partition.getWindow().getTimerWheel().schedule(() -> partition.evict(), delay, TimeUnit.MILLISECONDS);
+    }
+    
+    private static long floorMod(long x, long y) {
+        long mod = x % y;
+        return mod < 0 ? mod + y : mod;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.window;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import quarks.function.BiConsumer;
+import quarks.function.Consumer;
+
+/**
+ * Maintains an {@link IncrementalAggregator} accumulator for each
+ * partition of a window. Provides the window policies that
+ * add and remove tuples from the accumulators as the
+ * partition contents change.
+ * <P>
+ * Policies from an instance must be used with a single window
+ * and all methods for a partition must be called while
+ * holding the partition's lock, as window policies are.
+ * </P>
+ *
+ * @param <T> Tuple type.
+ * @param <K> Key type.
+ * @param <A> Accumulator type.
+ * @param <U> Result type.
+ */
+public class IncrementalAggregation<T, K, A, U> extends PartitionedState<K, A> {
+
+    private final IncrementalAggregator<T, A, U> aggregator;
+
+    /**
+     * Maintain accumulators using {@code aggregator}.
+     * @param aggregator Aggregator maintaining each partition's accumulator.
+     */
+    public IncrementalAggregation(final IncrementalAggregator<T, A, U> aggregator) {
+        super(() -> aggregator.newAccumulator());
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * Get the current aggregation for a partition.
+     * @param key Partition key.
+     * @return Current aggregation for the partition.
+     */
+    public U result(K key) {
+        return aggregator.result(getState(key));
+    }
+
+    /**
+     * Action that adds a tuple to the partition's accumulator.
+     * @return Action adding a tuple.
+     * 
+     * @see EventTimePolicy
+     */
+    public <L extends List<T>> BiConsumer<Partition<T, K, L>, T> add() {
+        return (partition, tuple) -> aggregator.add(getState(partition.getKey()), tuple);
+    }
+
+    /**
+     * Action that removes a tuple from the partition's accumulator.
+     * @return Action removing a tuple.
+     * 
+     * @see EventTimePolicy
+     */
+    public <L extends List<T>> BiConsumer<Partition<T, K, L>, T> remove() {
+        return (partition, tuple) -> aggregator.remove(getState(partition.getKey()), tuple);
+    }
+
+    /**
+     * Trigger policy that adds the inserted tuple to
+     * the partition's accumulator and processes the partition.
+     * @return Trigger policy.
+     */
+    public <L extends List<T>> BiConsumer<Partition<T, K, L>, T> addAndProcess() {
+        return (partition, tuple) -> {
+            aggregator.add(getState(partition.getKey()), tuple);
+            partition.process();
+        };
+    }
+
+    /**
+     * Partition removal listener that discards the
+     * accumulator of a removed partition.
+     * @return Partition removal listener.
+     * 
+     * @see Window#registerPartitionRemovalListener(Consumer)
+     */
+    public <L extends List<T>> Consumer<Partition<T, K, L>> partitionRemoved() {
+        return partition -> removeState(partition.getKey());
+    }
+
+    /**
+     * Evict determiner that evicts the oldest tuple, removing it
+     * from the partition's accumulator.
+     * @return Evict determiner.
+     * 
+     * @see Policies#evictOldest()
+     */
+    public <L extends List<T>> Consumer<Partition<T, K, L>> evictOldest() {
+        return partition -> {
+            T tuple = partition.getContents().remove(0);
+            aggregator.remove(getState(partition.getKey()), tuple);
+        };
+    }
+
+    /**
+     * Evict determiner that evicts tuples older than {@code time}, removing
+     * them from the partition's accumulator, then processes the partition.
+     * @param time Time tuples are retained for.
+     * @param unit Unit of {@code time}.
+     * @return Evict determiner.
+     * 
+     * @see Policies#evictOlderWithProcess(long, TimeUnit)
+     */
+    public Consumer<Partition<T, K, InsertionTimeList<T>>> evictOlderWithProcess(long time, TimeUnit unit) {
+
+        long timeMs = TimeUnit.MILLISECONDS.convert(time, unit);
+
+        return (partition) -> {
+            InsertionTimeList<T> tuples = partition.getContents();
+            long evictTime = System.currentTimeMillis() - timeMs;
+
+            A accumulator = getState(partition.getKey());
+            tuples.evictOlderThan(evictTime, tuple -> aggregator.remove(accumulator, tuple));
+
+            partition.process();
+
+            if (!tuples.isEmpty()) {
+                partition.getWindow().getTimerWheel().schedule(
+                        () -> partition.evict(), tuples.nextEvictDelay(timeMs), TimeUnit.MILLISECONDS);
+            }
+        };
+    }
+}
@@ -0,0 +1,76 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.window;
+
+import java.io.Serializable;
+
+/**
+ * Aggregation of a window partition that is maintained incrementally
+ * as tuples are inserted into and evicted from the partition.
+ * <P>
+ * The aggregation state for each partition is held in a mutable
+ * accumulator created by {@link #newAccumulator()}. When a tuple is
+ * inserted into the partition {@link #add(Object, Object) add} is
+ * called and when a tuple is evicted {@link #remove(Object, Object) remove}
+ * is called, thus the cost of maintaining the aggregation is
+ * independent of the number of tuples in the partition.
+ * Tuples are removed in the order they were added.
+ * </P>
+ * <P>
+ * Calls for a partition are serialized, calls for different partitions
+ * may be concurrent, thus all state must be held in the accumulator.
+ * </P>
+ *
+ * @param <T> Tuple type.
+ * @param <A> Accumulator type.
+ * @param <U> Result type.
+ *
+ * @see Aggregators
+ */
+public interface IncrementalAggregator<T, A, U> extends Serializable {
+
+    /**
+     * Create the accumulator for an empty partition.
+     * @return New accumulator.
+     */
+    A newAccumulator();
+
+    /**
+     * Add a tuple inserted into the partition to its accumulator.
+     * @param accumulator Partition's accumulator.
+     * @param tuple Tuple inserted into the partition.
+     */
+    void add(A accumulator, T tuple);
+
+    /**
+     * Remove a tuple evicted from the partition from its accumulator.
+     * @param accumulator Partition's accumulator.
+     * @param tuple Tuple evicted from the partition,
+     * the oldest tuple added and not yet removed.
+     */
+    void remove(A accumulator, T tuple);
+
+    /**
+     * Get the current aggregation of the partition.
+     * @param accumulator Partition's accumulator.
+     * @return Current aggregation, or {@code null} if there is no
+     * aggregation (for example the partition is empty).
+     */
+    U result(A accumulator);
+}
@@ -17,28 +17,112 @@ specific language governing permissions and limitations
 under the License.
 */
 package quarks.window;
-import java.util.AbstractSequentialList;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.RandomAccess;
+
+import quarks.function.Consumer;
 
 /**
  * A window contents list that maintains insertion time.
+ * <P>
+ * Tuples and their insertion times are held in parallel
+ * circular arrays, insertion times as primitive {@code long} values,
+ * so that appending a tuple and evicting the oldest tuple are
+ * constant time operations without per-tuple allocation.
+ * Removal of any other tuple shifts the following tuples.
+ * </P>
+ * <P>
+ * A list created by {@link Policies#spillingInsertionTimeList(int, TupleSerializer, java.io.File)}
+ * holds only its most recent tuples on heap. Older tuples are serialized
+ * into memory-mapped, append-only segment files and deserialized
+ * as they are accessed. Spilled tuples can only be removed from
+ * the head of the list.
+ * </P>
  *
  * @param <T> Type of tuples in the list
  */
-public class InsertionTimeList<T> extends AbstractSequentialList<T> {
+public class InsertionTimeList<T> extends AbstractList<T> implements RandomAccess {
+    
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private Object[] tuples = new Object[INITIAL_CAPACITY];
+    private long[] times = new long[INITIAL_CAPACITY];
+    
+    /**
+     * Index of the oldest tuple.
+     */
+    private int head;
+    
+    /**
+     * Number of tuples on heap.
+     */
+    private int size;
     
-    private final LinkedList<T> tuples = new LinkedList<>();
-    private final LinkedList<Long> times = new LinkedList<>();
+    /**
+     * Older tuples when spilling, otherwise null.
+     */
+    private final SpillSegments<T> spill;
+    private final int heapCapacity;
+    
+    /**
+     * Create an empty list.
+     */
+    public InsertionTimeList() {
+        this(0, null);
+    }
+    
+    /**
+     * Create an empty list that holds up to {@code heapCapacity} of
+     * its most recent tuples on heap, older tuples are moved to {@code spill}.
+     */
+    InsertionTimeList(int heapCapacity, SpillSegments<T> spill) {
+        if (heapCapacity < 0)
+            throw new IllegalArgumentException("heapCapacity: " + heapCapacity);
+        this.heapCapacity = heapCapacity;
+        this.spill = spill;
+    }
     
     void evictOlderThan(long evictTime) {
-        while(!times.isEmpty() && times.getFirst() <= evictTime){
-            remove();
+        while (!isEmpty() && time(0) <= evictTime) {
+            if (spilled() != 0) {
+                spill.removeFirst(false);
+                modCount++;
+            }
+            else
+                removeHead();
         }
     }
     
+    void evictOlderThan(long evictTime, Consumer<T> evicted) {
+        while (!isEmpty() && time(0) <= evictTime) {
+            evicted.accept(removeHead());
+        }
+    }
+    
+    /**
+     * Number of tuples inserted before {@code time}, scanning
+     * back from the most recent tuple as typically only
+     * a few tuples are at or after {@code time}.
+     */
+    int countBefore(long time) {
+        int count = size();
+        while (count != 0 && time(count - 1) >= time)
+            count--;
+        return count;
+    }
+    
+    /**
+     * Time the most recent tuple was inserted.
+     */
+    long lastInsertTime() {
+        checkIndex(0);
+        return time(size() - 1);
+    }
+    
     long nextEvictDelay(long timeMs) {
-        long firstTupleTime = times.get(0);
+        checkIndex(0);
+        long firstTupleTime = time(0);
         long nextEvictTime = firstTupleTime + timeMs;
         
         long timeToNextEvict = nextEvictTime - System.currentTimeMillis();
@@ -47,88 +131,165 @@ public class InsertionTimeList<T> extends AbstractSequentialList<T> {
     }
     
     @Override
-    public ListIterator<T> listIterator(int index) {
-         return new TimedListIterator<>(tuples.listIterator(index), times.listIterator(index));
+    public boolean add(T tuple) {
+        add(tuple, System.currentTimeMillis());
+        return true;
+    }
+    
+    /**
+     * Append a tuple with an explicit time, such as its event time.
+     * Times are expected to be non-decreasing.
+     */
+    void add(T tuple, long time) {
+        if (size == tuples.length)
+            grow();
+        int tail = slot(size);
+        tuples[tail] = tuple;
+        times[tail] = time;
+        size++;
+        modCount++;
+        if (spill != null && size > heapCapacity) {
+            spill.append(tuple(head), times[head]);
+            removeHeapFirst();
+        }
+    }
+    
+    /**
+     * Copy of this list for a checkpoint, with the insertion
+     * time of each tuple. Spilled tuples are copied in their
+     * serialized form rather than being deserialized.
+     */
+    PartitionContents<T> checkpoint() {
+        ArrayList<T> heapTuples = new ArrayList<>(size);
+        long[] heapTimes = new long[size];
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            heapTuples.add(tuple(slot));
+            heapTimes[i] = times[slot];
+        }
+        return new PartitionContents<T>(heapTuples, heapTimes, spill);
     }
     
     @Override
-    public boolean add(T tuple) {
-        tuples.add(tuple);
-        times.add(System.currentTimeMillis());
-        return true;
+    public T get(int index) {
+        checkIndex(index);
+        int spilled = spilled();
+        if (index < spilled)
+            return spill.get(index);
+        return tuple(slot(index - spilled));
     }
+    
+    private long time(int index) {
+        int spilled = spilled();
+        if (index < spilled)
+            return spill.time(index);
+        return times[slot(index - spilled)];
+    }
+    
     @Override
-    public void clear() {
-        tuples.clear();
-        times.clear();
+    public T remove(int index) {
+        checkIndex(index);
+        if (index == 0)
+            return removeHead();
+        int spilled = spilled();
+        if (index < spilled)
+            throw new UnsupportedOperationException("Spilled tuples can only be removed from the head");
+        index -= spilled;
+        
+        int removed = slot(index);
+        T tuple = tuple(removed);
+        // Shift any later tuples towards the head.
+        for (int i = index; i < size - 1; i++) {
+            int to = slot(i);
+            int from = slot(i + 1);
+            tuples[to] = tuples[from];
+            times[to] = times[from];
+        }
+        tuples[slot(size - 1)] = null;
+        size--;
+        modCount++;
+        return tuple;
     }
     
-    private void remove() {
-        tuples.remove();
-        times.remove();
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            tuples[slot(i)] = null;
+        head = 0;
+        size = 0;
+        if (spill != null)
+            spill.clear();
+        modCount++;
     }
 
     @Override
     public int size() {
-         return tuples.size();
+         return spilled() + size;
     }
     
-    private static class TimedListIterator<T> implements ListIterator<T> {
-        
-        private final ListIterator<T> ti;
-        private final ListIterator<Long> iti;
-        
-        TimedListIterator(ListIterator<T> ti, ListIterator<Long> iti) {
-            this.ti = ti;
-            this.iti = iti;
-        }     
-
-        @Override
-        public void add(T tuple) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean hasNext() {
-            return ti.hasNext();
-        }
-
-        @Override
-        public boolean hasPrevious() {
-            return ti.hasPrevious();
-        }
-
-        @Override
-        public T next() {
-            iti.next();
-            return ti.next();
-        }
-
-        @Override
-        public int nextIndex() {
-            return ti.nextIndex();
-        }
-
-        @Override
-        public T previous() {
-            iti.previous();
-            return ti.previous();
-        }
-
-        @Override
-        public int previousIndex() {
-            return ti.previousIndex();
-        }
-
-        @Override
-        public void remove() {
-            ti.remove();
-            iti.remove();            
+    private int spilled() {
+        return spill == null ? 0 : spill.size();
+    }
+    
+    private T removeHead() {
+        if (spilled() != 0) {
+            modCount++;
+            return spill.removeFirst(true);
         }
-
-        @Override
-        public void set(T arg0) {
-            throw new UnsupportedOperationException();
-        }       
+        return removeHeapFirst();
+    }
+    
+    private T removeHeapFirst() {
+        T tuple = tuple(head);
+        tuples[head] = null;
+        head = (head + 1) % tuples.length;
+        size--;
+        modCount++;
+        return tuple;
+    }
+    
+    /**
+     * Double the capacity, moving the oldest tuple to index zero.
+     */
+    private void grow() {
+        int capacity = tuples.length * 2;
+        if (capacity < 0)
+            throw new OutOfMemoryError();
+        Object[] newTuples = new Object[capacity];
+        long[] newTimes = new long[capacity];
+        int first = tuples.length - head;
+        System.arraycopy(tuples, head, newTuples, 0, first);
+        System.arraycopy(tuples, 0, newTuples, first, head);
+        System.arraycopy(times, head, newTimes, 0, first);
+        System.arraycopy(times, 0, newTimes, first, head);
+        tuples = newTuples;
+        times = newTimes;
+        head = 0;
+    }
+    
+    private int slot(int index) {
+        int slot = head + index;
+        return slot < tuples.length ? slot : slot - tuples.length;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private T tuple(int slot) {
+        return (T) tuples[slot];
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+    
+    @Override
+    public Object[] toArray() {
+        int spilled = spilled();
+        Object[] array = new Object[spilled + size];
+        for (int i = 0; i < spilled; i++)
+            array[i] = spill.get(i);
+        for (int i = 0; i < size; i++)
+            array[spilled + i] = tuples[slot(i)];
+        return array;
     }
 }
@@ -0,0 +1,101 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.window;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checkpointed contents of a partition.
+ * <P>
+ * The insertion times of an {@link InsertionTimeList} are kept
+ * with its tuples, and its spilled tuples are kept in their
+ * serialized form with the serializer that wrote them.
+ * </P>
+ *
+ * @see Windows#checkpointContents(Window)
+ */
+class PartitionContents<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private final ArrayList<T> tuples;
+    
+    /**
+     * Insertion time of each tuple, null if times are not kept.
+     */
+    private final long[] times;
+    
+    /**
+     * Spilled records, older than {@code tuples}, or null.
+     */
+    private final byte[] spilled;
+    private final int spilledCount;
+    private final TupleSerializer<T> serializer;
+    
+    /**
+     * Contents of a list that does not keep insertion times.
+     */
+    PartitionContents(List<T> contents) {
+        this(new ArrayList<T>(contents), null, null);
+    }
+    
+    PartitionContents(ArrayList<T> tuples, long[] times, SpillSegments<T> spill) {
+        this.tuples = tuples;
+        this.times = times;
+        if (spill == null || spill.size() == 0) {
+            this.spilled = null;
+            this.spilledCount = 0;
+            this.serializer = null;
+        } else {
+            this.spilled = spill.copyRecords();
+            this.spilledCount = spill.size();
+            this.serializer = spill.getSerializer();
+        }
+    }
+    
+    /**
+     * True if the tuples were checkpointed with their insertion times.
+     */
+    boolean hasTimes() {
+        return times != null;
+    }
+    
+    /**
+     * Insert the tuples into {@code window} in their original
+     * order, with their insertion times when they were kept.
+     */
+    <K> void restore(Window<T, K, ? extends List<T>> window) {
+        if (spilled != null) {
+            long[] spilledTimes = new long[spilledCount];
+            List<T> spilledTuples = SpillSegments.readRecords(spilled, spilledCount, serializer, spilledTimes);
+            for (int i = 0; i < spilledCount; i++)
+                insert(window, spilledTuples.get(i), spilledTimes[i]);
+        }
+        for (int i = 0; i < tuples.size(); i++)
+            insert(window, tuples.get(i), times == null ? PartitionImpl.NOW : times[i]);
+    }
+    
+    private static <T, K> void insert(Window<T, K, ? extends List<T>> window, T tuple, long time) {
+        if (time != PartitionImpl.NOW && window instanceof WindowImpl)
+            ((WindowImpl<T, K, ? extends List<T>>) window).insert(tuple, time);
+        else
+            window.insert(tuple);
+    }
+}
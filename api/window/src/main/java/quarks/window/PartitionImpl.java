@@ -25,11 +25,29 @@ import quarks.function.Consumer;
 
 @SuppressWarnings("serial")
 class PartitionImpl<T, K, L extends List<T>> implements Partition<T, K, L> {
+    /**
+     * Time passed to {@link #insert(Object, long)} for
+     * a tuple inserted at the current time.
+     */
+    static final long NOW = Long.MIN_VALUE;
+    
     private final L tuples;
     private final List<T> unmodifiableTuples;
     private final Window<T, K, L> window;
     private final K key;
     
+    /**
+     * Time of the last insertion (System.nanoTime()),
+     * used to expire idle or least recently used partitions.
+     */
+    volatile long lastInsert;
+    
+    /**
+     * Set when the partition has been removed from its window.
+     * Guarded by the intrinsic lock of this partition.
+     */
+    boolean removed;
+    
     PartitionImpl(Window<T, K, L> window, L tuples, K key){
         this.window = window;
         this.tuples = tuples;
@@ -38,11 +56,23 @@ class PartitionImpl<T, K, L extends List<T>> implements Partition<T, K, L> {
     }
 
     @Override
-    public synchronized boolean insert(T tuple) {        
+    public boolean insert(T tuple) {
+        return insert(tuple, NOW);
+    }
+    
+    /**
+     * Insert a tuple, with its insertion time if the
+     * contents are an {@link InsertionTimeList}, such
+     * as when a checkpointed tuple is restored.
+     */
+    synchronized boolean insert(T tuple, long time) {
         
         if (getWindow().getInsertionPolicy().apply(this, tuple)) {
             getWindow().getContentsPolicy().accept(this, tuple);
-            this.tuples.add(tuple);
+            if (time != NOW && tuples instanceof InsertionTimeList)
+                ((InsertionTimeList<T>) tuples).add(tuple, time);
+            else
+                this.tuples.add(tuple);
             // Trigger
             getWindow().getTriggerPolicy().accept(this, tuple);
             return true;
@@ -53,6 +83,8 @@ class PartitionImpl<T, K, L extends List<T>> implements Partition<T, K, L> {
     
     @Override
     public synchronized void process() {
+        if (removed)
+            return;
         window.getPartitionProcessor().accept(unmodifiableTuples, key);
     }
 
@@ -73,6 +105,8 @@ class PartitionImpl<T, K, L extends List<T>> implements Partition<T, K, L> {
 
     @Override
     public synchronized void evict() {
+        if (removed)
+            return;
         Consumer<Partition<T, K, L>> evictDeterminer = window.getEvictDeterminer();
         evictDeterminer.accept(this);
     }
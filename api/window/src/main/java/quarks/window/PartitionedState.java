@@ -18,8 +18,8 @@ under the License.
 */
 package quarks.window;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import quarks.function.Supplier;
 
@@ -27,14 +27,26 @@ import quarks.function.Supplier;
  * Maintain partitioned state.
  * Abstract class that can be used to maintain state 
  * for each keyed partition in a {@link Window}.
+ * <P>
+ * States are held in a concurrent map so that partitions
+ * processed in parallel, such as those of different key groups,
+ * do not contend for it. Access to the state of a key is
+ * expected to be serialized by the key's partition.
+ * </P>
  *
  * @param <K> Key type.
  * @param <S> State type.
  */
 public abstract class PartitionedState<K, S> {
 
+    /**
+     * Key of the state for the null key, which
+     * a {@code ConcurrentHashMap} does not allow.
+     */
+    private static final Object NULL_KEY = new Object();
+
     private final Supplier<S> initialState;
-    private final Map<K, S> states = new HashMap<>();
+    private final ConcurrentMap<Object, S> states = new ConcurrentHashMap<>();
 
     /**
      * Construct with an initial state function.
@@ -53,10 +65,14 @@ public abstract class PartitionedState<K, S> {
      * @param key Partition key.
      * @return State for {@code key}.
      */
-    protected synchronized S getState(K key) {
-        S state = states.get(key);
-        if (state == null)
-            states.put(key, state = initialState.get());
+    protected S getState(K key) {
+        S state = states.get(mapKey(key));
+        if (state == null) {
+            S created = initialState.get();
+            state = states.putIfAbsent(mapKey(key), created);
+            if (state == null)
+                state = created;
+        }
         return state;
     }
     
@@ -66,15 +82,19 @@ public abstract class PartitionedState<K, S> {
      * @param state State for {@code key}
      * @return Previous state for {@code key}, will be null if no state was held.
      */
-    protected synchronized S setState(K key, S state) {
-        return states.put(key, state);
+    protected S setState(K key, S state) {
+        return states.put(mapKey(key), state);
     }
     /**
      * 
      * @param key Partition key.
      * @return Removed state for {@code key}, will be null if no state was held.
      */
-    protected synchronized S removeState(K key) {
-        return states.remove(key);
+    protected S removeState(K key) {
+        return states.remove(mapKey(key));
+    }
+    
+    private static Object mapKey(Object key) {
+        return key == null ? NULL_KEY : key;
     }
 }
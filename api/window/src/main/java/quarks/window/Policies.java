@@ -18,8 +18,8 @@ under the License.
 */
 package quarks.window;
 
+import java.io.File;
 import java.util.List;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import quarks.function.BiConsumer;
@@ -44,8 +44,7 @@ public class Policies {
     public static <T, K, L extends List<T>> BiConsumer<Partition<T, K, L>, T> scheduleEvictIfEmpty(long time, TimeUnit unit){
         return (partition, tuple) -> {          
             if(partition.getContents().isEmpty()){
-                ScheduledExecutorService ses = partition.getWindow().getScheduledExecutorService();
-                ses.schedule(() -> partition.evict(), time, unit);
+                partition.getWindow().getTimerWheel().schedule(() -> partition.evict(), time, unit);
             }
         };
     }
@@ -68,8 +67,7 @@ public class Policies {
             public void accept(Partition<T, K, L> partition, T tuple) {
                 if(first){
                     first = false;
-                    ScheduledExecutorService ses = partition.getWindow().getScheduledExecutorService();
-                    ses.schedule(() -> partition.evict(), time, unit);
+                    partition.getWindow().getTimerWheel().schedule(() -> partition.evict(), time, unit);
                 }    
             }
         };
@@ -88,7 +86,6 @@ public class Policies {
         long timeMs = TimeUnit.MILLISECONDS.convert(time, unit);
 
         return (partition) -> {
-            ScheduledExecutorService ses = partition.getWindow().getScheduledExecutorService();
             InsertionTimeList<T> tuples = partition.getContents();
             long evictTime = System.currentTimeMillis() - timeMs;
             
@@ -97,7 +94,41 @@ public class Policies {
             partition.process();
             
             if(!tuples.isEmpty()){
-                ses.schedule(() -> partition.evict(), tuples.nextEvictDelay(timeMs), TimeUnit.MILLISECONDS);
+                partition.getWindow().getTimerWheel().schedule(
+                        () -> partition.evict(), tuples.nextEvictDelay(timeMs), TimeUnit.MILLISECONDS);
+            }
+        };
+    }
+    
+    /**
+     * An eviction policy that closes a partition's session once no tuple has been
+     * inserted for the inactivity gap. A closed session is processed
+     * and its partition {@link Window#removePartition(Partition) removed} from the window,
+     * releasing its state. Otherwise the session's close is rescheduled for when
+     * the gap would expire after the most recent tuple.
+     * <BR>
+     * Used with {@link #scheduleEvictIfEmpty(long, TimeUnit)} for the same gap
+     * as the contents policy, so that a single eviction is pending for each
+     * open session regardless of how many tuples it has.
+     * @param gap The inactivity gap that closes a session.
+     * @param unit The units of time.
+     * @return The session eviction policy.
+     */ 
+    public static <T, K> Consumer<Partition<T, K, InsertionTimeList<T>> > closeSessionWithProcess(long gap, TimeUnit unit){
+        
+        long gapMs = TimeUnit.MILLISECONDS.convert(gap, unit);
+        return (partition) -> {
+            InsertionTimeList<T> tuples = partition.getContents();
+            if (tuples.isEmpty())
+                return;
+            
+            long idle = System.currentTimeMillis() - tuples.lastInsertTime();
+            if (idle >= gapMs) {
+                partition.process();
+                partition.getWindow().removePartition(partition);
+            } else {
+                partition.getWindow().getTimerWheel().schedule(
+                        () -> partition.evict(), gapMs - idle, TimeUnit.MILLISECONDS);
             }
         };
     }
@@ -113,13 +144,12 @@ public class Policies {
         
         long timeMs = TimeUnit.MILLISECONDS.convert(time, unit);
         return (partition) -> {
-            ScheduledExecutorService ses = partition.getWindow().getScheduledExecutorService();
             List<T> tuples = partition.getContents(); 
 
             partition.process();
             tuples.clear();
                         
-            ses.schedule(() -> partition.evict(), timeMs, TimeUnit.MILLISECONDS);       
+            partition.getWindow().getTimerWheel().schedule(() -> partition.evict(), timeMs, TimeUnit.MILLISECONDS);
         };
     }
     
@@ -204,4 +234,63 @@ public class Policies {
     public static <T> Supplier<InsertionTimeList<T>> insertionTimeList() {
         return () -> new InsertionTimeList<>();
     }
+    
+    /**
+     * Default maximum size of segment files for spilled tuples, one megabyte.
+     * A partition's first segment is a single page, following segments
+     * double in size up to the maximum.
+     */
+    public static final int DEFAULT_SPILL_SEGMENT_SIZE = 1024 * 1024;
+    
+    /**
+     * Returns a supplier of {@link InsertionTimeList} instances that hold
+     * the {@code heapCapacity} most recent tuples of each partition on heap
+     * and spill older tuples to memory-mapped segment files.
+     * <P>
+     * This allows long time windows over high rate streams without
+     * holding every tuple on the heap. Spilled tuples are serialized once
+     * when spilled and deserialized each time they are accessed, so
+     * processing of the window is unchanged but slower for the older part
+     * of a partition. Segment files are deleted as their tuples are evicted.
+     * </P>
+     * @param heapCapacity Number of the most recent tuples of each partition held on heap.
+     * @param serializer Serializer for spilled tuples.
+     * @param directory Directory for segment files, {@code null} for the
+     *      default temporary-file directory.
+     * @return Supplier of lists that spill older tuples.
+     */
+    public static <T> Supplier<InsertionTimeList<T>> spillingInsertionTimeList(int heapCapacity,
+            TupleSerializer<T> serializer, File directory) {
+        return spillingInsertionTimeList(heapCapacity, serializer, directory, DEFAULT_SPILL_SEGMENT_SIZE);
+    }
+    
+    /**
+     * Returns a supplier of {@link InsertionTimeList} instances that hold
+     * the {@code heapCapacity} most recent tuples of each partition on heap
+     * and spill older tuples to memory-mapped segment files of up to {@code segmentSize} bytes.
+     * @param heapCapacity Number of the most recent tuples of each partition held on heap.
+     * @param serializer Serializer for spilled tuples.
+     * @param directory Directory for segment files, {@code null} for the
+     *      default temporary-file directory.
+     * @param segmentSize Maximum size in bytes of each segment file,
+     *      a larger segment is used for a tuple that does not fit.
+     * @return Supplier of lists that spill older tuples.
+     * 
+     * @see #spillingInsertionTimeList(int, TupleSerializer, File)
+     */
+    public static <T> Supplier<InsertionTimeList<T>> spillingInsertionTimeList(int heapCapacity,
+            TupleSerializer<T> serializer, File directory, int segmentSize) {
+        return () -> new InsertionTimeList<>(heapCapacity,
+                new SpillSegments<>(serializer, directory, segmentSize));
+    }
+    
+    /**
+     * Returns a supplier of {@link CircularList} instances
+     * for the contents of count based partitions.
+     * @param count Maximum number of tuples in each partition.
+     * @return Supplier of lists that hold up to {@code count} tuples.
+     */
+    public static <T> Supplier<CircularList<T>> circularList(int count) {
+        return () -> new CircularList<>(count);
+    }
 }
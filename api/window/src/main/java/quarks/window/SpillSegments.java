@@ -0,0 +1,345 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.window;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Append-only store of serialized tuples and their insertion times
+ * in memory-mapped segment files, holding the oldest tuples of an
+ * {@link InsertionTimeList}.
+ * <P>
+ * Each record is the tuple's time, the length of its serialized
+ * form and the serialized tuple. Records are only removed from
+ * the head, a segment is released and its file deleted once all
+ * its records have been removed. The offset of every
+ * {@code INDEX_INTERVAL}th record of a segment is kept on heap
+ * for random access, and the last accessed record is remembered
+ * so that sequential access does not scan.
+ * </P>
+ * <P>
+ * The first segment is a single page, each following segment
+ * doubles in size up to the segment size, so that a window
+ * with many partitions that each spill a few tuples does not
+ * map a full segment per partition.
+ * </P>
+ * <P>
+ * Not thread-safe, access is synchronized by the owning partition.
+ * </P>
+ */
+class SpillSegments<T> {
+    
+    private static final int INDEX_INTERVAL = 64;
+    
+    /**
+     * Record header, time followed by the serialized length.
+     */
+    private static final int HEADER = 12;
+    
+    private static final int INITIAL_SEGMENT_SIZE = 4096;
+    
+    private final TupleSerializer<T> serializer;
+    private final File directory;
+    private final int segmentSize;
+    private int nextSegmentSize;
+    
+    private final List<Segment> segments = new ArrayList<>();
+    
+    /**
+     * Files of released segments that could not be deleted,
+     * such as while they are still mapped on some platforms.
+     * Deletion is retried on later releases and when cleared.
+     */
+    private final List<File> undeleted = new ArrayList<>();
+    
+    /**
+     * Sequence number of the oldest record.
+     */
+    private long headSeq;
+    
+    /**
+     * Sequence number of the next record appended.
+     */
+    private long tailSeq;
+    
+    private final Bytes bytes = new Bytes();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    
+    private Segment cursorSegment;
+    private long cursorSeq;
+    private int cursorOffset;
+    
+    SpillSegments(TupleSerializer<T> serializer, File directory, int segmentSize) {
+        if (segmentSize <= HEADER)
+            throw new IllegalArgumentException("segmentSize: " + segmentSize);
+        this.serializer = serializer;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.nextSegmentSize = Math.min(INITIAL_SEGMENT_SIZE, segmentSize);
+    }
+    
+    int size() {
+        return (int) (tailSeq - headSeq);
+    }
+    
+    void append(T tuple, long time) {
+        bytes.reset();
+        try {
+            serializer.serialize(tuple, out);
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        int length = bytes.size();
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.remaining() < HEADER + length) {
+            segment = new Segment(tailSeq, Math.max(nextSegmentSize, HEADER + length));
+            segments.add(segment);
+            nextSegmentSize = Math.min(nextSegmentSize * 2, segmentSize);
+        }
+        segment.append(time, bytes.buffer(), length);
+        tailSeq++;
+    }
+    
+    T get(int index) {
+        long seq = headSeq + index;
+        Segment segment = segment(seq);
+        int offset = offset(segment, seq);
+        byte[] data = new byte[segment.buffer.getInt(offset + 8)];
+        ByteBuffer record = segment.buffer.duplicate();
+        record.position(offset + HEADER);
+        record.get(data);
+        try {
+            return serializer.deserialize(new DataInputStream(new ByteArrayInputStream(data)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    long time(int index) {
+        long seq = headSeq + index;
+        Segment segment = segment(seq);
+        return segment.buffer.getLong(offset(segment, seq));
+    }
+    
+    /**
+     * Remove the oldest record.
+     * @param read True if the removed tuple is to be returned.
+     * @return The removed tuple if {@code read} is true, otherwise {@code null}.
+     */
+    T removeFirst(boolean read) {
+        T tuple = read ? get(0) : null;
+        headSeq++;
+        while (!segments.isEmpty()) {
+            Segment first = segments.get(0);
+            if (first.firstSeq + first.count > headSeq)
+                break;
+            release(first);
+        }
+        return tuple;
+    }
+    
+    /**
+     * Copy of the records in their serialized form, so that the
+     * tuples can be checkpointed without being deserialized.
+     * @see #readRecords(byte[], int, TupleSerializer, long[])
+     */
+    byte[] copyRecords() {
+        int length = 0;
+        for (Segment segment : segments)
+            length += segment.writeOffset - firstOffset(segment);
+        byte[] records = new byte[length];
+        int position = 0;
+        for (Segment segment : segments) {
+            int offset = firstOffset(segment);
+            ByteBuffer source = segment.buffer.duplicate();
+            source.position(offset);
+            source.get(records, position, segment.writeOffset - offset);
+            position += segment.writeOffset - offset;
+        }
+        return records;
+    }
+    
+    /**
+     * Offset of the oldest record of a segment that has not been removed.
+     */
+    private int firstOffset(Segment segment) {
+        return segment.contains(headSeq) ? offset(segment, headSeq) : 0;
+    }
+    
+    /**
+     * Read records copied by {@link #copyRecords()}.
+     * @param records Copied records.
+     * @param count Number of records.
+     * @param serializer Serializer the records were written with.
+     * @param times Set to the time of each record.
+     * @return Tuple of each record.
+     */
+    static <T> List<T> readRecords(byte[] records, int count,
+            TupleSerializer<T> serializer, long[] times) {
+        List<T> tuples = new ArrayList<>(count);
+        ByteBuffer buffer = ByteBuffer.wrap(records);
+        try {
+            for (int i = 0; i < count; i++) {
+                times[i] = buffer.getLong();
+                int length = buffer.getInt();
+                tuples.add(serializer.deserialize(new DataInputStream(
+                        new ByteArrayInputStream(records, buffer.position(), length))));
+                buffer.position(buffer.position() + length);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return tuples;
+    }
+    
+    TupleSerializer<T> getSerializer() {
+        return serializer;
+    }
+    
+    void clear() {
+        while (!segments.isEmpty())
+            release(segments.get(0));
+        headSeq = tailSeq;
+        nextSegmentSize = Math.min(INITIAL_SEGMENT_SIZE, segmentSize);
+        // Files that still cannot be deleted are left to the exit of the process.
+        for (File file : undeleted)
+            file.deleteOnExit();
+        undeleted.clear();
+    }
+    
+    private void release(Segment segment) {
+        segments.remove(segment);
+        if (segment == cursorSegment)
+            cursorSegment = null;
+        // The mapping itself is released when the buffer is collected,
+        // until then some platforms do not allow the file to be deleted.
+        for (Iterator<File> files = undeleted.iterator(); files.hasNext(); ) {
+            if (files.next().delete())
+                files.remove();
+        }
+        if (!segment.file.delete())
+            undeleted.add(segment.file);
+    }
+    
+    private Segment segment(long seq) {
+        if (cursorSegment != null && cursorSegment.contains(seq))
+            return cursorSegment;
+        for (Segment segment : segments) {
+            if (segment.contains(seq))
+                return segment;
+        }
+        throw new IndexOutOfBoundsException("Sequence: " + seq);
+    }
+    
+    /**
+     * Offset of a record, starting from the last accessed record
+     * when it is close before {@code seq}, otherwise from the
+     * nearest indexed record, skipping records by their length.
+     */
+    private int offset(Segment segment, long seq) {
+        long from;
+        int offset;
+        if (segment == cursorSegment && seq >= cursorSeq && seq - cursorSeq < INDEX_INTERVAL) {
+            from = cursorSeq;
+            offset = cursorOffset;
+        } else {
+            int indexed = (int) ((seq - segment.firstSeq) / INDEX_INTERVAL);
+            from = segment.firstSeq + (long) indexed * INDEX_INTERVAL;
+            offset = segment.index[indexed];
+        }
+        for (; from < seq; from++)
+            offset += HEADER + segment.buffer.getInt(offset + 8);
+        cursorSegment = segment;
+        cursorSeq = seq;
+        cursorOffset = offset;
+        return offset;
+    }
+    
+    private final class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final long firstSeq;
+        private int count;
+        private int writeOffset;
+        private int[] index = new int[16];
+        
+        Segment(long firstSeq, int size) {
+            this.firstSeq = firstSeq;
+            try {
+                // Not deleteOnExit(), which holds every file name created
+                // for the life of the process, files are deleted on release.
+                file = File.createTempFile("quarks-window", ".seg", directory);
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        
+        boolean contains(long seq) {
+            return seq >= firstSeq && seq < firstSeq + count;
+        }
+        
+        int remaining() {
+            return buffer.capacity() - writeOffset;
+        }
+        
+        void append(long time, byte[] data, int length) {
+            if (count % INDEX_INTERVAL == 0) {
+                int indexed = count / INDEX_INTERVAL;
+                if (indexed == index.length) {
+                    int[] newIndex = new int[index.length * 2];
+                    System.arraycopy(index, 0, newIndex, 0, index.length);
+                    index = newIndex;
+                }
+                index[indexed] = writeOffset;
+            }
+            buffer.putLong(writeOffset, time);
+            buffer.putInt(writeOffset + 8, length);
+            ByteBuffer record = buffer.duplicate();
+            record.position(writeOffset + HEADER);
+            record.put(data, 0, length);
+            writeOffset += HEADER + length;
+            count++;
+        }
+    }
+    
+    /**
+     * Serialization buffer exposing its array to avoid a copy.
+     */
+    private static final class Bytes extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.window;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel for window tasks, such as partition evictions.
+ * <P>
+ * Tasks are hashed by their deadline tick into a fixed number of buckets.
+ * Rather than scheduling a task with the {@code ScheduledExecutorService}
+ * for each deadline, the wheel schedules a single task that runs
+ * all the tasks that are due when it fires, so with many partitions
+ * evictions are batched by tick. A task runs no earlier than
+ * its delay and up to one tick later.
+ * </P>
+ * <P>
+ * The wheel only has a task scheduled with the executor
+ * while it has pending tasks.
+ * </P>
+ * 
+ * @see Window#getTimerWheel()
+ */
+public class TimerWheel {
+    
+    /**
+     * Default tick duration in milliseconds.
+     */
+    public static final long DEFAULT_TICK_MS = 10;
+    
+    /**
+     * Default number of buckets.
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+    
+    private static final class Entry {
+        final long tick;
+        final Runnable task;
+        Entry(long tick, Runnable task) {
+            this.tick = tick;
+            this.task = task;
+        }
+    }
+    
+    private final ScheduledExecutorService ses;
+    private final long tickNanos;
+    private final long start = System.nanoTime();
+    private final List<List<Entry>> buckets;
+    private final int mask;
+    
+    // Guarded by this.
+    private long processedTick;
+    private int pending;
+    private ScheduledFuture<?> future;
+    private long scheduledTick = Long.MAX_VALUE;
+    
+    /**
+     * Create a timer wheel with the default tick and size.
+     * @param ses Executor used to run due tasks.
+     */
+    public TimerWheel(ScheduledExecutorService ses) {
+        this(ses, DEFAULT_TICK_MS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+    
+    /**
+     * Create a timer wheel.
+     * @param ses Executor used to run due tasks.
+     * @param tick Duration of a tick, the resolution of the wheel.
+     * @param unit Unit of {@code tick}.
+     * @param wheelSize Number of buckets, rounded up to a power of two.
+     */
+    public TimerWheel(ScheduledExecutorService ses, long tick, TimeUnit unit, int wheelSize) {
+        if (tick <= 0)
+            throw new IllegalArgumentException("tick: " + tick);
+        if (wheelSize <= 0 || wheelSize > (1 << 30))
+            throw new IllegalArgumentException("wheelSize: " + wheelSize);
+        this.ses = ses;
+        this.tickNanos = unit.toNanos(tick);
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize)
+            size <<= 1;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            buckets.add(new ArrayList<Entry>());
+    }
+    
+    /**
+     * Run a task after a delay.
+     * @param task Task to run.
+     * @param delay Minimum delay before {@code task} is run.
+     * @param unit Unit of {@code delay}.
+     */
+    public void schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() - start + Math.max(0, unit.toNanos(delay));
+        long tick = (deadline + tickNanos - 1) / tickNanos;
+        synchronized (this) {
+            if (tick <= processedTick)
+                tick = processedTick + 1;
+            buckets.get((int) (tick & mask)).add(new Entry(tick, task));
+            pending++;
+            if (tick < scheduledTick)
+                scheduleTick(tick);
+        }
+    }
+    
+    /**
+     * Get the number of tasks waiting to run.
+     * @return number of pending tasks.
+     */
+    public synchronized int pending() {
+        return pending;
+    }
+    
+    private void scheduleTick(long tick) {
+        if (future != null)
+            future.cancel(false);
+        long delay = tick * tickNanos - (System.nanoTime() - start);
+        scheduledTick = tick;
+        future = ses.schedule(() -> expire(), Math.max(0, delay), TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Run all tasks that are due, then schedule
+     * the next tick that has a task due.
+     */
+    private void expire() {
+        List<Runnable> due = new ArrayList<>();
+        synchronized (this) {
+            future = null;
+            scheduledTick = Long.MAX_VALUE;
+            
+            long nowTick = (System.nanoTime() - start) / tickNanos;
+            if (nowTick > processedTick) {
+                if (nowTick - processedTick >= buckets.size()) {
+                    for (List<Entry> bucket : buckets)
+                        expire(bucket, nowTick, due);
+                } else {
+                    for (long tick = processedTick + 1; tick <= nowTick; tick++)
+                        expire(buckets.get((int) (tick & mask)), nowTick, due);
+                }
+                processedTick = nowTick;
+            }
+            if (pending != 0)
+                scheduleTick(nextTick());
+        }
+        
+        RuntimeException failure = null;
+        for (Runnable task : due) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+    
+    private void expire(List<Entry> bucket, long nowTick, List<Runnable> due) {
+        for (int i = 0; i < bucket.size();) {
+            Entry entry = bucket.get(i);
+            if (entry.tick <= nowTick) {
+                due.add(entry.task);
+                // Order within a bucket is not significant.
+                int last = bucket.size() - 1;
+                bucket.set(i, bucket.get(last));
+                bucket.remove(last);
+                pending--;
+            } else {
+                i++;
+            }
+        }
+    }
+    
+    /**
+     * Earliest tick with a pending task, scanning
+     * forward one revolution from the processed tick.
+     */
+    private long nextTick() {
+        long earliest = Long.MAX_VALUE;
+        for (long tick = processedTick + 1; tick <= processedTick + buckets.size(); tick++) {
+            for (Entry entry : buckets.get((int) (tick & mask))) {
+                if (entry.tick == tick)
+                    return tick;
+                earliest = Math.min(earliest, entry.tick);
+            }
+        }
+        return earliest;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.window;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Serializer for tuples held outside of the heap,
+ * such as the older tuples of a window partition
+ * that are spilled to a memory-mapped segment file.
+ *
+ * @param <T> Tuple type.
+ * 
+ * @see Policies#spillingInsertionTimeList(int, TupleSerializer, java.io.File)
+ */
+public interface TupleSerializer<T> extends Serializable {
+    
+    /**
+     * Write {@code tuple} to {@code out}.
+     * @param tuple Tuple to serialize.
+     * @param out Output the tuple is written to.
+     * @throws IOException Error writing the tuple.
+     */
+    void serialize(T tuple, DataOutput out) throws IOException;
+    
+    /**
+     * Read a tuple written by {@link #serialize(Object, DataOutput)}.
+     * @param in Input the tuple is read from.
+     * @return Tuple read from {@code in}.
+     * @throws IOException Error reading the tuple.
+     */
+    T deserialize(DataInput in) throws IOException;
+}
@@ -21,11 +21,13 @@ package quarks.window;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import quarks.function.BiConsumer;
 import quarks.function.BiFunction;
 import quarks.function.Consumer;
 import quarks.function.Function;
+import quarks.function.Supplier;
 
 
 /**
@@ -38,6 +40,7 @@ import quarks.function.Function;
  * from tuples using a key function. Each tuple is
  * inserted into a partition containing all tuples
  * with the same key (using {@code equals()}).
+ * A key function must not return {@code null}.
  * Each partition independently maintains the subset of
  * tuples defined by the windows policies.
  * <BR>
@@ -132,6 +135,17 @@ public interface Window<T, K, L extends List<T>>{
      */
     ScheduledExecutorService getScheduledExecutorService();
     
+    /**
+     * Returns the timer wheel used to schedule this window's
+     * time based actions, such as partition evictions.
+     * The timer wheel is created on first use and runs
+     * its tasks using the window's
+     * {@link #getScheduledExecutorService() scheduled executor service}.
+     * 
+     * @return Timer wheel for this window.
+     */
+    TimerWheel getTimerWheel();
+    
     /**
      * Returns the window's eviction determiner.
      * The evict determiner is responsible for
@@ -159,14 +173,70 @@ public interface Window<T, K, L extends List<T>>{
     Function<T, K> getKeyFunction();
 
     /**
-     * Retrieves the partitions in the window. The map of partitions
-     * is stable when synchronizing on the intrinsic lock of the map,
-     * for example:
+     * Register a listener that is called when a partition is
+     * removed from this window due to the window's partition limits
+     * or by {@link #removePartition(Partition)}.
+     * The listener is called with the partition's intrinsic lock held,
+     * before its contents are discarded and before
+     * a new partition for the same key can be created. This allows
+     * any state maintained by policies for the partition's key
+     * to be released, for example by processing the partition
+     * a final time, and then discarded.
+     * 
+     * @param listener Listener called with the removed partition.
+     * 
+     * @see Windows#window(BiFunction, BiConsumer, Consumer, BiConsumer, Function, Supplier, int, long, TimeUnit)
+     */
+    void registerPartitionRemovalListener(Consumer<Partition<T, K, L>> listener);
+    
+    /**
+     * Returns the partition removal listener associated with the window.
+     * 
+     * @return partition removal listener, {@code null} if none has been registered.
+     */
+    Consumer<Partition<T, K, L>> getPartitionRemovalListener();
+    
+    /**
+     * Returns the number of partitions that have been removed
+     * from this window due to its partition limits.
+     * 
+     * @return Number of partitions evicted from this window.
+     */
+    long getEvictedPartitionCount();
+    
+    /**
+     * Remove a partition from this window, discarding its contents.
+     * Allows a policy to release a partition that has completed,
+     * for example a session that has closed. The next tuple
+     * inserted with the partition's key creates a new partition.
+     * <BR>
+     * The {@link #registerPartitionRemovalListener(Consumer) removal listener}
+     * is called. Removed partitions are not included in
+     * {@link #getEvictedPartitionCount()}.
+     * 
+     * @param partition Partition to remove.
+     * @return {@code true} if the partition was removed,
+     * {@code false} if it had already been removed or is not
+     * a partition of this window.
+     */
+    boolean removePartition(Partition<T, K, L> partition);
+
+    /**
+     * Retrieves the partitions in the window. The returned map is
+     * an unmodifiable view that is safe to use concurrently with
+     * tuples being inserted into the window, lookups do not block
+     * insertion. Iteration is weakly consistent, it reflects the
+     * partitions at some point at or since the creation of the iterator.
+     * <br>
+     * The contents of a partition is stable when synchronizing on the
+     * intrinsic lock of the partition, for example:
      * <br>
      * <pre><code>
-     * Map&ltK, Partitions<U, K, ?>> partitions = window.getPartitions();
-     * synchronized(partitions){
-     *  // operations with partition
+     * Partition&lt;U, K, ?&gt; partition = window.getPartitions().get(key);
+     * if (partition != null) {
+     *   synchronized(partition){
+     *     // operations with partition contents
+     *   }
      * }
      * </code></pre>
      * 
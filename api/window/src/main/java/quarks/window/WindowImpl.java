@@ -18,10 +18,22 @@ under the License.
 */
 package quarks.window;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import quarks.function.BiConsumer;
 import quarks.function.BiFunction;
@@ -36,40 +48,251 @@ class WindowImpl<T, K, L extends List<T>> implements Window<T, K, L> {
     private final Consumer<Partition<T, K, L> > evictDeterminer;
     private final BiConsumer<Partition<T, K, L>, T> triggerPolicy;
     private BiConsumer<List<T>, K> partitionProcessor;
+    private volatile Consumer<Partition<T, K, L>> partitionRemovalListener;
     
     private ScheduledExecutorService ses;
+    private TimerWheel timerWheel;
     
     protected Supplier<L> listSupplier;
     protected Function<T, K> keyFunction;
     
-    private Map<K, Partition<T, K, L> > partitions = new HashMap<K, Partition<T, K, L> >();
+    /**
+     * Key of the partition for tuples whose key is null,
+     * which a {@code ConcurrentHashMap} does not allow.
+     */
+    private static final Object NULL_KEY = new Object();
     
+    private final ConcurrentMap<Object, PartitionImpl<T, K, L> > partitions = new ConcurrentHashMap<Object, PartitionImpl<T, K, L> >();
+    private final Map<K, Partition<T, K, L> > partitionsView = new PartitionsView();
+    
+    /**
+     * Partition limits, zero when unlimited.
+     */
+    private final int maxPartitions;
+    private final long idleNanos;
+    private final AtomicLong nextIdleSweep = new AtomicLong();
+    private final AtomicBoolean idleSweepScheduled = new AtomicBoolean();
+    private final AtomicLong evictedPartitions = new AtomicLong();
+    
+    /**
+     * Partitions in least recently inserted order, only
+     * maintained when partitions are limited. Guarded by itself,
+     * which may be locked while holding a partition's lock.
+     */
+    private final LinkedHashMap<K, PartitionImpl<T, K, L>> recentlyUsed =
+            new LinkedHashMap<K, PartitionImpl<T, K, L>>(16, 0.75f, true);
     
     WindowImpl(BiFunction<Partition<T, K, L>, T, Boolean> insertionPolicy, BiConsumer<Partition<T, K, L>, T> contentsPolicy,
             Consumer<Partition<T, K, L> > evictDeterminer, BiConsumer<Partition<T, K, L>, T> triggerPolicy,
             Function<T, K> keyFunction, Supplier<L> listSupplier){
+        this(insertionPolicy, contentsPolicy, evictDeterminer, triggerPolicy, keyFunction, listSupplier,
+                0, 0, TimeUnit.NANOSECONDS);
+    }
+    
+    WindowImpl(BiFunction<Partition<T, K, L>, T, Boolean> insertionPolicy, BiConsumer<Partition<T, K, L>, T> contentsPolicy,
+            Consumer<Partition<T, K, L> > evictDeterminer, BiConsumer<Partition<T, K, L>, T> triggerPolicy,
+            Function<T, K> keyFunction, Supplier<L> listSupplier,
+            int maxPartitions, long idleTime, TimeUnit unit){
+        if (maxPartitions < 0)
+            throw new IllegalArgumentException("maxPartitions: " + maxPartitions);
+        if (idleTime < 0)
+            throw new IllegalArgumentException("idleTime: " + idleTime);
         this.insertionPolicy = insertionPolicy;
         this.contentsPolicy = contentsPolicy;
         this.evictDeterminer = evictDeterminer;
         this.triggerPolicy = triggerPolicy;
         this.keyFunction = keyFunction;
         this.listSupplier = listSupplier;
+        this.maxPartitions = maxPartitions;
+        this.idleNanos = unit.toNanos(idleTime);
+        this.nextIdleSweep.set(System.nanoTime() + idleNanos);
     }
 
     @Override
     public boolean insert(T tuple) {
+        return insert(tuple, PartitionImpl.NOW);
+    }
+    
+    /**
+     * Insert a tuple with its insertion time.
+     * @see PartitionImpl#insert(Object, long)
+     */
+    boolean insert(T tuple, long time) {
         K key = keyFunction.apply(tuple);
-        Partition<T, K, L> partition;
+        final boolean limited = isLimited();
+        final long now = limited ? System.nanoTime() : 0L;
+        // Without a scheduler idle partitions are swept by insertions.
+        if (idleNanos != 0 && getScheduledExecutorService() == null)
+            sweepIdlePartitionsOnInsert(now);
         
-        synchronized (partitions) {
-            partition = partitions.get(key);
+        for (;;) {
+            PartitionImpl<T, K, L> partition = getPartition(key);
+            synchronized (partition) {
+                // Retry against a new partition if this
+                // one was removed after it was looked up.
+                if (!partition.removed) {
+                    if (limited) {
+                        partition.lastInsert = now;
+                        synchronized (recentlyUsed) {
+                            // Access moves the partition to the most recently used.
+                            recentlyUsed.get(key);
+                        }
+                    }
+                    return partition.insert(tuple, time);
+                }
+            }
+        }
+    }
+    
+    private boolean isLimited() {
+        return maxPartitions != 0 || idleNanos != 0;
+    }
+    
+    private PartitionImpl<T, K, L> getPartition(K key) {
+        PartitionImpl<T, K, L> partition = partitions.get(mapKey(key));
+        if (partition == null) {
+            PartitionImpl<T, K, L> created = new PartitionImpl<T, K, L>(this, listSupplier.get(), key);
+            created.lastInsert = System.nanoTime();
+            partition = partitions.putIfAbsent(mapKey(key), created);
             if (partition == null) {
-                partition = new PartitionImpl<T, K, L>(this, listSupplier.get(), key);
-                partitions.put(key, partition);
+                partition = created;
+                if (isLimited()) {
+                    synchronized (recentlyUsed) {
+                        recentlyUsed.put(key, created);
+                    }
+                }
+                if (maxPartitions != 0)
+                    evictLeastRecentlyUsed(created);
+                if (idleNanos != 0)
+                    scheduleIdleSweep();
             }
         }
-        
-        return partition.insert(tuple);      
+        return partition;
+    }
+    
+    /**
+     * Least recently used partition, excluding {@code exclude}.
+     */
+    private PartitionImpl<T, K, L> eldest(PartitionImpl<T, K, L> exclude) {
+        synchronized (recentlyUsed) {
+            for (PartitionImpl<T, K, L> partition : recentlyUsed.values()) {
+                if (partition != exclude)
+                    return partition;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Remove the least recently used partitions until the window
+     * is within its maximum number of partitions. The least
+     * recently used partition is the head of {@code recentlyUsed}
+     * so each removal is constant time.
+     */
+    private void evictLeastRecentlyUsed(PartitionImpl<T, K, L> created) {
+        while (partitions.size() > maxPartitions) {
+            PartitionImpl<T, K, L> eldest = eldest(created);
+            if (eldest == null)
+                return;
+            if (removePartition(eldest, eldest.lastInsert))
+                evictedPartitions.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Remove partitions that have not had a tuple inserted
+     * for the idle time, from the least recently used
+     * until one that is not idle.
+     */
+    private void sweepIdlePartitions(long now) {
+        for (;;) {
+            PartitionImpl<T, K, L> eldest = eldest(null);
+            if (eldest == null)
+                return;
+            long lastInsert = eldest.lastInsert;
+            if (now - lastInsert <= idleNanos)
+                return;
+            if (removePartition(eldest, lastInsert))
+                evictedPartitions.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Sweep idle partitions from an insertion, when the window
+     * does not have a scheduler. Partitions are swept at most twice
+     * per idle time, by the inserting thread that first
+     * sees the sweep is due.
+     */
+    private void sweepIdlePartitionsOnInsert(long now) {
+        long next = nextIdleSweep.get();
+        if (now - next < 0 || !nextIdleSweep.compareAndSet(next, now + Math.max(1, idleNanos / 2)))
+            return;
+        sweepIdlePartitions(now);
+    }
+    
+    /**
+     * Schedule a sweep on the timer wheel for when the least
+     * recently used partition becomes idle, if a sweep is not
+     * already scheduled. A sweep is only scheduled while the
+     * window has partitions, so that an idle window does
+     * not keep a task pending.
+     */
+    private void scheduleIdleSweep() {
+        if (getScheduledExecutorService() == null || !idleSweepScheduled.compareAndSet(false, true))
+            return;
+        PartitionImpl<T, K, L> eldest = eldest(null);
+        long delay = eldest == null ? 0 : eldest.lastInsert + idleNanos - System.nanoTime();
+        try {
+            getTimerWheel().schedule(() -> {
+                sweepIdlePartitions(System.nanoTime());
+                idleSweepScheduled.set(false);
+                // Re-check for partitions created while the flag was set.
+                if (eldest(null) != null)
+                    scheduleIdleSweep();
+            }, Math.max(0, delay) + 1, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // The scheduler has been shut down.
+            idleSweepScheduled.set(false);
+        }
+    }
+    
+    @Override
+    public boolean removePartition(Partition<T, K, L> partition) {
+        if (partition.getWindow() != this)
+            return false;
+        PartitionImpl<T, K, L> impl = (PartitionImpl<T, K, L>) partition;
+        synchronized (impl) {
+            return removePartition(impl, impl.lastInsert);
+        }
+    }
+    
+    /**
+     * Remove a partition and discard its contents, unless
+     * it has had a tuple inserted since {@code lastInsert}.
+     * The removal listener is called before the contents are
+     * discarded and before the partition
+     * is removed from the map so that it completes before
+     * a new partition for the same key can be created.
+     */
+    private boolean removePartition(PartitionImpl<T, K, L> partition, long lastInsert) {
+        synchronized (partition) {
+            if (partition.removed || partition.lastInsert != lastInsert)
+                return false;
+            if (isLimited()) {
+                synchronized (recentlyUsed) {
+                    if (recentlyUsed.get(partition.getKey()) == partition)
+                        recentlyUsed.remove(partition.getKey());
+                }
+            }
+            // The listener may process the partition before it is marked removed.
+            Consumer<Partition<T, K, L>> listener = partitionRemovalListener;
+            if (listener != null)
+                listener.accept(partition);
+            partition.removed = true;
+            partition.getContents().clear();
+            partitions.remove(mapKey(partition.getKey()), partition);
+        }
+        return true;
     }
 
    
@@ -109,9 +332,13 @@ class WindowImpl<T, K, L extends List<T>> implements Window<T, K, L> {
     }
 
     @Override
-    public synchronized void registerScheduledExecutorService(ScheduledExecutorService ses) {
-        this.ses = ses;
-        
+    public void registerScheduledExecutorService(ScheduledExecutorService ses) {
+        synchronized (this) {
+            this.ses = ses;
+        }
+        // Partitions restored or inserted before the scheduler was registered.
+        if (idleNanos != 0 && !partitions.isEmpty())
+            scheduleIdleSweep();
     }
 
     @Override
@@ -119,9 +346,99 @@ class WindowImpl<T, K, L extends List<T>> implements Window<T, K, L> {
         return this.ses;
     }
 
+    @Override
+    public synchronized TimerWheel getTimerWheel() {
+        if (timerWheel == null)
+            timerWheel = new TimerWheel(ses);
+        return timerWheel;
+    }
+
+    @Override
+    public Consumer<Partition<T, K, L>> getPartitionRemovalListener() {
+        return partitionRemovalListener;
+    }
+
+    @Override
+    public void registerPartitionRemovalListener(Consumer<Partition<T, K, L>> listener) {
+        this.partitionRemovalListener = listener;
+    }
+
+    @Override
+    public long getEvictedPartitionCount() {
+        return evictedPartitions.get();
+    }
+
     @Override
     public Map<K, Partition<T, K, L>> getPartitions() {
-        return partitions;
+        return partitionsView;
+    }
+    
+    private static Object mapKey(Object key) {
+        return key == null ? NULL_KEY : key;
     }
+    
+    /**
+     * Unmodifiable view of the partitions by their key,
+     * including a partition for the null key.
+     */
+    private final class PartitionsView extends AbstractMap<K, Partition<T, K, L>> {
+        
+        @Override
+        public Partition<T, K, L> get(Object key) {
+            return partitions.get(mapKey(key));
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return partitions.containsKey(mapKey(key));
+        }
+        
+        @Override
+        public int size() {
+            return partitions.size();
+        }
+        
+        @Override
+        public boolean isEmpty() {
+            return partitions.isEmpty();
+        }
+        
+        @Override
+        public Collection<Partition<T, K, L>> values() {
+            return Collections.<Partition<T, K, L>>unmodifiableCollection(partitions.values());
+        }
 
+        @Override
+        public Set<Map.Entry<K, Partition<T, K, L>>> entrySet() {
+            return new AbstractSet<Map.Entry<K, Partition<T, K, L>>>() {
+                @Override
+                public Iterator<Map.Entry<K, Partition<T, K, L>>> iterator() {
+                    final Iterator<PartitionImpl<T, K, L>> values = partitions.values().iterator();
+                    return new Iterator<Map.Entry<K, Partition<T, K, L>>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return values.hasNext();
+                        }
+                        
+                        @Override
+                        public Map.Entry<K, Partition<T, K, L>> next() {
+                            PartitionImpl<T, K, L> partition = values.next();
+                            return new AbstractMap.SimpleImmutableEntry<K, Partition<T, K, L>>(
+                                    partition.getKey(), partition);
+                        }
+                        
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+                
+                @Override
+                public int size() {
+                    return partitions.size();
+                }
+            };
+        }
+    }
 }
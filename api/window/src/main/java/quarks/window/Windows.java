@@ -19,12 +19,17 @@ under the License.
 package quarks.window;
 
 import static quarks.window.Policies.alwaysInsert;
+import static quarks.window.Policies.circularList;
 import static quarks.window.Policies.countContentsPolicy;
 import static quarks.window.Policies.evictOldest;
 import static quarks.window.Policies.processOnInsert;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import quarks.function.BiConsumer;
 import quarks.function.BiFunction;
@@ -64,6 +69,58 @@ public class Windows {
         return new WindowImpl<>(insertionPolicy, contentsPolicy, evictDeterminer, triggerPolicy, keyFunction, listSupplier);
     }
     
+    /**
+     * Create a window using the passed in policies with
+     * a bounded number of partitions.
+     * <BR>
+     * A keyed window retains a partition for every key it has seen,
+     * so with an unbounded set of keys the window grows without limit.
+     * Partition limits remove partitions, discarding their contents,
+     * so that keys that are no longer seen do not retain memory:
+     * <UL>
+     * <LI>If {@code maxPartitions} is greater than zero then inserting
+     * a tuple with a new key when the window already contains {@code maxPartitions}
+     * partitions removes the least recently used partition,
+     * that is the partition with the oldest last insertion.</LI>
+     * <LI>If {@code idleTime} is greater than zero then partitions that
+     * have not had a tuple inserted for {@code idleTime} are removed.
+     * Idle partitions are removed using the window's {@link Window#getTimerWheel() timer wheel}
+     * once a {@link Window#registerScheduledExecutorService(java.util.concurrent.ScheduledExecutorService)
+     * scheduled executor service} is registered, otherwise by subsequent insertions into the window.</LI>
+     * </UL>
+     * A zero value disables the corresponding limit. Removed partitions
+     * are passed to the window's {@link Window#registerPartitionRemovalListener(Consumer) removal listener}
+     * and counted by {@link Window#getEvictedPartitionCount()}.
+     * A removed partition is recreated, empty, if its key is subsequently seen.
+     * 
+     * @param insertionPolicy Policy indicating if a tuple should be inserted
+     * into the window.
+     * @param contentsPolicy Contents policy called prior to insertion of a tuple.
+     * @param evictDeterminer Policy that determines action to take when
+     * {@link Partition#evict()} is called.
+     * @param triggerPolicy Trigger policy that is invoked after the insertion
+     * of a tuple into a partition.
+     * @param keyFunction Function that gets the partition key from a tuple.
+     * @param listSupplier Supplier function for the {@code List} that holds
+     * tuples within a partition.
+     * @param maxPartitions Maximum number of partitions, zero for no limit.
+     * @param idleTime Time after which a partition without insertions is removed, zero for no limit.
+     * @param unit Unit for {@code idleTime}.
+     * @return Window using the passed in policies and partition limits.
+     */
+    public static  <T, K, L extends List<T>> Window<T, K, L> window(
+            BiFunction<Partition<T, K, L>, T, Boolean> insertionPolicy,
+            BiConsumer<Partition<T, K, L>, T> contentsPolicy,
+            Consumer<Partition<T, K, L> > evictDeterminer,
+            BiConsumer<Partition<T, K, L>, T> triggerPolicy,
+            Function<T, K> keyFunction,
+            Supplier<L> listSupplier,
+            int maxPartitions, long idleTime, TimeUnit unit){
+        
+        return new WindowImpl<>(insertionPolicy, contentsPolicy, evictDeterminer, triggerPolicy, keyFunction, listSupplier,
+                maxPartitions, idleTime, unit);
+    }
+    
     /**
      * Return a window that maintains the last {@code count} tuples inserted
      * with processing triggered on every insert. This provides 
@@ -96,4 +153,118 @@ public class Windows {
         return window;
     }
     
+    /**
+     * Return a window that maintains the last {@code count} tuples inserted
+     * in a {@link CircularList} with processing triggered on every insert.
+     * Behaves as {@link #lastNProcessOnInsert(int, Function)} but the
+     * contents of each partition are held in a fixed capacity circular array,
+     * so that inserting a tuple and evicting the oldest tuple do not allocate.
+     * 
+     * @param <T> Tuple type.
+     * @param <K> Key type.
+     * 
+     * @param count Number of tuple to maintain per partition
+     * @param keyFunction Tuple partitioning key function
+     * @return window that maintains the last {@code count} tuples on a stream
+     */
+    public static <T, K> Window<T, K, CircularList<T>> lastNCircularProcessOnInsert(final int count,
+            Function<T, K> keyFunction) {
+
+        Window<T, K, CircularList<T>> window = Windows.window(
+                alwaysInsert(),
+                countContentsPolicy(count), 
+                evictOldest(), 
+                processOnInsert(), 
+                keyFunction, 
+                circularList(count));
+
+        return window;
+    }
+    
+    /**
+     * Copy the contents of each non-empty partition of a window,
+     * holding the partition's lock while it is copied.
+     * This allows the contents of a window to be checkpointed
+     * while tuples are being inserted. The window is restored
+     * by inserting the copied tuples into an empty window.
+     * <BR>
+     * Insertion times are not copied and each tuple of a spilling
+     * {@link InsertionTimeList} is deserialized, windows with
+     * time based policies are checkpointed with
+     * {@link #checkpointContents(Window)}.
+     * 
+     * @param <T> Tuple type.
+     * @param <K> Key type.
+     * 
+     * @param window Window to copy.
+     * @return Copy of the contents of each non-empty partition, by key.
+     */
+    public static <T, K> HashMap<K, ArrayList<T>> copyContents(Window<T, K, ? extends List<T>> window) {
+        HashMap<K, ArrayList<T>> contents = new HashMap<>();
+        for (Partition<T, K, ? extends List<T>> partition : window.getPartitions().values()) {
+            synchronized (partition) {
+                if (!partition.getContents().isEmpty())
+                    contents.put(partition.getKey(), new ArrayList<T>(partition.getContents()));
+            }
+        }
+        return contents;
+    }
+    
+    /**
+     * Checkpoint the contents of each non-empty partition of a window,
+     * holding the partition's lock while it is copied.
+     * The insertion time of each tuple of an {@link InsertionTimeList}
+     * is kept with the tuple, and its spilled tuples are copied
+     * in their serialized form without being deserialized.
+     * 
+     * @param <T> Tuple type.
+     * @param <K> Key type.
+     * 
+     * @param window Window to checkpoint.
+     * @return Serializable contents of each non-empty partition, by key.
+     * 
+     * @see #restoreContents(Window, Object, Serializable)
+     */
+    public static <T, K> HashMap<K, Serializable> checkpointContents(Window<T, K, ? extends List<T>> window) {
+        HashMap<K, Serializable> contents = new HashMap<>();
+        for (Partition<T, K, ? extends List<T>> partition : window.getPartitions().values()) {
+            synchronized (partition) {
+                List<T> tuples = partition.getContents();
+                if (tuples.isEmpty())
+                    continue;
+                if (tuples instanceof InsertionTimeList)
+                    contents.put(partition.getKey(), ((InsertionTimeList<T>) tuples).checkpoint());
+                else
+                    contents.put(partition.getKey(), new PartitionContents<T>(tuples));
+            }
+        }
+        return contents;
+    }
+    
+    /**
+     * Restore a partition checkpointed by {@link #checkpointContents(Window)}.
+     * The checkpointed tuples are inserted into the window in their original
+     * order, so that policy state is rebuilt. Tuples of an
+     * {@link InsertionTimeList} keep their original insertion times,
+     * the partition must then be {@link Partition#evict() evicted} so that
+     * tuples that expired since the checkpoint are removed. Eviction may
+     * process the partition, for example closing a session or a hopping
+     * window's period, so it is left to the caller to evict the partition
+     * once the results of processing can be used.
+     * 
+     * @param <T> Tuple type.
+     * @param <K> Key type.
+     * 
+     * @param window Window to restore into.
+     * @param key Key of the partition.
+     * @param contents Checkpointed contents of the partition.
+     * @return {@code true} if the tuples were restored with their
+     * insertion times and the partition must be evicted.
+     */
+    public static <T, K> boolean restoreContents(Window<T, K, ? extends List<T>> window, K key, Serializable contents) {
+        @SuppressWarnings("unchecked")
+        PartitionContents<T> partitionContents = (PartitionContents<T>) contents;
+        partitionContents.restore(window);
+        return partitionContents.hasTimes();
+    }
 }
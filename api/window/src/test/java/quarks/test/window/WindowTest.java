@@ -18,27 +18,56 @@ under the License.
 */
 package quarks.test.window;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 import static quarks.function.Functions.unpartitioned;
 import static quarks.window.Policies.alwaysInsert;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
 import quarks.function.BiConsumer;
+import quarks.function.BiFunction;
+import quarks.function.Function;
+import quarks.window.Aggregators;
+import quarks.window.CircularList;
+import quarks.window.EventTimePolicy;
+import quarks.window.HoppingPolicy;
+import quarks.window.IncrementalAggregation;
+import quarks.window.IncrementalAggregator;
 import quarks.window.InsertionTimeList;
+import quarks.window.Partition;
 import quarks.window.Policies;
+import quarks.window.TimerWheel;
+import quarks.window.TupleSerializer;
 import quarks.window.Window;
 import quarks.window.Windows;
 
@@ -50,9 +79,19 @@ public class WindowTest {
      */
     @Test
     public void lastCountTest(){
+        lastCountTest(Windows.lastNProcessOnInsert(10, unpartitioned()));
+    }
+    
+    /**
+     * Verifies that the state of the circular list window is correct after each tuple offer.
+     */
+    @Test
+    public void lastCountCircularTest(){
+        lastCountTest(Windows.lastNCircularProcessOnInsert(10, unpartitioned()));
+    }
+    
+    private void lastCountTest(Window<Integer, Integer, ? extends List<Integer>> window){
         final int COUNT = 100;
-        // The window implementation
-        Window<Integer, Integer, ? extends List<Integer>> window = Windows.lastNProcessOnInsert(10, unpartitioned());
         // The states of the window as it slides
         LinkedList<List<Integer> > incrementalWindowStates = new LinkedList<>();
         
@@ -132,6 +171,28 @@ public class WindowTest {
         }    
     }
     
+    /**
+     * Verifies that tuples with a null key form a partition.
+     */
+    @Test
+    public void nullKeyTest(){
+        Window<Integer, Integer, LinkedList<Integer>> window =
+                Windows.lastNProcessOnInsert(10, tuple -> tuple % 2 == 0 ? null : 1);
+        window.registerPartitionProcessor((tuples, key) -> { });
+        for (int i = 0; i < 6; i++)
+            window.insert(i);
+        
+        assertEquals(2, window.getPartitions().size());
+        assertEquals(Arrays.asList(0, 2, 4), window.getPartitions().get(null).getContents());
+        assertNull(window.getPartitions().get(null).getKey());
+        assertTrue(window.getPartitions().containsKey(null));
+        assertTrue(window.getPartitions().keySet().contains(null));
+        
+        assertTrue(window.removePartition(window.getPartitions().get(null)));
+        assertFalse(window.getPartitions().containsKey(null));
+        assertEquals(1, window.getPartitions().size());
+    }
+    
     @Test
     public void accessPartitionKeyTest(){
         LinkedList<List<Integer> > incrementalWindowStates = new LinkedList<>();
@@ -430,6 +491,766 @@ public class WindowTest {
         assertTrue("Number of tuples submitted (1000) != number of tuples processed in batch (" + numTuples + ")", numTuples == 1000);
     }
     
+    /**
+     * Verifies that InsertionTimeList behaves as a List as
+     * tuples are added and removed, including when its
+     * storage wraps and grows.
+     */
+    @Test
+    public void insertionTimeListTest() {
+        InsertionTimeList<Integer> list = new InsertionTimeList<>();
+        List<Integer> expected = new ArrayList<>();
+        Random r = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            int op = r.nextInt(10);
+            if (op < 6 || expected.isEmpty()) {
+                list.add(i);
+                expected.add(i);
+            } else if (op < 8) {
+                assertEquals(expected.remove(0), list.remove(0));
+            } else if (op < 9) {
+                int index = r.nextInt(expected.size());
+                assertEquals(expected.remove(index), list.remove(index));
+            } else {
+                Iterator<Integer> it = list.iterator();
+                it.next();
+                it.remove();
+                expected.remove(0);
+            }
+            assertEquals(expected.size(), list.size());
+            if (i % 100 == 0)
+                assertEquals(expected, list);
+        }
+        assertEquals(expected, list);
+        assertEquals(expected, new ArrayList<>(list));
+        
+        list.clear();
+        assertTrue(list.isEmpty());
+        list.add(1);
+        assertEquals(Collections.singletonList(1), list);
+    }
+    
+    /**
+     * Verifies that CircularList behaves as a bounded List as
+     * tuples are added and removed, including when its
+     * storage wraps and grows to its capacity.
+     */
+    @Test
+    public void circularListTest() {
+        final int CAPACITY = 100;
+        CircularList<Integer> list = new CircularList<>(CAPACITY);
+        List<Integer> expected = new ArrayList<>();
+        Random r = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            int op = r.nextInt(10);
+            if ((op < 6 || expected.isEmpty()) && expected.size() < CAPACITY) {
+                list.add(i);
+                expected.add(i);
+            } else if (op < 9) {
+                assertEquals(expected.remove(0), list.remove(0));
+            } else {
+                int index = r.nextInt(expected.size());
+                assertEquals(expected.remove(index), list.remove(index));
+            }
+            assertEquals(expected.size(), list.size());
+            if (i % 100 == 0)
+                assertEquals(expected, list);
+        }
+        assertEquals(expected, list);
+        assertEquals(expected, new ArrayList<>(list));
+        
+        list.clear();
+        for (int i = 0; i < CAPACITY; i++)
+            list.add(i);
+        try {
+            list.add(CAPACITY);
+            fail("Added to a full list");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        list.remove(0);
+        list.add(CAPACITY);
+        assertEquals(Integer.valueOf(1), list.get(0));
+        assertEquals(Integer.valueOf(CAPACITY), list.get(CAPACITY - 1));
+    }
+    
+    /**
+     * Verifies that a timer wheel runs every task no earlier than its delay
+     * while holding at most one task in the underlying executor.
+     */
+    @Test
+    public void timerWheelTest() throws Exception {
+        final int TASKS = 2000;
+        ScheduledThreadPoolExecutor ses = new ScheduledThreadPoolExecutor(1);
+        // Ticks are rescheduled when an earlier task is added.
+        ses.setRemoveOnCancelPolicy(true);
+        try {
+            TimerWheel wheel = new TimerWheel(ses, 5, TimeUnit.MILLISECONDS, 64);
+            CountDownLatch done = new CountDownLatch(TASKS);
+            AtomicInteger early = new AtomicInteger();
+            Random r = new Random(3);
+            int maxQueued = 0;
+            for (int i = 0; i < TASKS; i++) {
+                // Include delays beyond a revolution of the wheel.
+                long delay = r.nextInt(500);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                wheel.schedule(() -> {
+                    if (System.nanoTime() < deadline)
+                        early.incrementAndGet();
+                    done.countDown();
+                }, delay, TimeUnit.MILLISECONDS);
+                maxQueued = Math.max(maxQueued, ses.getQueue().size());
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(0, early.get());
+            assertEquals(0, wheel.pending());
+            assertTrue("Queued ticks: " + maxQueued, maxQueued <= 1);
+        } finally {
+            ses.shutdownNow();
+        }
+    }
+    
+    /**
+     * Verifies that an event time window inserts tuples in
+     * event time order once the watermark passes them,
+     * and discards tuples later than the allowed lateness.
+     */
+    @Test
+    public void eventTimeTest() {
+        EventTimePolicy<Long, Integer> policy = new EventTimePolicy<>(
+                100, 10, TimeUnit.MILLISECONDS, tuple -> tuple, false);
+        Window<Long, Integer, InsertionTimeList<Long>> window = Windows.window(
+                policy,
+                Policies.doNothing(),
+                partition -> {},
+                Policies.doNothing(),
+                unpartitioned(),
+                Policies.insertionTimeList());
+        List<List<Long>> processed = new ArrayList<>();
+        window.registerPartitionProcessor((tuples, key) -> processed.add(new ArrayList<>(tuples)));
+        
+        for (long ts : new long[] {1000, 1005, 1002, 1020, 1009, 1150})
+            window.insert(ts);
+        
+        assertEquals(1, policy.getLateTupleCount());
+        assertEquals(Arrays.asList(
+                Arrays.asList(1000L),
+                Arrays.asList(1000L, 1002L),
+                Arrays.asList(1000L, 1002L, 1005L),
+                Arrays.asList(1000L, 1002L, 1005L, 1020L)), processed);
+    }
+    
+    /**
+     * Verifies that tuples held for late arrivals are released
+     * when the partition is idle, without a later insert,
+     * and when the partition is removed.
+     */
+    @Test
+    public void eventTimeIdleTest() throws Exception {
+        EventTimePolicy<Long, Integer> policy = new EventTimePolicy<>(
+                100, 10, TimeUnit.MILLISECONDS, tuple -> tuple, false, 50,
+                Policies.doNothing(), Policies.doNothing());
+        Window<Long, Integer, InsertionTimeList<Long>> window = Windows.window(
+                policy,
+                Policies.doNothing(),
+                partition -> {},
+                Policies.doNothing(),
+                tuple -> (int) (tuple / 10000),
+                Policies.insertionTimeList());
+        window.registerPartitionRemovalListener(policy.partitionRemoved());
+        ScheduledExecutorService ses = new ScheduledThreadPoolExecutor(1);
+        window.registerScheduledExecutorService(ses);
+        List<List<Long>> processed = Collections.synchronizedList(new ArrayList<>());
+        window.registerPartitionProcessor((tuples, key) -> processed.add(new ArrayList<>(tuples)));
+        
+        try {
+            // All are held for late arrivals, with no later insert.
+            for (long ts : new long[] {1000, 1009, 1005})
+                window.insert(ts);
+            assertTrue(processed.isEmpty());
+            
+            long deadline = System.currentTimeMillis() + 5000;
+            while (processed.size() < 3 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(Arrays.asList(
+                    Arrays.asList(1000L),
+                    Arrays.asList(1000L, 1005L),
+                    Arrays.asList(1000L, 1005L, 1009L)), processed);
+            
+            // The watermark advanced, a tuple before 1009 is late.
+            window.insert(1007L);
+            assertEquals(1, policy.getLateTupleCount());
+            
+            // Held tuples are released when the partition is removed.
+            processed.clear();
+            for (long ts : new long[] {20000, 20008, 20004})
+                window.insert(ts);
+            assertTrue(window.removePartition(window.getPartitions().get(2)));
+            assertEquals(Arrays.asList(
+                    Arrays.asList(20000L),
+                    Arrays.asList(20000L, 20004L),
+                    Arrays.asList(20000L, 20004L, 20008L)), processed);
+            assertFalse(window.getPartitions().containsKey(2));
+        } finally {
+            ses.shutdownNow();
+        }
+    }
+    
+    /**
+     * Verifies that a hopping window is processed once per advance
+     * and that each tuple is added to and removed from the
+     * incremental aggregation once.
+     */
+    @Test
+    public void hoppingTest() throws Exception {
+        final long SIZE = 200;
+        final long ADVANCE = 50;
+        IncrementalAggregation<Integer, Integer, ?, Long> aggregation =
+                new IncrementalAggregation<>(Aggregators.count());
+        HoppingPolicy<Integer, Integer> policy = new HoppingPolicy<>(
+                SIZE, ADVANCE, TimeUnit.MILLISECONDS, aggregation.add(), aggregation.remove());
+        Window<Integer, Integer, InsertionTimeList<Integer>> window = Windows.window(
+                alwaysInsert(),
+                policy.contentsPolicy(),
+                policy.evictDeterminer(),
+                Policies.doNothing(),
+                unpartitioned(),
+                Policies.insertionTimeList());
+        ScheduledExecutorService ses = new ScheduledThreadPoolExecutor(1);
+        window.registerScheduledExecutorService(ses);
+        
+        List<Long> processTimes = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger mismatches = new AtomicInteger();
+        AtomicInteger overSized = new AtomicInteger();
+        window.registerPartitionProcessor((tuples, key) -> {
+            processTimes.add(System.currentTimeMillis());
+            // The incremental count must agree with the window contents.
+            if (aggregation.result(key).intValue() != tuples.size())
+                mismatches.incrementAndGet();
+            // Tuples are inserted every 5ms, allow for late timer ticks.
+            if (tuples.size() > SIZE / 5 + 10)
+                overSized.incrementAndGet();
+        });
+        
+        try {
+            for (int i = 0; i < 200; i++) {
+                window.insert(i);
+                Thread.sleep(5);
+            }
+            // Let the window drain.
+            Thread.sleep(SIZE + 3 * ADVANCE);
+        } finally {
+            ses.shutdownNow();
+        }
+        
+        assertEquals(0, mismatches.get());
+        assertEquals(0, overSized.get());
+        // Roughly one processing per advance, not per insert.
+        assertTrue("Processed: " + processTimes.size(), processTimes.size() < 200 / 2);
+        assertTrue("Processed: " + processTimes.size(), processTimes.size() > 5);
+        assertTrue(window.getPartitions().get(0).getContents().isEmpty());
+        assertEquals(0L, aggregation.result(0).longValue());
+    }
+    
+    /**
+     * Verifies that a session is processed once after its
+     * inactivity gap and that its partition is then removed.
+     */
+    @Test
+    public void sessionTest() throws Exception {
+        final long GAP = 100;
+        Window<Integer, Integer, InsertionTimeList<Integer>> window = Windows.window(
+                alwaysInsert(),
+                Policies.scheduleEvictIfEmpty(GAP, TimeUnit.MILLISECONDS),
+                Policies.closeSessionWithProcess(GAP, TimeUnit.MILLISECONDS),
+                Policies.doNothing(),
+                tuple -> tuple % 2,
+                Policies.insertionTimeList());
+        ScheduledExecutorService ses = new ScheduledThreadPoolExecutor(1);
+        window.registerScheduledExecutorService(ses);
+        
+        Map<Integer, List<Integer>> sessions = Collections.synchronizedMap(new HashMap<>());
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger removed = new AtomicInteger();
+        window.registerPartitionProcessor((tuples, key) -> {
+            processed.incrementAndGet();
+            sessions.put(key, new ArrayList<>(tuples));
+        });
+        window.registerPartitionRemovalListener(partition -> removed.incrementAndGet());
+        
+        try {
+            // Odd session stays open while tuples arrive within the gap.
+            window.insert(2);
+            for (int i = 1; i < 10; i += 2) {
+                window.insert(i);
+                Thread.sleep(GAP / 4);
+            }
+            Thread.sleep(3 * GAP);
+            
+            assertEquals(2, processed.get());
+            assertEquals(2, removed.get());
+            assertEquals(Arrays.asList(1, 3, 5, 7, 9), sessions.get(1));
+            assertEquals(Arrays.asList(2), sessions.get(0));
+            assertTrue(window.getPartitions().isEmpty());
+            assertEquals(0, window.getEvictedPartitionCount());
+            
+            // A later tuple starts a new session.
+            window.insert(11);
+            Thread.sleep(3 * GAP);
+            assertEquals(3, processed.get());
+            assertEquals(Arrays.asList(11), sessions.get(1));
+        } finally {
+            ses.shutdownNow();
+        }
+    }
+    
+    /**
+     * Verifies that a window using a spilling list processes
+     * the same contents as when all tuples are on heap and that
+     * segment files are deleted as tuples are evicted.
+     */
+    @Test
+    public void spillingListTest() throws Exception {
+        final int COUNT = 1000;
+        final int SIZE = 300;
+        File directory = Files.createTempDirectory("spill").toFile();
+        try {
+            TupleSerializer<Integer> serializer = intSerializer();
+            // Small segments so that many are created and released.
+            Window<Integer, Integer, InsertionTimeList<Integer>> window = Windows.window(
+                    alwaysInsert(),
+                    Policies.countContentsPolicy(SIZE),
+                    Policies.evictOldest(),
+                    Policies.processOnInsert(),
+                    unpartitioned(),
+                    Policies.spillingInsertionTimeList(10, serializer, directory, 256));
+            List<Integer> sums = new ArrayList<>();
+            window.registerPartitionProcessor((tuples, key) -> {
+                int sum = 0;
+                for (Integer tuple : tuples)
+                    sum += tuple;
+                sums.add(sum);
+            });
+            
+            for (int i = 0; i < COUNT; i++)
+                window.insert(i);
+            
+            assertEquals(COUNT, sums.size());
+            for (int i = 0; i < COUNT; i++) {
+                int first = Math.max(0, i - SIZE + 1);
+                assertEquals((first + i) * (i - first + 1) / 2, sums.get(i).intValue());
+            }
+            
+            InsertionTimeList<Integer> contents = window.getPartitions().get(0).getContents();
+            assertEquals(SIZE, contents.size());
+            for (int i = 0; i < SIZE; i++)
+                assertEquals(COUNT - SIZE + i, contents.get(i).intValue());
+            assertEquals(COUNT - 1, contents.get(SIZE - 1).intValue());
+            assertEquals(COUNT - SIZE, contents.get(0).intValue());
+            
+            // Only segments holding live tuples remain.
+            assertTrue(directory.list().length <= SIZE * 16 / 256 + 1);
+            contents.clear();
+            assertTrue(contents.isEmpty());
+            assertEquals(0, directory.list().length);
+        } finally {
+            for (File file : directory.listFiles())
+                file.delete();
+            directory.delete();
+        }
+    }
+    
+    /**
+     * Verifies that a partition's segments start at a page
+     * and grow, rather than each being the maximum size.
+     */
+    @Test
+    public void spillSegmentGrowthTest() throws Exception {
+        File directory = Files.createTempDirectory("spill").toFile();
+        try {
+            Window<Integer, Integer, InsertionTimeList<Integer>> window = Windows.window(
+                    alwaysInsert(),
+                    (partition, tuple) -> { },
+                    partition -> { },
+                    (partition, tuple) -> { },
+                    tuple -> tuple % 100,
+                    Policies.spillingInsertionTimeList(0, intSerializer(), directory));
+            window.registerPartitionProcessor((tuples, key) -> { });
+            
+            // Each partition spills a few tuples into a single page.
+            for (int i = 0; i < 1000; i++)
+                window.insert(i);
+            assertEquals(100, directory.list().length);
+            for (File file : directory.listFiles())
+                assertEquals(4096, file.length());
+            
+            // A partition that keeps spilling uses larger segments.
+            for (int i = 0; i < 3000; i++)
+                window.insert(i * 100);
+            InsertionTimeList<Integer> contents = window.getPartitions().get(0).getContents();
+            assertEquals(3010, contents.size());
+            assertEquals(Integer.valueOf(299900), contents.get(3009));
+            long largest = 0;
+            for (File file : directory.listFiles())
+                largest = Math.max(largest, file.length());
+            assertEquals(8 * 4096, largest);
+            
+            contents.clear();
+            assertEquals(99, directory.list().length);
+        } finally {
+            for (File file : directory.listFiles())
+                file.delete();
+            directory.delete();
+        }
+    }
+    
+    private static TupleSerializer<Integer> intSerializer() {
+        return new TupleSerializer<Integer>() {
+            private static final long serialVersionUID = 1L;
+            @Override
+            public void serialize(Integer tuple, DataOutput out) throws IOException {
+                out.writeInt(tuple);
+            }
+            @Override
+            public Integer deserialize(DataInput in) throws IOException {
+                return in.readInt();
+            }
+        };
+    }
+    
+    /**
+     * Verifies that restored tuples keep their insertion
+     * times, so that tuples that expired since the checkpoint
+     * are evicted once the restored partition is evicted.
+     */
+    @Test
+    public void checkpointTimesTest() throws Exception {
+        ScheduledExecutorService ses = new ScheduledThreadPoolExecutor(1);
+        try {
+            Window<Integer, Integer, InsertionTimeList<Integer>> window = timeWindow(ses);
+            window.insert(1);
+            Thread.sleep(300);
+            window.insert(2);
+            HashMap<Integer, Serializable> contents = serializeCopy(Windows.checkpointContents(window));
+            Thread.sleep(200);
+            
+            Window<Integer, Integer, InsertionTimeList<Integer>> restored = timeWindow(ses);
+            assertTrue(Windows.restoreContents(restored, 0, contents.get(0)));
+            assertEquals(Arrays.asList(1, 2), restored.getPartitions().get(0).getContents());
+            restored.getPartitions().get(0).evict();
+            assertEquals(Collections.singletonList(2), restored.getPartitions().get(0).getContents());
+        } finally {
+            ses.shutdownNow();
+        }
+    }
+    
+    private static Window<Integer, Integer, InsertionTimeList<Integer>> timeWindow(ScheduledExecutorService ses) {
+        Window<Integer, Integer, InsertionTimeList<Integer>> window = Windows.window(
+                alwaysInsert(),
+                Policies.scheduleEvictIfEmpty(400, TimeUnit.MILLISECONDS),
+                Policies.evictOlderWithProcess(400, TimeUnit.MILLISECONDS),
+                Policies.processOnInsert(),
+                unpartitioned(),
+                Policies.insertionTimeList());
+        window.registerPartitionProcessor((tuples, key) -> { });
+        window.registerScheduledExecutorService(ses);
+        return window;
+    }
+    
+    /**
+     * Verifies that the spilled tuples of a window are checkpointed
+     * and restored in their original order.
+     */
+    @Test
+    public void checkpointSpillingListTest() throws Exception {
+        File directory = Files.createTempDirectory("spill").toFile();
+        try {
+            Window<Integer, Integer, InsertionTimeList<Integer>> window = spillingWindow(directory);
+            for (int i = 0; i < 50; i++)
+                window.insert(i);
+            HashMap<Integer, Serializable> contents = serializeCopy(Windows.checkpointContents(window));
+            
+            Window<Integer, Integer, InsertionTimeList<Integer>> restored = spillingWindow(directory);
+            Windows.restoreContents(restored, 0, contents.get(0));
+            assertEquals(window.getPartitions().get(0).getContents(),
+                    restored.getPartitions().get(0).getContents());
+            assertEquals(50, restored.getPartitions().get(0).getContents().size());
+        } finally {
+            for (File file : directory.listFiles())
+                file.delete();
+            directory.delete();
+        }
+    }
+    
+    private static Window<Integer, Integer, InsertionTimeList<Integer>> spillingWindow(File directory) {
+        Window<Integer, Integer, InsertionTimeList<Integer>> window = Windows.window(
+                alwaysInsert(),
+                (partition, tuple) -> { },
+                partition -> { },
+                (partition, tuple) -> { },
+                unpartitioned(),
+                Policies.spillingInsertionTimeList(10, intSerializer(), directory, 256));
+        window.registerPartitionProcessor((tuples, key) -> { });
+        return window;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <S extends Serializable> S serializeCopy(S object) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (S) in.readObject();
+        }
+    }
+    
+    /**
+     * Verifies that concurrent insertion into distinct and shared
+     * partitions creates a single partition per key and loses no tuples.
+     */
+    @Test
+    public void concurrentPartitionsTest() throws Exception {
+        final int THREADS = 4;
+        final int KEYS = 500;
+        final int ROUNDS = 20;
+        Window<Integer, Integer, LinkedList<Integer>> window = Windows.window(
+                alwaysInsert(),
+                Policies.doNothing(),
+                partition -> {},
+                Policies.doNothing(),
+                tuple -> tuple % KEYS,
+                () -> new LinkedList<Integer>());
+        
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(new Thread(() -> {
+                for (int r = 0; r < ROUNDS; r++)
+                    for (int k = 0; k < KEYS; k++)
+                        window.insert(k);
+            }));
+        }
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+        
+        Map<Integer, Partition<Integer, Integer, LinkedList<Integer>>> partitions = window.getPartitions();
+        assertEquals(KEYS, partitions.size());
+        for (int k = 0; k < KEYS; k++) {
+            Partition<Integer, Integer, LinkedList<Integer>> partition = partitions.get(k);
+            assertEquals(Integer.valueOf(k), partition.getKey());
+            assertEquals(THREADS * ROUNDS, partition.getContents().size());
+        }
+        
+        try {
+            partitions.clear();
+            fail("getPartitions() returned a modifiable map");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+    
+    /**
+     * Verifies that a window with a maximum number of partitions
+     * removes the least recently used partition.
+     */
+    @Test
+    public void maxPartitionsTest() {
+        List<Integer> removed = new ArrayList<>();
+        Window<Integer, Integer, LinkedList<Integer>> window = Windows.window(
+                alwaysInsert(),
+                Policies.countContentsPolicy(2),
+                Policies.evictOldest(),
+                Policies.doNothing(),
+                tuple -> tuple,
+                () -> new LinkedList<Integer>(),
+                3, 0, TimeUnit.SECONDS);
+        window.registerPartitionRemovalListener(partition -> {
+            // Called before the contents are discarded.
+            assertTrue(partition.getContents().contains(partition.getKey()));
+            removed.add(partition.getKey());
+        });
+        
+        for (int key = 0; key < 3; key++)
+            window.insert(key);
+        // Make key 0 the most recently used.
+        window.insert(0);
+        window.insert(3);
+        window.insert(4);
+        
+        assertEquals(3, window.getPartitions().size());
+        assertEquals(Arrays.asList(1, 2), removed);
+        assertEquals(2, window.getEvictedPartitionCount());
+        assertEquals(2, window.getPartitions().get(0).getContents().size());
+        
+        // A removed key starts with an empty partition.
+        window.insert(1);
+        assertEquals(1, window.getPartitions().get(1).getContents().size());
+        assertEquals(3, window.getEvictedPartitionCount());
+    }
+    
+    /**
+     * Verifies that a window with an idle time removes
+     * partitions that have not had a tuple inserted.
+     */
+    @Test
+    public void idlePartitionsTest() throws Exception {
+        Window<Integer, Integer, LinkedList<Integer>> window = Windows.window(
+                alwaysInsert(),
+                Policies.countContentsPolicy(2),
+                Policies.evictOldest(),
+                Policies.doNothing(),
+                tuple -> tuple,
+                () -> new LinkedList<Integer>(),
+                0, 200, TimeUnit.MILLISECONDS);
+        
+        for (int key = 0; key < 100; key++)
+            window.insert(key);
+        assertEquals(100, window.getPartitions().size());
+        
+        Thread.sleep(400);
+        window.insert(100);
+        assertEquals(1, window.getPartitions().size());
+        assertEquals(100, window.getEvictedPartitionCount());
+    }
+    
+    /**
+     * Verifies that a window with an idle time and a scheduler
+     * removes idle partitions without further insertions.
+     */
+    @Test
+    public void idlePartitionsScheduledTest() throws Exception {
+        Window<Integer, Integer, LinkedList<Integer>> window = Windows.window(
+                alwaysInsert(),
+                Policies.countContentsPolicy(2),
+                Policies.evictOldest(),
+                Policies.doNothing(),
+                tuple -> tuple,
+                () -> new LinkedList<Integer>(),
+                0, 200, TimeUnit.MILLISECONDS);
+        ScheduledExecutorService ses = new ScheduledThreadPoolExecutor(1);
+        window.registerScheduledExecutorService(ses);
+        
+        try {
+            for (int key = 0; key < 100; key++)
+                window.insert(key);
+            assertEquals(100, window.getPartitions().size());
+            
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!window.getPartitions().isEmpty() && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertTrue(window.getPartitions().isEmpty());
+            assertEquals(100, window.getEvictedPartitionCount());
+            // No sweep is pending once the window has no partitions.
+            assertEquals(0, window.getTimerWheel().pending());
+        } finally {
+            ses.shutdownNow();
+        }
+    }
+    
+    /**
+     * Verifies the built-in incremental aggregators against
+     * recomputing the aggregation from the contents of a sliding count window.
+     */
+    @Test
+    public void incrementalAggregatorsTest() {
+        assertIncremental(Aggregators.count(), (tuples, key) -> (long) tuples.size());
+        assertIncremental(Aggregators.sum(v -> v), (tuples, key) -> {
+            double sum = 0;
+            for (Double v : tuples)
+                sum += v;
+            return sum;
+        });
+        assertIncremental(Aggregators.mean(v -> v), (tuples, key) -> mean(tuples));
+        assertIncremental(Aggregators.variance(v -> v), (tuples, key) -> {
+            if (tuples.size() < 2)
+                return null;
+            double mean = mean(tuples);
+            double sumSq = 0;
+            for (Double v : tuples)
+                sumSq += (v - mean) * (v - mean);
+            return sumSq / (tuples.size() - 1);
+        });
+        assertIncremental(Aggregators.min(v -> v), (tuples, key) -> Collections.min(tuples));
+        assertIncremental(Aggregators.max(v -> v), (tuples, key) -> Collections.max(tuples));
+    }
+    
+    /**
+     * Verifies that min and max recover once a {@code NaN}
+     * value is evicted from the window.
+     */
+    @Test
+    public void extremeAggregatorsNaNTest() {
+        assertExtremeNaN(Aggregators.min(v -> v), Collections::min, 1.0);
+        assertExtremeNaN(Aggregators.max(v -> v), Collections::max, 3.0);
+    }
+    
+    private static <A> void assertExtremeNaN(
+            IncrementalAggregator<Double, A, Double> aggregator,
+            Function<List<Double>, Double> expected, double last) {
+        IncrementalAggregation<Double, Integer, A, Double> aggregation = new IncrementalAggregation<>(aggregator);
+        Window<Double, Integer, LinkedList<Double>> window = Windows.window(
+                alwaysInsert(),
+                Policies.countContentsPolicy(3),
+                aggregation.evictOldest(),
+                aggregation.addAndProcess(),
+                tuple -> 0,
+                () -> new LinkedList<Double>());
+        
+        List<Double> results = new ArrayList<>();
+        window.registerPartitionProcessor((tuples, key) -> {
+            Double actual = aggregation.result(key);
+            assertEquals(expected.apply(tuples), actual, 0.0);
+            results.add(actual);
+        });
+        
+        window.insert(Double.NaN);
+        for (int i = 0; i < 10; i++)
+            window.insert((double) (10 - i));
+        
+        // The window finally holds 3, 2 and 1.
+        assertEquals(11, results.size());
+        assertEquals(last, results.get(results.size() - 1), 0.0);
+    }
+    
+    private static double mean(List<Double> tuples) {
+        double sum = 0;
+        for (Double v : tuples)
+            sum += v;
+        return sum / tuples.size();
+    }
+    
+    private static <A, U extends Number> void assertIncremental(
+            IncrementalAggregator<Double, A, U> aggregator,
+            BiFunction<List<Double>, Integer, U> expected) {
+        final int COUNT = 1000;
+        IncrementalAggregation<Double, Integer, A, U> aggregation = new IncrementalAggregation<>(aggregator);
+        Window<Double, Integer, LinkedList<Double>> window = Windows.window(
+                alwaysInsert(),
+                Policies.countContentsPolicy(10),
+                aggregation.evictOldest(),
+                aggregation.addAndProcess(),
+                tuple -> tuple.intValue() % 3,
+                () -> new LinkedList<Double>());
+        
+        List<Integer> processed = new ArrayList<>();
+        window.registerPartitionProcessor((tuples, key) -> {
+            U actual = aggregation.result(key);
+            U recomputed = expected.apply(tuples, key);
+            if (recomputed == null)
+                assertNull(actual);
+            else
+                assertEquals(recomputed.doubleValue(), actual.doubleValue(), 1e-9);
+            processed.add(key);
+        });
+        
+        Random r = new Random(42);
+        for (int i = 0; i < COUNT; i++)
+            window.insert(r.nextInt(1000) + r.nextDouble());
+        assertEquals(COUNT, processed.size());
+    }
+    
     private void assertOnTimeEvictions(List<Long> diffs) {
         double tolerance = .08;
         for(int i = 1; i < diffs.size(); i++){
@@ -18,10 +18,19 @@ under the License.
 */
 package quarks.providers.direct;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import quarks.execution.Configs;
 import quarks.execution.DirectSubmitter;
 import quarks.execution.Job;
 import quarks.execution.services.ServiceContainer;
@@ -46,11 +55,22 @@ import quarks.topology.spi.AbstractTopologyProvider;
  * Hence a job with such sources runs until either it or some other
  * entity terminates it.
  * </P>
+ * <P>
+ * Jobs submitted with the {@link Configs#SHARED_POOL sharedPool}
+ * configuration property schedule their tasks, the control tasks
+ * that initialize, start and close their oplets, and their
+ * per-tuple tasks on thread pools shared across those jobs. The pools are created when first required
+ * and shut down once all the jobs using them have been closed.
+ * </P>
  */
 public class DirectProvider extends AbstractTopologyProvider<DirectTopology>
         implements DirectSubmitter<Topology, Job> {
 
     private final ServiceContainer services;
+    private ScheduledThreadPoolExecutor sharedPool;
+    private ScheduledThreadPoolExecutor sharedControlPool;
+    private ForkJoinPool sharedTaskPool;
+    private int sharedPoolJobs;
     
     public DirectProvider() {
         this.services = new ServiceContainer();
@@ -80,6 +100,72 @@ public class DirectProvider extends AbstractTopologyProvider<DirectTopology>
     
     @Override
     public Future<Job> submit(Topology topology, JsonObject config) {
-        return ((DirectTopology) topology).executeCallable(config);
+        DirectTopology dt = (DirectTopology) topology;
+        JsonElement value = null;
+        if (config != null)
+            value = config.get(Configs.SHARED_POOL);
+        if (value != null && value.isJsonPrimitive() && value.getAsBoolean())
+            useSharedPools(dt);
+        return dt.executeCallable(config);
+    }
+
+    /**
+     * Run a job on the pools shared by jobs submitted with {@link Configs#SHARED_POOL},
+     * creating them if required. The pools are shut down when
+     * the last job using them is closed.
+     */
+    private synchronized void useSharedPools(DirectTopology dt) {
+        if (sharedPoolJobs++ == 0) {
+            sharedPool = newSharedPool("-shared");
+            sharedControlPool = newSharedPool("-shared-control");
+            sharedTaskPool = newSharedTaskPool("-shared-task");
+        }
+        final ScheduledExecutorService pool = sharedPool;
+        dt.getExecutable().setSharedSchedulers(pool, sharedControlPool, sharedTaskPool,
+                () -> releaseSharedPools(pool));
+    }
+
+    private synchronized void releaseSharedPools(ScheduledExecutorService pool) {
+        // Ignore a release by a job of pools that have already been replaced.
+        if (pool != sharedPool || --sharedPoolJobs != 0)
+            return;
+        sharedPool.shutdown();
+        sharedControlPool.shutdown();
+        sharedTaskPool.shutdown();
+        sharedPool = null;
+        sharedControlPool = null;
+        sharedTaskPool = null;
+    }
+
+    /**
+     * Create a shared pool, its threads are daemon
+     * threads and terminate when idle.
+     */
+    private static ScheduledThreadPoolExecutor newSharedPool(String suffix) {
+        ThreadFactory threads = Executors.defaultThreadFactory();
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(
+                Runtime.getRuntime().availableProcessors() * 4, r -> {
+                    Thread t = threads.newThread(r);
+                    t.setName(t.getName() + suffix);
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.setKeepAliveTime(1, TimeUnit.SECONDS);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Create the shared pool for per-tuple tasks, its
+     * worker threads are daemon threads and terminate when idle.
+     */
+    private static ForkJoinPool newSharedTaskPool(String suffix) {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors() * 4,
+                pool -> {
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setName(t.getName() + suffix);
+                    return t;
+                },
+                null, true /* FIFO for tasks that are never joined */);
     }
 }
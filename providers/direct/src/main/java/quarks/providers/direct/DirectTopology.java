@@ -18,8 +18,10 @@ under the License.
 */
 package quarks.providers.direct;
 
+import java.io.File;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
@@ -105,8 +107,54 @@ public class DirectTopology extends GraphTopology<DirectTester> {
         JsonElement value = null;
         if (config != null) 
             value = config.get(Configs.JOB_NAME);
+        // Checkpoints are identified by the job's name if one is
+        // specified, otherwise by the topology's name, as the
+        // generated job name differs on each submission.
+        String checkpointName = getName();
+        if (value != null && !(value instanceof JsonNull)) {
+            checkpointName = value.getAsString();
+            ((EtiaoJob)getJob()).setName(checkpointName); 
+        }
+        
+        value = null;
+        if (config != null) 
+            value = config.get(Configs.FUSE_OPERATORS);
+        if (value != null && !(value instanceof JsonNull))
+            getExecutable().setFuseOperators(value.getAsBoolean());
+
+        value = null;
+        if (config != null) 
+            value = config.get(Configs.VIRTUAL_THREADS);
+        if (value != null && !(value instanceof JsonNull))
+            getExecutable().setVirtualThreads(value.getAsBoolean());
+
+        value = null;
+        if (config != null) 
+            value = config.get(Configs.USER_POOL_SIZE);
         if (value != null && !(value instanceof JsonNull))
-            ((EtiaoJob)getJob()).setName(value.getAsString()); 
+            getExecutable().setUserPoolSize(value.getAsInt());
+
+        value = null;
+        if (config != null) 
+            value = config.get(Configs.CONTROL_POOL_SIZE);
+        if (value != null && !(value instanceof JsonNull))
+            getExecutable().setControlPoolSize(value.getAsInt());
+
+        value = null;
+        if (config != null) 
+            value = config.get(Configs.THREAD_PRIORITY);
+        if (value != null && !(value instanceof JsonNull))
+            getExecutable().setThreadPriority(value.getAsInt());
+
+        value = null;
+        if (config != null) 
+            value = config.get(Configs.CHECKPOINT_DIRECTORY);
+        if (value != null && !(value instanceof JsonNull)) {
+            JsonElement period = config.get(Configs.CHECKPOINT_PERIOD);
+            getExecutable().setCheckpoint(new File(value.getAsString()), checkpointName,
+                    period != null && !(period instanceof JsonNull) ? period.getAsLong() : 10000L,
+                    TimeUnit.MILLISECONDS);
+        }
         return getExecutable().getScheduler().submit(getCallable());
     }
 
@@ -18,12 +18,22 @@ under the License.
 */
 package quarks.test.providers.direct;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -36,14 +46,25 @@ import com.google.gson.JsonObject;
 
 import quarks.execution.Configs;
 import quarks.execution.Job;
+import quarks.function.Function;
+import quarks.graph.Connector;
+import quarks.graph.Graph;
 import quarks.graph.Vertex;
 import quarks.oplet.Oplet;
 import quarks.oplet.core.PeriodicSource;
 import quarks.oplet.core.Pipe;
+import quarks.oplet.core.Sink;
+import quarks.oplet.functional.Events;
+import quarks.oplet.functional.Map;
+import quarks.oplet.plumbing.BoundedIsolate;
+import quarks.oplet.plumbing.OverflowPolicy;
 import quarks.providers.direct.DirectProvider;
 import quarks.test.topology.TopologyAbstractTest;
 import quarks.topology.TStream;
+import quarks.topology.TWindow;
 import quarks.topology.Topology;
+import quarks.topology.plumbing.PlumbingStreams;
+import quarks.topology.tester.Condition;
 
 public class DirectJobTest extends TopologyAbstractTest implements DirectTestSetup {
     @Test
@@ -198,6 +219,188 @@ public class DirectJobTest extends TopologyAbstractTest implements DirectTestSet
         assertEquals("", job.getLastError());
     }
 
+    @Test
+    public void jobPauseResume() throws Exception {
+        Topology t = newTopology();
+        AtomicInteger n = new AtomicInteger(0);
+        @SuppressWarnings("unused")
+        TStream<Integer> ints = t.poll(() -> n.incrementAndGet(), 50, TimeUnit.MILLISECONDS);
+
+        Future<Job> fj = ((DirectProvider)getTopologyProvider()).submit(t);
+        Job job = fj.get();
+        assertEquals(Job.State.RUNNING, job.getCurrentState());
+        Thread.sleep(500);
+        assertTrue(n.get() > 0);
+
+        job.stateChange(Job.Action.PAUSE);
+        assertEquals(Job.State.PAUSED, job.getCurrentState());
+        Thread.sleep(100); // allow an in-progress poll to complete
+        int paused = n.get();
+        Thread.sleep(500);
+        assertEquals(paused, n.get());
+
+        // a paused job is not complete
+        try {
+            job.complete(200, TimeUnit.MILLISECONDS);
+            assertTrue("paused job completed", false);
+        } catch (TimeoutException e) {
+            // expected
+        }
+
+        job.stateChange(Job.Action.RESUME);
+        assertEquals(Job.State.RUNNING, job.getCurrentState());
+        Thread.sleep(500);
+        assertTrue("Expected more tuples than " + paused, n.get() > paused);
+
+        job.stateChange(Job.Action.CLOSE);
+        assertEquals(Job.State.CLOSED, job.getCurrentState());
+    }
+
+    @Test
+    public void jobPauseEvents() throws Exception {
+        Topology t = newTopology();
+        AtomicInteger submitted = new AtomicInteger(0);
+        AtomicInteger received = new AtomicInteger(0);
+        TStream<Integer> events = t.events(submitter -> {
+            Thread producer = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    submitter.accept(submitted.incrementAndGet());
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            });
+            producer.setDaemon(true);
+            producer.start();
+        });
+        events.sink(v -> received.incrementAndGet());
+
+        Future<Job> fj = ((DirectProvider)getTopologyProvider()).submit(t);
+        Job job = fj.get();
+        Thread.sleep(300);
+
+        job.stateChange(Job.Action.PAUSE);
+        Thread.sleep(100);
+        int paused = received.get();
+        Thread.sleep(300);
+        // the producer is blocked until the job is resumed
+        assertEquals(paused, received.get());
+        assertTrue(submitted.get() <= paused + 1);
+
+        job.stateChange(Job.Action.RESUME);
+        Thread.sleep(300);
+        assertTrue("Expected more tuples than " + paused, received.get() > paused);
+
+        job.stateChange(Job.Action.CLOSE);
+        assertEquals(Job.State.CLOSED, job.getCurrentState());
+    }
+
+    @Test
+    public void jobClosePaused() throws Exception {
+        Topology t = newTopology();
+        AtomicInteger n = new AtomicInteger(0);
+        AtomicInteger submitted = new AtomicInteger(0);
+        AtomicInteger received = new AtomicInteger(0);
+        Thread[] producer = new Thread[1];
+        t.poll(() -> n.incrementAndGet(), 50, TimeUnit.MILLISECONDS);
+        TStream<Integer> events = t.events(submitter -> {
+            producer[0] = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    submitter.accept(submitted.incrementAndGet());
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            });
+            producer[0].setDaemon(true);
+            producer[0].start();
+        });
+        events.sink(v -> received.incrementAndGet());
+
+        Future<Job> fj = ((DirectProvider)getTopologyProvider()).submit(t);
+        Job job = fj.get();
+        Thread.sleep(300);
+
+        job.stateChange(Job.Action.PAUSE);
+        Thread.sleep(100);
+        int polled = n.get();
+        int paused = received.get();
+        int blocked = submitted.get();
+
+        job.stateChange(Job.Action.CLOSE);
+        assertEquals(Job.State.CLOSED, job.getCurrentState());
+        Thread.sleep(300);
+        try {
+            // the producer is released but its tuples are discarded
+            assertTrue("producer still blocked", submitted.get() > blocked);
+            assertEquals(paused, received.get());
+            // the periodic source is not rescheduled
+            assertEquals(polled, n.get());
+        } finally {
+            producer[0].interrupt();
+        }
+    }
+
+    @Test
+    public void jobCloseBlockedIsolate() throws Exception {
+        Topology t = newTopology();
+        Graph g = t.graph();
+        AtomicInteger received = new AtomicInteger(0);
+        List<Thread> producers = new CopyOnWriteArrayList<>();
+        CountDownLatch hold = new CountDownLatch(1);
+        
+        // Events without the isolate added by Topology.events, so that
+        // the external producers submit directly to the bounded isolate.
+        Connector<Integer> events = g.source(new Events<Integer>(submitter -> {
+            // producers racing for demand, so that
+            // some wait for space in the isolate
+            for (int p = 0; p < 8; p++) {
+                Thread producer = new Thread(() -> {
+                    for (int i = 0; i < 100; i++)
+                        submitter.accept(i);
+                });
+                producer.setDaemon(true);
+                producers.add(producer);
+                producer.start();
+            }
+        }));
+        // widen the gap between the demand check and the isolate
+        Connector<Integer> slow = g.pipe(events, new Map<Integer,Integer>(v -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return v;
+        }));
+        Connector<Integer> isolated = g.pipe(slow, new BoundedIsolate<Integer>(4, OverflowPolicy.block()));
+        isolated.connect(g.insert(new Sink<Integer>(v -> {
+            received.incrementAndGet();
+            try {
+                hold.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }), 1, 0), 0);
+
+        Future<Job> fj = ((DirectProvider)getTopologyProvider()).submit(t);
+        Job job = fj.get();
+        Thread.sleep(500);
+        assertEquals(1, received.get());
+
+        job.stateChange(Job.Action.CLOSE);
+        assertEquals(Job.State.CLOSED, job.getCurrentState());
+        // producers are released by the closed job
+        for (Thread producer : producers) {
+            producer.join(5000);
+            assertTrue("producer still blocked", !producer.isAlive());
+        }
+    }
+
     @Test
     public void jobProcessSource() throws Exception {
         Topology t = newTopology();
@@ -278,6 +481,316 @@ public class DirectJobTest extends TopologyAbstractTest implements DirectTestSet
         }
     }
 
+    @Test
+    public void jobUnorderedIsolateError() throws Exception {
+        Topology t = newTopology();
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            values.add(i);
+        AtomicInteger processed = new AtomicInteger();
+        PlumbingStreams.isolate(t.collection(values), false)
+                .peek(v -> processed.incrementAndGet())
+                .pipe(new FailedOplet<Integer>(12, 10));
+
+        Future<Job> fj = ((DirectProvider)getTopologyProvider()).submit(t);
+        Job job = fj.get();
+        try {
+            job.complete(10, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            // expected
+        }
+        assertEquals(Job.Health.UNHEALTHY, job.getHealth());
+        assertEquals("Expected Test Exception", job.getLastError());
+
+        // Tuple tasks that had not started when the task failed are not run.
+        Thread.sleep(500);
+        int count = processed.get();
+        assertTrue("processed:" + count, count < values.size());
+        Thread.sleep(200);
+        assertEquals(count, processed.get());
+        job.stateChange(Job.Action.CLOSE);
+    }
+
+    @Test
+    public void jobFusedOperators() throws Exception {
+        Topology t = newTopology();
+        AtomicInteger peeked = new AtomicInteger();
+        TStream<String> s = t.strings("a", "bb", "ccc", "dddd", "eeeee")
+                .map(v -> v.length())
+                .filter(v -> v % 2 == 1)
+                .peek(v -> peeked.incrementAndGet())
+                .map(v -> v == 3 ? null : "L" + v)
+                .modify(v -> v + "!");
+
+        JsonObject config = new JsonObject();
+        config.addProperty(Configs.FUSE_OPERATORS, true);
+        Condition<Long> tc = t.getTester().tupleCount(s, 2);
+        Condition<List<String>> contents = t.getTester().streamContents(s, "L1!", "L5!");
+        int vertices = t.graph().getVertices().size();
+        t.getTester().complete(getSubmitter(), config, tc, 10, TimeUnit.SECONDS);
+
+        assertTrue("contents:" + contents.getResult(), contents.valid());
+        assertEquals(3, peeked.get());
+        // Fusion does not change the logical graph
+        assertEquals(vertices, t.graph().getVertices().size());
+    }
+
+    @Test
+    public void jobVirtualThreads() throws Exception {
+        Topology t = newTopology();
+        TStream<String> s = PlumbingStreams.isolate(t.strings("a", "b", "c"), true);
+
+        // Virtual threads are used when supported, the job
+        // must complete in either case.
+        JsonObject config = new JsonObject();
+        config.addProperty(Configs.VIRTUAL_THREADS, true);
+        Condition<Long> tc = t.getTester().tupleCount(s, 3);
+        Condition<List<String>> contents = t.getTester().streamContents(s,
+                "a", "b", "c");
+        t.getTester().complete(getSubmitter(), config, tc, 10, TimeUnit.SECONDS);
+
+        assertTrue("contents:" + contents.getResult(), contents.valid());
+    }
+
+    @Test
+    public void jobPoolSizing() throws Exception {
+        Topology t = newTopology();
+        TStream<String> s = PlumbingStreams.isolate(t.strings("a", "b"), true)
+                .map(v -> v + Thread.currentThread().getPriority());
+
+        JsonObject config = new JsonObject();
+        config.addProperty(Configs.USER_POOL_SIZE, 1);
+        config.addProperty(Configs.CONTROL_POOL_SIZE, 1);
+        config.addProperty(Configs.THREAD_PRIORITY, Thread.MIN_PRIORITY);
+        Condition<Long> tc = t.getTester().tupleCount(s, 2);
+        Condition<List<String>> contents = t.getTester().streamContents(s,
+                "a" + Thread.MIN_PRIORITY, "b" + Thread.MIN_PRIORITY);
+        t.getTester().complete(getSubmitter(), config, tc, 10, TimeUnit.SECONDS);
+
+        assertTrue("contents:" + contents.getResult(), contents.valid());
+    }
+
+    @Test
+    public void jobPoolSizingExecutor() throws Exception {
+        Topology t = newTopology();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        TStream<String> s = PlumbingStreams.isolate(t.strings(values(20)), false)
+                .peek(v -> {
+                    int n = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(n, Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                });
+
+        // the pool size also limits the executor running per-tuple tasks
+        JsonObject config = new JsonObject();
+        config.addProperty(Configs.USER_POOL_SIZE, 1);
+        Condition<Long> tc = t.getTester().tupleCount(s, 20);
+        t.getTester().complete(getSubmitter(), config, tc, 10, TimeUnit.SECONDS);
+
+        assertTrue("tuples:" + tc.getResult(), tc.valid());
+        assertEquals(1, maxRunning.get());
+    }
+
+    private static String[] values(int n) {
+        String[] values = new String[n];
+        for (int i = 0; i < n; i++)
+            values[i] = Integer.toString(i);
+        return values;
+    }
+
+    @Test
+    public void jobSharedPool() throws Exception {
+        JsonObject config = new JsonObject();
+        config.addProperty(Configs.SHARED_POOL, true);
+
+        // the pools are recreated for the second job
+        // as the first job was closed
+        for (int i = 0; i < 2; i++) {
+            Topology t = newTopology();
+            List<String> threads = new CopyOnWriteArrayList<>();
+            List<String> taskThreads = new CopyOnWriteArrayList<>();
+            TStream<String> s = t.poll(() -> {
+                threads.add(Thread.currentThread().getName());
+                return "p";
+            }, 10, TimeUnit.MILLISECONDS);
+            s = PlumbingStreams.isolate(s, false)
+                    .peek(v -> taskThreads.add(Thread.currentThread().getName()));
+            Condition<Long> tc = t.getTester().atLeastTupleCount(s, 3);
+            assertTrue("tuples:" + tc.getResult(),
+                    t.getTester().complete(getSubmitter(), config, tc, 10, TimeUnit.SECONDS));
+            for (String thread : threads)
+                assertTrue(thread, thread.endsWith("-shared"));
+            assertTrue(!taskThreads.isEmpty());
+            for (String thread : taskThreads)
+                assertTrue(thread, thread.endsWith("-shared-task"));
+        }
+
+        // finite job completes when its tasks on the shared pool complete
+        Topology t = newTopology();
+        AtomicInteger count = new AtomicInteger();
+        PlumbingStreams.isolate(t.strings("a", "b", "c"), false).sink(v -> count.incrementAndGet());
+        Job job = awaitCompleteExecution(t, config);
+        assertEquals(Job.State.RUNNING, job.getCurrentState());
+        assertEquals(3, count.get());
+        job.stateChange(Job.Action.CLOSE);
+        assertEquals(Job.State.CLOSED, job.getCurrentState());
+    }
+
+    @Test
+    public void jobCheckpointRestore() throws Exception {
+        File directory = Files.createTempDirectory("checkpoint").toFile();
+        try {
+            JsonObject config = new JsonObject();
+            config.addProperty(Configs.JOB_NAME, "sums");
+            config.addProperty(Configs.CHECKPOINT_DIRECTORY, directory.getAbsolutePath());
+            config.addProperty(Configs.CHECKPOINT_PERIOD, 50);
+
+            // The window's contents are checkpointed when the job is closed.
+            List<Integer> sums = new CopyOnWriteArrayList<>();
+            Job job = awaitCompleteExecution(windowSums(Arrays.asList(1, 2, 3, 4, 5), sums, false), config);
+            job.stateChange(Job.Action.CLOSE);
+            assertEquals(Arrays.asList(1, 3, 6, 10, 15), sums);
+            assertArrayEquals(new String[] {"sums"}, directory.list());
+            assertEquals(1, new File(directory, "sums").list().length);
+
+            // A job with a different name does not restore the checkpoint.
+            JsonObject otherConfig = new JsonObject();
+            otherConfig.addProperty(Configs.JOB_NAME, "other");
+            otherConfig.addProperty(Configs.CHECKPOINT_DIRECTORY, directory.getAbsolutePath());
+            sums.clear();
+            job = awaitCompleteExecution(windowSums(Arrays.asList(6, 7), sums, false), otherConfig);
+            job.stateChange(Job.Action.CLOSE);
+            assertEquals(Arrays.asList(6, 13), sums);
+
+            // Nor does a job with the same name but a different topology.
+            sums.clear();
+            job = awaitCompleteExecution(windowSums(Arrays.asList(6, 7), sums, true), config);
+            job.stateChange(Job.Action.CLOSE);
+            assertEquals(Arrays.asList(6, 13), sums);
+
+            // The restarted job's window starts with the checkpointed contents,
+            // the previous job overwrote the checkpoint with [6, 7].
+            sums.clear();
+            job = awaitCompleteExecution(windowSums(Arrays.asList(8, 9), sums, true), config);
+            job.stateChange(Job.Action.CLOSE);
+            assertEquals(Arrays.asList(21, 30), sums);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void jobCheckpointRestoreSession() throws Exception {
+        File directory = Files.createTempDirectory("checkpoint").toFile();
+        try {
+            JsonObject config = new JsonObject();
+            config.addProperty(Configs.JOB_NAME, "sessions");
+            config.addProperty(Configs.CHECKPOINT_DIRECTORY, directory.getAbsolutePath());
+
+            // The job is closed, without waiting for its window, while the session is open.
+            List<Integer> sums = new CopyOnWriteArrayList<>();
+            Job job = submitAndWait(windowSums(Arrays.asList(1, 2, 3), sums,
+                    s -> s.session(1, TimeUnit.SECONDS, tuple -> 0)), config);
+            job.stateChange(Job.Action.CLOSE);
+            assertEquals(Collections.emptyList(), sums);
+
+            // The gap ends while the job is not running, the session
+            // is closed and its result submitted when the job restarts.
+            Thread.sleep(1500);
+            job = awaitCompleteExecution(windowSums(Collections.<Integer>emptyList(), sums,
+                    s -> s.session(1, TimeUnit.SECONDS, tuple -> 0)), config);
+            job.stateChange(Job.Action.CLOSE);
+            assertEquals(Collections.singletonList(6), sums);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void jobCheckpointRestoreTumbling() throws Exception {
+        // Timing variances on shared machines can cause this test to fail
+        assumeTrue(!Boolean.getBoolean("quarks.build.ci"));
+
+        File directory = Files.createTempDirectory("checkpoint").toFile();
+        try {
+            JsonObject config = new JsonObject();
+            config.addProperty(Configs.JOB_NAME, "tumbling");
+            config.addProperty(Configs.CHECKPOINT_DIRECTORY, directory.getAbsolutePath());
+
+            // The job is closed before the end of the period
+            // that the tuples are inserted in.
+            final long period = 2000;
+            Thread.sleep(period - System.currentTimeMillis() % period + 50);
+            List<Integer> sums = new CopyOnWriteArrayList<>();
+            Job job = submitAndWait(windowSums(Arrays.asList(1, 2, 3), sums,
+                    s -> s.tumbling(period, TimeUnit.MILLISECONDS, tuple -> 0)), config);
+            job.stateChange(Job.Action.CLOSE);
+            assertEquals(Collections.emptyList(), sums);
+
+            // The period ends while the job is not running, its
+            // window is processed when the job restarts.
+            Thread.sleep(period - System.currentTimeMillis() % period + 50);
+            job = awaitCompleteExecution(windowSums(Collections.<Integer>emptyList(), sums,
+                    s -> s.tumbling(period, TimeUnit.MILLISECONDS, tuple -> 0)), config);
+            job.stateChange(Job.Action.CLOSE);
+            assertEquals(Collections.singletonList(6), sums);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Submit a job and briefly wait for its tuples to be processed,
+     * without waiting for the job to complete.
+     */
+    private Job submitAndWait(Topology t, JsonObject config) throws Exception {
+        Job job = ((DirectProvider)getTopologyProvider()).submit(t, config).get();
+        Thread.sleep(200);
+        return job;
+    }
+
+    private Topology windowSums(List<Integer> values, List<Integer> sums,
+            Function<TStream<Integer>, TWindow<Integer, Integer>> window) {
+        Topology t = newTopology();
+        window.apply(t.collection(values)).aggregate((tuples, key) -> {
+            int sum = 0;
+            for (Integer tuple : tuples)
+                sum += tuple;
+            return sum;
+        }).sink(sum -> sums.add(sum));
+        return t;
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files)
+                delete(child);
+        }
+        file.delete();
+    }
+
+    private Topology windowSums(List<Integer> values, List<Integer> sums, boolean filter) {
+        Topology t = newTopology();
+        TStream<Integer> s = t.collection(values);
+        if (filter)
+            s = s.filter(v -> v > 0);
+        s.last(5, tuple -> 0).aggregate((tuples, key) -> {
+            int sum = 0;
+            for (Integer tuple : tuples)
+                sum += tuple;
+            return sum;
+        }).sink(sum -> sums.add(sum));
+        return t;
+    }
+
     private Job awaitCompleteExecution(Topology t) throws InterruptedException, ExecutionException {
         return awaitCompleteExecution(t, null);
     }
@@ -0,0 +1,194 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.runtime.etiao;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import quarks.function.Consumer;
+import quarks.oplet.Oplet;
+
+/**
+ * Local file store for checkpoints of oplet state.
+ * <P>
+ * The state of each oplet is held in its own file, named by the
+ * oplet's identifier, containing the state's Java serialized form
+ * preceded by the oplet's class name and a fingerprint of the
+ * topology. As oplet identifiers are positional, a checkpoint is
+ * only restored if both match, so that a changed topology does not
+ * restore state into a different oplet.
+ * Checkpoints are incremental, an oplet's file is only rewritten
+ * when the digest of its serialized state has changed since it
+ * was last written.
+ * A file is replaced by writing a temporary file and renaming it,
+ * so that a failure while writing leaves the previous checkpoint.
+ * </P>
+ */
+class CheckpointStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointStore.class);
+    private static final String SUFFIX = ".ckpt";
+    
+    private final File directory;
+    private String fingerprint = "";
+    
+    /**
+     * Digest of the serialized state last written for each oplet.
+     */
+    private final Map<String, byte[]> written = new HashMap<>();
+    
+    /**
+     * Create a store for a job's checkpoints.
+     * @param directory Directory holding the checkpoints of all jobs.
+     * @param jobName Name of the job, its checkpoints are held in a
+     * sub-directory of {@code directory} named from {@code jobName}.
+     */
+    CheckpointStore(File directory, String jobName) {
+        this.directory = new File(directory, jobName.replaceAll("[^A-Za-z0-9_\\-]", "_"));
+    }
+    
+    /**
+     * Set the topology whose oplets are checkpointed.
+     * The fingerprint covers each oplet's identifier, class
+     * and output connections. Must be called before chains
+     * are fused, as fusing changes the connections.
+     * @param invocations All of the executable's invocations.
+     */
+    synchronized void setTopology(List<Invocation<? extends Oplet<?, ?>, ?, ?>> invocations) {
+        Map<Consumer<?>, String> inputs = new IdentityHashMap<>();
+        for (Invocation<?, ?, ?> invocation : invocations) {
+            List<? extends Consumer<?>> ports = invocation.getInputs();
+            for (int i = 0; i < ports.size(); i++)
+                inputs.put(ports.get(i), invocation.getId() + "." + i);
+        }
+        StringBuilder topology = new StringBuilder();
+        for (Invocation<?, ?, ?> invocation : invocations) {
+            topology.append(invocation.getId()).append(' ').append(invocation.getOplet().getClass().getName());
+            for (int i = 0; i < invocation.getOutputCount(); i++)
+                topology.append(' ').append(inputs.get(invocation.getOutput(i)));
+            topology.append('\n');
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest(topology.toString().getBytes(StandardCharsets.UTF_8)))
+            hex.append(String.format("%02x", b));
+        fingerprint = hex.toString();
+    }
+    
+    /**
+     * Read an oplet's state.
+     * @param opletId Oplet identifier.
+     * @param opletClass Class of the oplet.
+     * @return the oplet's state, {@code null} if there is no checkpoint for the oplet
+     * or the checkpoint was taken from a different oplet or topology.
+     */
+    synchronized Serializable read(String opletId, Class<?> opletClass) throws IOException, ClassNotFoundException {
+        File file = new File(directory, opletId + SUFFIX);
+        if (!file.isFile())
+            return null;
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            String checkpointFingerprint = in.readUTF();
+            String checkpointClass = in.readUTF();
+            if (!opletClass.getName().equals(checkpointClass)) {
+                logger.warn("Ignoring checkpoint {} of oplet class {}, oplet {} is {}",
+                        file, checkpointClass, opletId, opletClass.getName());
+                return null;
+            }
+            if (!fingerprint.equals(checkpointFingerprint)) {
+                logger.warn("Ignoring checkpoint {} taken from a different topology", file);
+                return null;
+            }
+            Serializable state = (Serializable) in.readObject();
+            // Unknown digest, the next checkpoint rewrites the file.
+            written.put(opletId, new byte[0]);
+            return state;
+        }
+    }
+    
+    /**
+     * Write an oplet's state if it has changed.
+     * @param opletId Oplet identifier.
+     * @param opletClass Class of the oplet.
+     * @param state State of the oplet.
+     * @return {@code true} if the state was written, {@code false} if it was unchanged.
+     */
+    synchronized boolean write(String opletId, Class<?> opletClass, Serializable state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeUTF(fingerprint);
+            out.writeUTF(opletClass.getName());
+            out.writeObject(state);
+        }
+        byte[] serialized = bytes.toByteArray();
+        byte[] digest = digest(serialized);
+        if (Arrays.equals(digest, written.get(opletId)))
+            return false;
+        
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create checkpoint directory: " + directory);
+        File file = new File(directory, opletId + SUFFIX);
+        File temp = new File(directory, opletId + SUFFIX + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(serialized);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            // Some platforms do not rename over an existing file.
+            file.delete();
+            if (!temp.renameTo(file))
+                throw new IOException("Cannot replace checkpoint: " + file);
+        }
+        written.put(opletId, digest);
+        return true;
+    }
+    
+    private static byte[] digest(byte[] serialized) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(serialized);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * Remove an oplet's checkpoint as it no longer has state.
+     * @param opletId Oplet identifier.
+     */
+    synchronized void remove(String opletId) {
+        if (written.remove(opletId) != null)
+            new File(directory, opletId + SUFFIX).delete();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.runtime.etiao;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import quarks.function.Consumer;
+import quarks.oplet.Demand;
+import quarks.oplet.FlowControl;
+import quarks.oplet.Oplet;
+
+/**
+ * The demand of an invocation's downstream processing.
+ * <P>
+ * Credits are issued by the first {@link FlowControl} oplet on each
+ * path from the invocation's outputs, other oplets pass the demand
+ * for their outputs through to their inputs. The downstream demand
+ * is the minimum of the credits of those oplets, each of which
+ * may pass through its own downstream demand.
+ * </P>
+ * <P>
+ * Once {@link #release() released}, when the job is closed,
+ * the demand is unbounded so that no thread waits for
+ * credits that will never be issued.
+ * </P>
+ */
+final class DownstreamDemand implements Demand {
+
+    private final Demand[] demands;
+    private volatile boolean released;
+
+    private DownstreamDemand(Demand[] demands) {
+        this.demands = demands;
+    }
+
+    @Override
+    public long available() {
+        if (released)
+            return UNBOUNDED;
+        long available = UNBOUNDED;
+        for (Demand demand : demands)
+            available = Math.min(available, demand.available());
+        return available;
+    }
+
+    /**
+     * Waits on each exhausted demand in turn until
+     * all of them have a credit available.
+     */
+    @Override
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (;;) {
+            Demand exhausted = exhausted();
+            if (exhausted == null)
+                return true;
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            exhausted.await(remaining, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    private Demand exhausted() {
+        if (released)
+            return null;
+        for (Demand demand : demands) {
+            if (demand.available() <= 0)
+                return demand;
+        }
+        return null;
+    }
+    
+    /**
+     * Release any waiting threads, the demand is unbounded from now on.
+     */
+    void release() {
+        released = true;
+    }
+    
+    /**
+     * Number of credit issuing demands.
+     */
+    int size() {
+        return demands.length;
+    }
+
+    /**
+     * Find the downstream demand of each invocation.
+     * Must be called before chains are fused, as fusing
+     * disconnects the outputs of {@code Peek} oplets.
+     * 
+     * @param invocations All of the executable's invocations.
+     * @return Downstream demand of each invocation that has
+     * credit issuing oplets downstream.
+     */
+    static Map<Invocation<?, ?, ?>, DownstreamDemand> resolve(
+            List<Invocation<? extends Oplet<?, ?>, ?, ?>> invocations) {
+        Map<Consumer<?>, Invocation<?, ?, ?>> owners = new IdentityHashMap<>();
+        for (Invocation<?, ?, ?> invocation : invocations) {
+            for (Consumer<?> input : invocation.getInputs())
+                owners.put(input, invocation);
+        }
+        
+        Map<Invocation<?, ?, ?>, Set<Demand>> resolved = new IdentityHashMap<>();
+        Map<Invocation<?, ?, ?>, DownstreamDemand> demands = new IdentityHashMap<>();
+        for (Invocation<?, ?, ?> invocation : invocations) {
+            Set<Demand> downstream = outputDemands(invocation, owners, resolved);
+            if (!downstream.isEmpty())
+                demands.put(invocation, new DownstreamDemand(downstream.toArray(new Demand[downstream.size()])));
+        }
+        return demands;
+    }
+    
+    private static Set<Demand> outputDemands(Invocation<?, ?, ?> invocation,
+            Map<Consumer<?>, Invocation<?, ?, ?>> owners,
+            Map<Invocation<?, ?, ?>, Set<Demand>> resolved) {
+        Set<Demand> demands = resolved.get(invocation);
+        if (demands != null)
+            return demands;
+        demands = newSet();
+        resolved.put(invocation, demands);
+        for (int i = 0; i < invocation.getOutputCount(); i++) {
+            Invocation<?, ?, ?> target = owners.get(invocation.getOutput(i));
+            if (target != null)
+                demands.addAll(inputDemands(target, owners, resolved));
+        }
+        return demands;
+    }
+    
+    private static Set<Demand> inputDemands(Invocation<?, ?, ?> invocation,
+            Map<Consumer<?>, Invocation<?, ?, ?>> owners,
+            Map<Invocation<?, ?, ?>, Set<Demand>> resolved) {
+        Oplet<?, ?> oplet = invocation.getOplet();
+        if (!(oplet instanceof FlowControl))
+            return outputDemands(invocation, owners, resolved);
+        
+        Demand issued = ((FlowControl) oplet).getInputDemand();
+        if (issued == null)
+            return Collections.emptySet();
+        return Collections.singleton(issued);
+    }
+    
+    private static Set<Demand> newSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<Demand, Boolean>());
+    }
+}
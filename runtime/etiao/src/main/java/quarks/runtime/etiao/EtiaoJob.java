@@ -102,12 +102,21 @@ public class EtiaoJob extends AbstractGraphJob implements JobContext {
             executable().initialize();
             break;
         case START:
+            if (getCurrentState() != State.INITIALIZED)
+                throw new IllegalArgumentException(action.name());
             setNext(State.RUNNING, action);
             executable().start();
             break;
         case PAUSE:
+            setNext(State.PAUSED, action);
+            executable().pause();
+            break;
         case RESUME:
-            throw new UnsupportedOperationException(action.name());
+            if (getCurrentState() != State.PAUSED)
+                throw new IllegalArgumentException(action.name());
+            setNext(State.RUNNING, action);
+            executable().resume();
+            break;
         case CLOSE:
             // idempotent
             State s = setNext(State.CLOSED, action);
@@ -18,14 +18,20 @@ under the License.
 */
 package quarks.runtime.etiao;
 
+import java.io.File;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -38,6 +44,7 @@ import quarks.execution.services.RuntimeServices;
 import quarks.execution.services.ServiceContainer;
 import quarks.function.BiConsumer;
 import quarks.function.Consumer;
+import quarks.oplet.Demand;
 import quarks.oplet.Oplet;
 
 /**
@@ -50,9 +57,23 @@ public class Executable implements RuntimeServices {
     private final ThreadFactory controlThreads;
     private final BiConsumer<Object, Throwable> completionHandler;
     private final ThreadFactoryTracker userThreads;
-    private final TrackingScheduledExecutor controlScheduler;
-    private final TrackingScheduledExecutor userScheduler;
+    /**
+     * Schedulers, created when first required unless
+     * shared schedulers are set.
+     */
+    private volatile ScheduledExecutorService controlScheduler;
+    private volatile ScheduledExecutorService userScheduler;
+    private int controlPoolSize;
+    private int userPoolSize;
+    private Runnable sharedRelease;
+    private final TrackingForkJoinExecutor userExecutor;
     private Throwable lastError;
+    private boolean fuseOperators;
+    private volatile boolean paused;
+    private CheckpointStore checkpointStore;
+    private long checkpointPeriod;
+    private ScheduledFuture<?> checkpointer;
+    private Map<Invocation<?, ?, ?>, DownstreamDemand> demands = Collections.emptyMap();
     private static final Logger logger = LoggerFactory.getLogger(Executable.class);
 
     /**
@@ -84,7 +105,7 @@ public class Executable implements RuntimeServices {
             private static final long serialVersionUID = 1L;
 
             /**
-             * Handler invoked by userThreads, userScheduler, and controlScheduler,
+             * Handler invoked by userThreads, userScheduler, userExecutor and controlScheduler,
              * upon handling an uncaught exception from a user task or when they 
              * have completed all the tasks.
              * 
@@ -99,7 +120,7 @@ public class Executable implements RuntimeServices {
                     cleanup();
                 }
                 else if (job.getCurrentState() == Job.State.RUNNING &&
-                        (source == userScheduler || source == userThreads) &&
+                        (source == userScheduler || source == userThreads || source == userExecutor) &&
                         !hasActiveTasks()) {
                     logger.info("No more active user tasks");
                 }
@@ -107,8 +128,7 @@ public class Executable implements RuntimeServices {
             }  
         };
         this.userThreads = new ThreadFactoryTracker(job.getName(), controlThreads, completionHandler);
-        this.controlScheduler = TrackingScheduledExecutor.newScheduler(controlThreads, completionHandler);
-        this.userScheduler = TrackingScheduledExecutor.newScheduler(userThreads, completionHandler);
+        this.userExecutor = new TrackingForkJoinExecutor(job.getName(), completionHandler);
     }
 
     private ThreadFactory getThreads() {
@@ -121,10 +141,36 @@ public class Executable implements RuntimeServices {
      * 
      * @return the scheduler
      */
-    public ScheduledExecutorService getScheduler() {
+    public synchronized ScheduledExecutorService getScheduler() {
+        if (userScheduler == null)
+            userScheduler = newScheduler(userThreads, userPoolSize);
         return userScheduler;
     }
     
+    private synchronized ScheduledExecutorService getControlScheduler() {
+        if (controlScheduler == null)
+            controlScheduler = newScheduler(controlThreads, controlPoolSize);
+        return controlScheduler;
+    }
+    
+    private TrackingScheduledExecutor newScheduler(ThreadFactory threads, int poolSize) {
+        TrackingScheduledExecutor scheduler = TrackingScheduledExecutor.newScheduler(threads, completionHandler);
+        if (poolSize != 0)
+            scheduler.setCorePoolSize(poolSize);
+        return scheduler;
+    }
+    
+    /**
+     * Returns the {@code ExecutorService} used for immediate execution
+     * of tasks by executable graph elements, such as a task per tuple.
+     * Unlike {@link #getScheduler()} it does not support delayed or periodic tasks.
+     * 
+     * @return the executor
+     */
+    public ExecutorService getExecutor() {
+        return userExecutor;
+    }
+
     /**
      * Acts as a service provider for executable elements in the graph, first
      * looking for a service specific to this job, and then one from the 
@@ -155,19 +201,236 @@ public class Executable implements RuntimeServices {
     }
 
     /**
-     * Initializes the 
+     * Sets whether linear chains of pipe oplets are fused into a
+     * single stream handler when the executable is initialized.
+     * Must be called before {@link #initialize()}.
+     * 
+     * @param fuseOperators {@code true} to fuse oplet chains
+     */
+    public void setFuseOperators(boolean fuseOperators) {
+        this.fuseOperators = fuseOperators;
+    }
+
+    /**
+     * Sets whether user threads, including the threads of the user
+     * scheduler and those running tasks of the user executor,
+     * are virtual threads. If the virtual machine does not
+     * support virtual threads then platform threads are used.
+     * Must be called before {@link #initialize()}.
+     * 
+     * @param virtualThreads {@code true} to use virtual threads
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        if (virtualThreads && userThreads.useVirtualThreads())
+            userExecutor.setThreadFactory(userThreads);
+    }
+
+    /**
+     * Sets the number of threads kept in the pool of the user scheduler,
+     * and the parallelism of the {@link #getExecutor() user executor}.
+     * Has no effect if the job uses {@link #setSharedSchedulers(ScheduledExecutorService, ScheduledExecutorService, ExecutorService, Runnable)
+     * shared schedulers}.
+     * 
+     * @param size number of threads, at least one
+     * @throws IllegalArgumentException if {@code size} is less than one
+     */
+    public synchronized void setUserPoolSize(int size) {
+        if (size < 1)
+            throw new IllegalArgumentException("size: " + size);
+        userPoolSize = size;
+        userExecutor.setParallelism(size);
+        if (userScheduler instanceof TrackingScheduledExecutor)
+            ((TrackingScheduledExecutor) userScheduler).setCorePoolSize(size);
+    }
+
+    /**
+     * Sets the number of threads kept in the pool of the control scheduler,
+     * which initializes, starts and closes the oplets.
+     * Has no effect if the job uses {@link #setSharedSchedulers(ScheduledExecutorService, ScheduledExecutorService, ExecutorService, Runnable)
+     * shared schedulers}.
+     * 
+     * @param size number of threads, at least one
+     * @throws IllegalArgumentException if {@code size} is less than one
+     */
+    public synchronized void setControlPoolSize(int size) {
+        if (size < 1)
+            throw new IllegalArgumentException("size: " + size);
+        controlPoolSize = size;
+        if (controlScheduler instanceof TrackingScheduledExecutor)
+            ((TrackingScheduledExecutor) controlScheduler).setCorePoolSize(size);
+    }
+
+    /**
+     * Sets the priority of user threads.
+     * Must be called before {@link #initialize()}.
+     * 
+     * @param priority thread priority, between {@code Thread.MIN_PRIORITY}
+     *      and {@code Thread.MAX_PRIORITY}.
+     * @throws IllegalArgumentException if the priority is out of range.
+     */
+    public void setThreadPriority(int priority) {
+        userThreads.setPriority(priority);
+        userExecutor.setPriority(priority);
+    }
+
+    /**
+     * Runs the job's scheduled tasks, control tasks and the tasks of its
+     * {@link #getExecutor() user executor} on executors shared
+     * with other jobs rather than on executors owned by the job.
+     * The job's tasks remain tracked for job completion and
+     * error handling. User threads from the {@code ThreadFactory}
+     * service are not affected.
+     * Must be called before the job is submitted.
+     * 
+     * @param scheduler the shared executor for the job's scheduled tasks
+     * @param controlScheduler the shared executor for the job's control tasks,
+     *      which initialize, start and close the oplets
+     * @param executor the shared executor for the tasks of the user executor
+     * @param release called when the job is closed and no longer
+     *      uses the shared executors
+     */
+    public synchronized void setSharedSchedulers(ScheduledExecutorService scheduler,
+            ScheduledExecutorService controlScheduler, ExecutorService executor, Runnable release) {
+        if (this.userScheduler != null)
+            this.userScheduler.shutdown();
+        if (this.controlScheduler != null)
+            this.controlScheduler.shutdown();
+        this.userScheduler = new TrackingSharedExecutor(scheduler, completionHandler);
+        this.controlScheduler = new TrackingSharedExecutor(controlScheduler, completionHandler);
+        this.userExecutor.setSharedPool(executor);
+        this.sharedRelease = release;
+    }
+
+    /**
+     * Enables periodic checkpoints of the state of the job's
+     * {@link quarks.oplet.Checkpointable checkpointable} oplets.
+     * State is saved in a sub-directory of {@code directory} named
+     * from {@code jobName}, state saved by a previous execution of
+     * the job with the same name and topology is restored when the
+     * job is initialized.
+     * Must be called before {@link #initialize()}.
+     * 
+     * @param directory directory holding checkpoints
+     * @param jobName name identifying the job's checkpoint across executions
+     * @param period period between checkpoints
+     * @param unit unit of {@code period}
+     * @throws IllegalArgumentException if {@code period} is not positive
+     */
+    public void setCheckpoint(File directory, String jobName, long period, TimeUnit unit) {
+        if (period <= 0)
+            throw new IllegalArgumentException("period: " + period);
+        this.checkpointStore = new CheckpointStore(directory, jobName);
+        this.checkpointPeriod = unit.toMillis(period);
+    }
+
+    /**
+     * Initializes the invocations, fusing chains of pipe oplets
+     * if enabled, then restores the state of checkpointable
+     * oplets if checkpoints are enabled.
+     * Each invocation with flow controlling oplets downstream
+     * is provided with their {@link Demand} as a service.
      */
     public void initialize() {
         jobServices.addService(ThreadFactory.class, getThreads());
         jobServices.addService(ScheduledExecutorService.class, getScheduler());
-        invokeAction(invocation -> invocation.initialize(job, this));
+        jobServices.addService(ExecutorService.class, getExecutor());
+        demands = DownstreamDemand.resolve(invocations);
+        if (checkpointStore != null)
+            checkpointStore.setTopology(invocations);
+        List<FusedChain> chains = fuseOperators ?
+                FusedChain.fuse(invocations) : Collections.<FusedChain>emptyList();
+        invokeAction(invocation -> invocation.initialize(job, getServices(invocation)));
+        for (FusedChain chain : chains) {
+            chain.connect();
+            logger.debug("Fused chain of {} oplets", chain.length());
+        }
+        if (checkpointStore != null)
+            invokeAction(invocation -> restore(invocation));
+    }
+
+    /**
+     * Services for an invocation, this executable's services
+     * with the invocation's downstream demand if it has one.
+     */
+    private RuntimeServices getServices(Invocation<?, ?, ?> invocation) {
+        final DownstreamDemand demand = demands.get(invocation);
+        if (demand == null)
+            return this;
+        logger.debug("Oplet {} has demand from {} flow controlling oplets", invocation.getId(), demand.size());
+        return new RuntimeServices() {
+            @Override
+            public <T> T getService(Class<T> serviceClass) {
+                if (serviceClass == Demand.class)
+                    return serviceClass.cast(demand);
+                return Executable.this.getService(serviceClass);
+            }
+        };
     }
 
     /**
-     * Starts all the invocations.
+     * Starts all the invocations, then schedules
+     * checkpoints if enabled.
      */
     public void start() {
         invokeAction(invocation -> invocation.start());
+        if (checkpointStore != null) {
+            checkpointer = getControlScheduler().scheduleWithFixedDelay(
+                    () -> checkpoint(), checkpointPeriod, checkpointPeriod, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private void restore(Invocation<?, ?, ?> invocation) {
+        if (!invocation.isCheckpointable())
+            return;
+        try {
+            Serializable state = checkpointStore.read(invocation.getId(), invocation.getOplet().getClass());
+            if (state != null) {
+                invocation.restore(state);
+                logger.info("Restored state of oplet {}", invocation.getId());
+            }
+        } catch (Exception e) {
+            logger.error("Exception caught while restoring oplet {}", invocation.getId(), e);
+        }
+    }
+    
+    /**
+     * Checkpoint each checkpointable invocation in turn, the state
+     * is serialized and written by the control thread so that
+     * tuple processing only waits for an oplet to copy its state.
+     * Failures are logged and do not affect the job.
+     */
+    private void checkpoint() {
+        for (Invocation<?, ?, ?> invocation : invocations) {
+            if (!invocation.isCheckpointable())
+                continue;
+            try {
+                Serializable state = invocation.checkpoint();
+                if (state == null)
+                    checkpointStore.remove(invocation.getId());
+                else if (checkpointStore.write(invocation.getId(), invocation.getOplet().getClass(), state))
+                    logger.debug("Checkpointed oplet {}", invocation.getId());
+            } catch (Throwable t) {
+                logger.error("Exception caught while checkpointing oplet {}", invocation.getId(), t);
+            }
+        }
+    }
+
+    /**
+     * Pauses all the invocations. Source oplets stop generating
+     * tuples while tuples already in flight continue to be processed.
+     * The executable is not considered complete while paused.
+     */
+    public void pause() {
+        paused = true;
+        invokeAction(invocation -> invocation.pause());
+    }
+
+    /**
+     * Resumes all the invocations after {@link #pause()}.
+     */
+    public void resume() {
+        invokeAction(invocation -> invocation.resume());
+        paused = false;
     }
 
     /**
@@ -175,9 +438,27 @@ public class Executable implements RuntimeServices {
      * invocations, then shutdown the control scheduler.
      */
     public void close() {
+        if (paused) {
+            // Release any threads blocked submitting to a paused source,
+            // including threads external to the job. The sources are not
+            // resumed, so periodic sources are not rescheduled.
+            paused = false;
+            for (Invocation<?, ?, ?> invocation : invocations)
+                invocation.release();
+        }
+        // Likewise for threads waiting for demand.
+        for (DownstreamDemand demand : demands.values())
+            demand.release();
         getScheduler().shutdownNow();
+        userExecutor.shutdownNow();
         userThreads.shutdownNow();
         
+        if (checkpointer != null) {
+            // Final checkpoint once the job's tasks are stopped.
+            checkpointer.cancel(false);
+            checkpoint();
+        }
+        
         invokeAction(invocation -> {
             try {
                 invocation.close();
@@ -191,14 +472,18 @@ public class Executable implements RuntimeServices {
         });
 
         notifyCompleter();
-        List<Runnable> unfinished = controlScheduler.shutdownNow();
+        List<Runnable> unfinished = getControlScheduler().shutdownNow();
         if (!unfinished.isEmpty()) {
             logger.warn("Scheduler could not finish {} tasks", unfinished.size());
         }
+        Runnable release = sharedRelease;
+        sharedRelease = null;
+        if (release != null)
+            release.run();
     }
 
     private void invokeAction(Consumer<Invocation<?, ?, ?>> action) {
-        ExecutorCompletionService<Boolean> completer = new ExecutorCompletionService<>(controlScheduler);
+        ExecutorCompletionService<Boolean> completer = new ExecutorCompletionService<>(getControlScheduler());
         for (Invocation<?, ?, ?> invocation : invocations) {
             completer.submit(() -> {
                 action.accept(invocation);
@@ -235,17 +520,25 @@ public class Executable implements RuntimeServices {
      * Cleanup after failure.
      */
     private void cleanup() {
-        userScheduler.shutdown();
+        getScheduler().shutdown();
+        userExecutor.shutdown();
         userThreads.shutdown();
     }
 
     /**
      * Check whether there are user tasks still active.
+     * A paused executable is considered to have active tasks.
      * @return {@code true} if at least a user task is still active.
      */
     public boolean hasActiveTasks() {
-        return userScheduler.hasActiveTasks() || 
-               userThreads.hasActiveNonDaemonThreads();
+        if (paused)
+            return true;
+        ScheduledExecutorService scheduler = userScheduler;
+        boolean activeTasks = scheduler instanceof TrackingSharedExecutor ?
+                ((TrackingSharedExecutor) scheduler).hasActiveTasks() :
+                scheduler != null && ((TrackingScheduledExecutor) scheduler).hasActiveTasks();
+        return activeTasks || userExecutor.hasActiveTasks() ||
+                userThreads.hasActiveNonDaemonThreads();
     }
 
     public synchronized Throwable getLastError() {
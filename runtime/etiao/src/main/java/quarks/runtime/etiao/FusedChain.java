@@ -0,0 +1,203 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.runtime.etiao;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import quarks.function.Consumer;
+import quarks.function.Function;
+import quarks.function.Predicate;
+import quarks.oplet.Oplet;
+import quarks.oplet.core.Peek;
+import quarks.oplet.functional.Filter;
+
+/**
+ * A linear chain of pipe oplet invocations executed as a single
+ * stream handler.
+ * <P>
+ * Without fusion each tuple passes from a pipe oplet to the next one
+ * through the oplet's {@code submit()} and a {@link SettableForwarder}
+ * before reaching the next oplet's input. A fused chain is installed
+ * as the input of the first invocation in the chain and directly
+ * applies the function of each oplet in turn, submitting the result
+ * to the output of the last invocation.
+ * </P>
+ * <P>
+ * The chained invocations remain in the graph and are initialized,
+ * started and closed as usual, so the graph and metrics still
+ * show the logical oplets. {@code Peek} oplets, such as metric
+ * oplets, are called directly with their output disconnected.
+ * </P>
+ * <P>
+ * Only functional {@code Map} and {@code Filter} oplets
+ * and {@code Peek} oplets are fused, as their complete behavior
+ * is known. An invocation is only added to a chain when its
+ * input is solely connected to the previous invocation's output.
+ * </P>
+ */
+final class FusedChain implements Consumer<Object> {
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAP = 0;
+    private static final int FILTER = 1;
+    private static final int PEEK = 2;
+
+    private final SettableForwarder<Object> input;
+    private final int[] kinds;
+    private final Object[] stages;
+    private final Consumer<Object> destination;
+
+    private FusedChain(SettableForwarder<Object> input, int[] kinds, Object[] stages, Consumer<Object> destination) {
+        this.input = input;
+        this.kinds = kinds;
+        this.stages = stages;
+        this.destination = destination;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void accept(Object tuple) {
+        for (int i = 0; i < stages.length; i++) {
+            switch (kinds[i]) {
+            case MAP:
+                tuple = ((Function<Object, Object>) stages[i]).apply(tuple);
+                if (tuple == null)
+                    return;
+                break;
+            case FILTER:
+                if (!((Predicate<Object>) stages[i]).test(tuple))
+                    return;
+                break;
+            default:
+                ((Peek<Object>) stages[i]).accept(tuple);
+                break;
+            }
+        }
+        destination.accept(tuple);
+    }
+
+    /**
+     * Install this chain as the handler for the input of its
+     * first invocation. Must be called after the invocations
+     * have been initialized.
+     */
+    void connect() {
+        input.setDestination(this);
+    }
+
+    /**
+     * Number of oplets fused by this chain.
+     */
+    int length() {
+        return stages.length;
+    }
+
+    /**
+     * Find the chains of fusable invocations.
+     * The output of {@code Peek} oplets in a chain is disconnected
+     * so that this method must be called before the invocations
+     * are initialized.
+     * 
+     * @param invocations All of the executable's invocations.
+     * @return Chains of two or more fusable invocations.
+     */
+    static List<FusedChain> fuse(List<Invocation<? extends Oplet<?, ?>, ?, ?>> invocations) {
+
+        // Map each input to its invocation and count the outputs connected to it.
+        Map<Consumer<?>, Invocation<?, ?, ?>> owners = new IdentityHashMap<>();
+        Map<Consumer<?>, Integer> inDegree = new IdentityHashMap<>();
+        for (Invocation<?, ?, ?> invocation : invocations) {
+            if (isFusable(invocation))
+                owners.put(invocation.getInputs().get(0), invocation);
+        }
+        for (Invocation<?, ?, ?> invocation : invocations) {
+            for (int i = 0; i < invocation.getOutputCount(); i++) {
+                Consumer<?> target = invocation.getOutput(i);
+                Integer count = inDegree.get(target);
+                inDegree.put(target, count == null ? 1 : count + 1);
+            }
+        }
+
+        // Fusable invocations that directly follow another fusable invocation.
+        Map<Invocation<?, ?, ?>, Invocation<?, ?, ?>> next = new IdentityHashMap<>();
+        for (Invocation<?, ?, ?> invocation : owners.values()) {
+            Consumer<?> target = invocation.getOutput(0);
+            Invocation<?, ?, ?> successor = owners.get(target);
+            if (successor != null && successor != invocation && inDegree.get(target) == 1)
+                next.put(invocation, successor);
+        }
+        Map<Invocation<?, ?, ?>, Boolean> followers = new IdentityHashMap<>();
+        for (Invocation<?, ?, ?> successor : next.values())
+            followers.put(successor, Boolean.TRUE);
+
+        List<FusedChain> chains = new ArrayList<>();
+        for (Invocation<?, ?, ?> head : invocations) {
+            if (!next.containsKey(head) || followers.containsKey(head))
+                continue;
+            List<Invocation<?, ?, ?>> chain = new ArrayList<>();
+            for (Invocation<?, ?, ?> i = head; i != null; i = next.get(i))
+                chain.add(i);
+            chains.add(newChain(chain));
+        }
+        return chains;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FusedChain newChain(List<Invocation<?, ?, ?>> chain) {
+        final int n = chain.size();
+        int[] kinds = new int[n];
+        Object[] stages = new Object[n];
+        Invocation<?, ?, ?> tail = chain.get(n - 1);
+        Consumer<Object> destination = (Consumer<Object>) tail.getOutput(0);
+        for (int i = 0; i < n; i++) {
+            Invocation<?, ?, ?> invocation = chain.get(i);
+            Oplet<?, ?> oplet = invocation.getOplet();
+            if (oplet instanceof quarks.oplet.functional.Map) {
+                kinds[i] = MAP;
+                stages[i] = ((quarks.oplet.functional.Map<?, ?>) oplet).getFunction();
+            } else if (oplet instanceof Filter) {
+                kinds[i] = FILTER;
+                stages[i] = ((Filter<?>) oplet).getPredicate();
+            } else {
+                kinds[i] = PEEK;
+                stages[i] = oplet;
+                invocation.disconnect(0);
+            }
+        }
+        SettableForwarder<Object> input = (SettableForwarder<Object>) chain.get(0).getInputs().get(0);
+        return new FusedChain(input, kinds, stages, destination);
+    }
+
+    /**
+     * An invocation is fusable if its oplet's behavior is fully
+     * known: a functional {@code Map} or {@code Filter} that is not
+     * subclassed, or a {@code Peek} whose {@code accept} is final.
+     */
+    private static boolean isFusable(Invocation<?, ?, ?> invocation) {
+        if (invocation.getInputs().size() != 1 || invocation.getOutputCount() != 1)
+            return false;
+        Class<?> opletClass = invocation.getOplet().getClass();
+        return opletClass == quarks.oplet.functional.Map.class
+                || opletClass == Filter.class
+                || Peek.class.isAssignableFrom(opletClass);
+    }
+}
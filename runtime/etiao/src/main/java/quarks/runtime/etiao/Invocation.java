@@ -18,6 +18,7 @@ under the License.
 */
 package quarks.runtime.etiao;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -25,8 +26,10 @@ import java.util.List;
 import quarks.execution.services.RuntimeServices;
 import quarks.function.Consumer;
 import quarks.function.Functions;
+import quarks.oplet.Checkpointable;
 import quarks.oplet.JobContext;
 import quarks.oplet.Oplet;
+import quarks.oplet.Pausable;
 
 /**
  * An {@link Oplet} invocation in the context of the 
@@ -92,6 +95,15 @@ public class Invocation<T extends Oplet<I, O>, I, O> implements AutoCloseable {
         return outputs.size();
     }
     
+    /**
+     * Returns the consumer connected to an output port.
+     * @param port the port index
+     * @return the consumer tuples submitted on {@code port} are passed to
+     */
+    Consumer<O> getOutput(int port) {
+        return outputs.get(port);
+    }
+
     /**
      * Adds a new output.  By default, the output is connected to a Consumer 
      * that discards all items passed to it.
@@ -163,6 +175,59 @@ public class Invocation<T extends Oplet<I, O>, I, O> implements AutoCloseable {
         oplet.start();
     }
 
+    /**
+     * Pause the oplet if it is {@link Pausable}.
+     */
+    public void pause() {
+        if (oplet instanceof Pausable)
+            ((Pausable) oplet).pause();
+    }
+
+    /**
+     * Resume the oplet if it is {@link Pausable}.
+     */
+    public void resume() {
+        if (oplet instanceof Pausable)
+            ((Pausable) oplet).resume();
+    }
+
+    /**
+     * Release threads blocked by a paused oplet if it is {@link Pausable}.
+     */
+    public void release() {
+        if (oplet instanceof Pausable)
+            ((Pausable) oplet).release();
+    }
+
+    /**
+     * Returns whether the oplet is {@link Checkpointable}.
+     * @return {@code true} if the oplet's state can be checkpointed.
+     */
+    public boolean isCheckpointable() {
+        return oplet instanceof Checkpointable;
+    }
+
+    /**
+     * Take a copy of the oplet's state if it is {@link Checkpointable}.
+     * @return the oplet's state, {@code null} if it has no state.
+     * @throws Exception Error taking the state.
+     */
+    public Serializable checkpoint() throws Exception {
+        if (oplet instanceof Checkpointable)
+            return ((Checkpointable) oplet).checkpoint();
+        return null;
+    }
+
+    /**
+     * Restore the oplet's state if it is {@link Checkpointable}.
+     * @param state State from a checkpoint of the oplet.
+     * @throws Exception Error restoring the state.
+     */
+    public void restore(Serializable state) throws Exception {
+        if (oplet instanceof Checkpointable)
+            ((Checkpointable) oplet).restore(state);
+    }
+
     @Override
     public void close() throws Exception {
         oplet.close();
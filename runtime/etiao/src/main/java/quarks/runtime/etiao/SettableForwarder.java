@@ -18,8 +18,11 @@ under the License.
 */
 package quarks.runtime.etiao;
 
+import java.util.List;
+
 import quarks.function.Consumer;
 import quarks.function.Functions;
+import quarks.oplet.core.BatchConsumer;
 
 /**
  * A forwarding Streamer whose destination
@@ -27,10 +30,15 @@ import quarks.function.Functions;
  * External synchronization or happens-before
  * guarantees must be provided by the object
  * owning an instance of {@code SettableForwarder}.
+ * <P>
+ * Batches are passed through as a single call when the
+ * destination is a {@link BatchConsumer}, otherwise
+ * each tuple in the batch is forwarded in order.
+ * </P>
  *
  * @param <T> Type of data on the stream.
  */
-public final class SettableForwarder<T> implements Consumer<T> {
+public final class SettableForwarder<T> implements BatchConsumer<T> {
     private static final long serialVersionUID = 1L;
     private Consumer<T> destination;
 
@@ -53,6 +61,17 @@ public final class SettableForwarder<T> implements Consumer<T> {
     public void accept(T item) {
         getDestination().accept(item);
     }
+    
+    @Override
+    public void acceptBatch(List<T> items) {
+        Consumer<T> destination = getDestination();
+        if (destination instanceof BatchConsumer) {
+            ((BatchConsumer<T>) destination).acceptBatch(items);
+            return;
+        }
+        for (int i = 0; i < items.size(); i++)
+            destination.accept(items.get(i));
+    }
 
     /**
      * Change the destination.
@@ -18,10 +18,13 @@ under the License.
 */
 package quarks.runtime.etiao;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,15 +43,24 @@ import quarks.oplet.core.Source;
  * <p>
  * If no {@code ThreadFactory} is provided, then this object uses the
  * factory returned by {@link Executors#defaultThreadFactory()}.</p>
+ * <p>
+ * When {@link #useVirtualThreads() virtual threads} are in use,
+ * virtual threads (which are always daemon threads) are tracked
+ * as non-daemon threads so that job completion still waits for them.</p>
  */
 public class ThreadFactoryTracker implements ThreadFactory {
 
     private final String threadName;
-    private final ThreadFactory factory;
+    private volatile ThreadFactory factory;
+    private volatile boolean virtual;
+    private volatile String virtualPrefix;
+    private final AtomicInteger virtualThreadNumber = new AtomicInteger(1);
+    private volatile int priority;
     private final BiConsumer<Object, Throwable> completer;
     private final Thread.UncaughtExceptionHandler handler;
     private volatile boolean shutdown;
     private final ThreadSets threads = new ThreadSets();
+    private static final AtomicInteger virtualPoolNumber = new AtomicInteger(1);
     private static final Logger logger = LoggerFactory.getLogger(ThreadFactoryTracker.class);
 
     ThreadFactoryTracker(String threadName, ThreadFactory tf, BiConsumer<Object, Throwable> completer) {
@@ -98,12 +110,68 @@ public class ThreadFactoryTracker implements ThreadFactory {
         };
         
         Thread t = factory.newThread(wrapper);
-        t.setName(t.getName() + "-" + threadName);
+        String name = virtual ? virtualPrefix + virtualThreadNumber.getAndIncrement() : t.getName();
+        t.setName(name + "-" + threadName);
+        if (priority != 0 && !virtual)
+            t.setPriority(priority);
         t.setUncaughtExceptionHandler(handler);
         threads.addNew(t);
         return t;
     }
 
+    /**
+     * Create user threads as virtual threads if this virtual machine
+     * supports them. Virtual threads are created using
+     * {@code Thread.ofVirtual().factory()}, located by reflection
+     * so that no Java version beyond the minimum is required.
+     * Virtual threads are unnamed, so they are named as
+     * {@code virtual-}<i>N</i>{@code -thread-}<i>M</i> in the
+     * same format as threads of the default factory.
+     * Must be called before any thread is created.
+     * 
+     * @return {@code true} if virtual threads will be created,
+     *     {@code false} if they are not supported and platform
+     *     threads continue to be created.
+     */
+    public boolean useVirtualThreads() {
+        ThreadFactory vtf = virtualThreadFactory();
+        if (vtf == null) {
+            getLogger().warn("Virtual threads are not supported, using platform threads");
+            return false;
+        }
+        factory = vtf;
+        virtualPrefix = "virtual-" + virtualPoolNumber.getAndIncrement() + "-thread-";
+        virtual = true;
+        return true;
+    }
+
+    /**
+     * Set the priority of threads subsequently created.
+     * Virtual threads ignore the priority.
+     * 
+     * @param priority thread priority, between {@code Thread.MIN_PRIORITY}
+     *      and {@code Thread.MAX_PRIORITY}.
+     * @throws IllegalArgumentException if the priority is out of range.
+     */
+    public void setPriority(int priority) {
+        if (priority < Thread.MIN_PRIORITY || priority > Thread.MAX_PRIORITY)
+            throw new IllegalArgumentException("priority: " + priority);
+        this.priority = priority;
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(ofVirtual.invoke(null));
+        } catch (ClassNotFoundException | NoSuchMethodException
+                | IllegalAccessException | InvocationTargetException
+                | UnsupportedOperationException e) {
+            // Not available, or a preview feature that is not enabled.
+            return null;
+        }
+    }
+
     /**
      * This initiates an orderly shutdown in which no new tasks will be 
      * accepted but previously submitted tasks continue to be executed.
@@ -143,7 +211,7 @@ public class ThreadFactoryTracker implements ThreadFactory {
      * @return {@code true} if there are active non daemon threads, false otherwise.
      */
     public boolean hasActiveNonDaemonThreads() {
-        return threads.hasActiveNonDaemonThreads();
+        return threads.hasActiveNonDaemonThreads(virtual);
     }
 
     /**
@@ -181,9 +249,15 @@ public class ThreadFactoryTracker implements ThreadFactory {
             return runningThreads.toArray(new Thread[0]);
         }
         
-        synchronized boolean hasActiveNonDaemonThreads() {
+        /**
+         * @param virtual {@code true} if the threads are virtual threads, which
+         *      are always daemon threads but are tracked as non-daemon.
+         */
+        synchronized boolean hasActiveNonDaemonThreads(boolean virtual) {
             if (runningThreads.isEmpty() && newThreads.isEmpty())
                 return false;
+            if (virtual)
+                return true;
 
             for (Thread t : runningThreads) {
                 if (t.isDaemon())
@@ -0,0 +1,366 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.runtime.etiao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import quarks.function.BiConsumer;
+
+/**
+ * An {@code ExecutorService} for immediate execution of tasks, backed by
+ * a work-stealing {@code ForkJoinPool} and tracking
+ * the number of tasks that have been submitted and not completed.
+ * <p>
+ * Unlike a {@code ScheduledExecutorService} there is no delay
+ * queue, so submitting a task is cheap enough for a task per tuple.
+ * Tasks are executed in submission order by each worker thread
+ * but no execution order is guaranteed across worker threads.</p>
+ * <p>
+ * When a task completes abruptly due to an exception, or when all
+ * tasks have completed, the executor invokes a completion handler.
+ * As with {@link TrackingScheduledExecutor}, when a task completes
+ * abruptly all the other tasks are cancelled, tasks that have not
+ * started are not run and running tasks are interrupted.</p>
+ * <p>
+ * The pool's parallelism is the number of threads running tasks.
+ * As a fork-join pool does not add threads for tasks that block, such as
+ * a sink performing synchronous I/O, the parallelism must allow for blocked tasks.
+ * It defaults to four times the number of available processors, as for the
+ * job's scheduler. Tasks may instead be executed on a
+ * {@link #setSharedPool(ExecutorService) pool shared} with other jobs,
+ * while remaining tracked by this executor.</p>
+ * <p>
+ * Fork-join worker threads are always platform threads, so when
+ * virtual threads are in use tasks are instead executed on a thread per task
+ * from a {@link #setThreadFactory(ThreadFactory) thread factory}.</p>
+ */
+public final class TrackingForkJoinExecutor extends AbstractExecutorService {
+    private final String threadName;
+    private final BiConsumer<Object, Throwable> completer;
+    private final AtomicLong activeTasks = new AtomicLong();
+    
+    /**
+     * Tasks that have been submitted and not completed.
+     */
+    private final Set<TrackedTask> asyncTasks = Collections
+            .newSetFromMap(new ConcurrentHashMap<TrackedTask, Boolean>());
+    private volatile int priority;
+    private volatile ThreadFactory threadFactory;
+    private volatile ForkJoinPool pool;
+    private volatile ExecutorService sharedPool;
+    private int parallelism = Runtime.getRuntime().availableProcessors() * 4;
+    private volatile boolean shutdown;
+    
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int CANCELLED = 2;
+    private static final AtomicIntegerFieldUpdater<TrackedTask> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(TrackedTask.class, "state");
+    private static final Logger logger = LoggerFactory.getLogger(TrackingForkJoinExecutor.class);
+
+    /**
+     * Creates an {@code TrackingForkJoinExecutor} with a parallelism
+     * of four times the number of available processors.
+     * The pool is created when the first task is executed.
+     * 
+     * @param threadName suffix for the names of the pool's threads
+     * @param completionHandler handler invoked when all task have completed, 
+     *      due to normal termination or exception.
+     */
+    public TrackingForkJoinExecutor(String threadName,
+            BiConsumer<Object, Throwable> completionHandler) {
+        this.threadName = threadName;
+        this.completer = completionHandler;
+    }
+    
+    private ExecutorService getPool() {
+        ExecutorService shared = sharedPool;
+        if (shared != null)
+            return shared;
+        ForkJoinPool p = pool;
+        return p != null ? p : newPool();
+    }
+    
+    private synchronized ForkJoinPool newPool() {
+        if (shutdown)
+            throw new RejectedExecutionException("Executor has been shut down");
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism,
+                    new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                        @Override
+                        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                            t.setName(t.getName() + "-" + threadName);
+                            if (priority != 0)
+                                t.setPriority(priority);
+                            return t;
+                        }
+                    },
+                    null, true /* FIFO for tasks that are never joined */);
+        }
+        return pool;
+    }
+
+    /**
+     * Set the parallelism of the pool, the number of threads running tasks.
+     * Has no effect once the first task has been executed.
+     * @param parallelism number of threads, at least one
+     */
+    synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism: " + parallelism);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Execute tasks on {@code pool}, shared with other jobs, rather than
+     * on a pool owned by this executor. Shutting down this executor
+     * does not shut down the shared pool.
+     * Must be called before any task is executed.
+     * @param pool the shared pool
+     */
+    void setSharedPool(ExecutorService pool) {
+        this.sharedPool = pool;
+    }
+
+    /**
+     * Set the priority of worker threads subsequently created.
+     * @param priority thread priority
+     */
+    void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Execute each task on a new thread from {@code threadFactory}
+     * rather than on the pool's worker threads.
+     * Must be called before any task is executed.
+     * @param threadFactory factory for the threads running tasks
+     */
+    void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null)
+            throw new NullPointerException();
+        if (shutdown)
+            throw new RejectedExecutionException("Executor has been shut down");
+        TrackedTask task = new TrackedTask(command);
+        activeTasks.incrementAndGet();
+        asyncTasks.add(task);
+        if (shutdown) {
+            // Not seen by a concurrent shutdownNow.
+            task.cancel(false);
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        try {
+            ThreadFactory tf = threadFactory;
+            if (tf == null)
+                getPool().execute(task);
+            else
+                newThread(tf, task).start();
+        } catch (RuntimeException e) {
+            task.cancel(false);
+            throw e;
+        }
+    }
+
+    private Thread newThread(ThreadFactory tf, Runnable task) {
+        Thread t = tf.newThread(task);
+        if (t == null)
+            throw new RejectedExecutionException("Executor has been shut down");
+        return t;
+    }
+
+    /**
+     * Determines whether there are tasks which have been submitted and not completed.
+     * 
+     * @return {@code true} is active tasks exist.
+     */
+    public boolean hasActiveTasks() {
+        return activeTasks.get() > 0;
+    }
+
+    private void untrack() {
+        if (activeTasks.decrementAndGet() == 0)
+            completer.accept(this, null);
+    }
+
+    @Override
+    public void shutdown() {
+        ForkJoinPool p;
+        synchronized (this) {
+            shutdown = true;
+            p = pool;
+        }
+        if (p != null)
+            p.shutdown();
+    }
+
+    /**
+     * No new tasks are accepted, tasks that have not started
+     * are untracked and running tasks are interrupted.
+     * @return the tasks that had not started.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        ForkJoinPool p;
+        synchronized (this) {
+            shutdown = true;
+            p = pool;
+        }
+        if (p != null)
+            p.shutdownNow();
+        return cancelAllAsyncTasks();
+    }
+    
+    /**
+     * Cancel all tasks, interrupting running tasks.
+     * @return the tasks that had not started.
+     */
+    private List<Runnable> cancelAllAsyncTasks() {
+        List<Runnable> dropped = new ArrayList<>();
+        for (TrackedTask task : asyncTasks) {
+            if (task.cancel(true))
+                dropped.add(task.task);
+        }
+        return dropped;
+    }
+    
+    private void failed(Throwable t) {
+        getLogger().error("Thread: " + Thread.currentThread().getName() +
+                ": task terminated with exception : ", t);
+        cancelAllAsyncTasks();
+        completer.accept(this, t);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && asyncTasks.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        ForkJoinPool p = pool;
+        if (p != null && !p.awaitTermination(timeout, unit))
+            return false;
+        // Tasks on a shared pool or threads from the thread factory
+        // are not known to an owned pool.
+        while (!isTerminated()) {
+            if (deadline - System.nanoTime() <= 0)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * Track completion of a task, reporting an abrupt completion
+     * to the completion handler rather than the worker thread.
+     */
+    final class TrackedTask implements Runnable {
+        private final Runnable task;
+        volatile int state;
+        
+        /**
+         * Thread running the task, guarded by the task's intrinsic
+         * lock so that a cancelled task's thread is not interrupted
+         * once it has moved on to another task.
+         */
+        private Thread runner;
+
+        TrackedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (!STATE.compareAndSet(this, PENDING, RUNNING))
+                return;
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                failed(t);
+            } finally {
+                done();
+            }
+        }
+        
+        private void done() {
+            synchronized (this) {
+                runner = null;
+            }
+            // Clear an interrupt from a cancel while the task ran.
+            Thread.interrupted();
+            asyncTasks.remove(this);
+            untrack();
+        }
+        
+        /**
+         * Cancel the task.
+         * @param mayInterruptIfRunning {@code true} to interrupt the task if it is running
+         * @return {@code true} if the task had not started and will not run.
+         */
+        boolean cancel(boolean mayInterruptIfRunning) {
+            if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                asyncTasks.remove(this);
+                untrack();
+                return true;
+            }
+            if (mayInterruptIfRunning) {
+                synchronized (this) {
+                    if (runner != null)
+                        runner.interrupt();
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -19,10 +19,9 @@ under the License.
 package quarks.runtime.etiao;
 
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -31,6 +30,8 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -96,9 +97,21 @@ public final class TrackingScheduledExecutor extends ScheduledThreadPoolExecutor
      * and not completed. For non-periodic tasks we remove the future from 
      * asyncTasks once it is completed. Periodic tasks remain in asyncTasks 
      * until they have been cancelled.
+     * asyncTasks is only iterated to cancel the tasks, the number of
+     * tracked tasks is maintained separately in activeTasks so that
+     * task completion does not require a lock or a scan of asyncTasks.
      */
-    private final Set<RunnableScheduledFuture<?>> asyncTasks = Collections
-            .synchronizedSet(new HashSet<RunnableScheduledFuture<?>>());
+    private final Set<TrackedFuture<?>> asyncTasks = Collections
+            .newSetFromMap(new ConcurrentHashMap<TrackedFuture<?>, Boolean>());
+    private final AtomicLong activeTasks = new AtomicLong();
+
+    /**
+     * Ensures a task is untracked once, regardless of whether
+     * it completed or was cancelled.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<TrackedFuture> UNTRACKED =
+            AtomicIntegerFieldUpdater.newUpdater(TrackedFuture.class, "untracked");
 
     @Override
     protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable,
@@ -118,13 +131,13 @@ public final class TrackingScheduledExecutor extends ScheduledThreadPoolExecutor
 
     private int cancelAllAsyncTasks(boolean mayInterruptIfRunning) {
         int notCanceled = 0;
-        synchronized (asyncTasks) {
-            for (RunnableScheduledFuture<?> task : asyncTasks) {
-                if (!task.cancel(mayInterruptIfRunning))
-                    notCanceled++;
+        for (TrackedFuture<?> task : asyncTasks) {
+            if (!task.cancel(mayInterruptIfRunning)) {
+                notCanceled++;
+                // remove tasks which are done
+                if (task.isDone())
+                    task.removeTrack();
             }
-            // remove tasks which are done
-            hasActiveTasks();
         }
         return notCanceled;
     }
@@ -134,35 +147,19 @@ public final class TrackingScheduledExecutor extends ScheduledThreadPoolExecutor
      * method when all background activity is complete.
      */
     private <V> RunnableScheduledFuture<V> trackTask(RunnableScheduledFuture<V> task) {
-        task = new TrackedFuture<V>(task);
-        asyncTasks.add(task);
-        return task;
+        TrackedFuture<V> tracked = new TrackedFuture<V>(task);
+        activeTasks.incrementAndGet();
+        asyncTasks.add(tracked);
+        return tracked;
     }
 
     /**
      * Determines whether there are tasks which have started and not completed.
      * 
-     * As a side effect, this method removes all tasks which are done but are
-     * still in the tracking list.
-     * 
      * @return {@code true} is active tasks exist.
      */
     public boolean hasActiveTasks() {
-        boolean doesHaveTasks = false; 
-        synchronized (asyncTasks) {
-            if (asyncTasks.isEmpty())
-                return false;
-            
-            Iterator<RunnableScheduledFuture<?>> i = asyncTasks.iterator();
-            while (i.hasNext()) {
-                RunnableScheduledFuture<?> task = i.next();
-                if (task.isDone())
-                     i.remove();
-                else
-                    doesHaveTasks = true;
-            }
-        }
-        return doesHaveTasks;
+        return activeTasks.get() > 0;
     }
 
     /**
@@ -195,6 +192,7 @@ public final class TrackingScheduledExecutor extends ScheduledThreadPoolExecutor
     final class TrackedFuture<V> implements RunnableScheduledFuture<V> {
 
         private final RunnableScheduledFuture<V> realTask;
+        volatile int untracked;
 
         TrackedFuture(RunnableScheduledFuture<V> realTask) {
             this.realTask = realTask;
@@ -205,7 +203,8 @@ public final class TrackingScheduledExecutor extends ScheduledThreadPoolExecutor
             try {
                 realTask.run();
             } finally {
-                if (!isPeriodic())
+                // a periodic task is done once it terminated abruptly
+                if (!isPeriodic() || isDone())
                     removeTrack();
             }
         }
@@ -214,15 +213,19 @@ public final class TrackingScheduledExecutor extends ScheduledThreadPoolExecutor
          * Remove tracking of the task and notify the completer if
          * the scheduler seems to have no work.
          */
-        private void removeTrack() {
+        void removeTrack() {
+            if (!UNTRACKED.compareAndSet(this, 0, 1))
+                return;
             asyncTasks.remove(this);
 
             // Notify the completer if the following is true:
             // no asyncTasks (user tasks) pending, or the executor's task 
             // queue is empty and the number of active threads includes 
             // only the current one.
-            if (asyncTasks.isEmpty() ||
-                    (getActiveCount() <= 1 && getQueue().isEmpty())) {
+            // The queue is checked first as getActiveCount() takes
+            // the executor's main lock.
+            if (activeTasks.decrementAndGet() == 0 ||
+                    (getQueue().isEmpty() && getActiveCount() <= 1)) {
                 completer.accept(TrackingScheduledExecutor.this, null);
             }
         }
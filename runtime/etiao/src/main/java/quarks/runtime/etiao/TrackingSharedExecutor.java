@@ -0,0 +1,360 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.runtime.etiao;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import quarks.function.BiConsumer;
+
+/**
+ * A job's view of a {@code ScheduledExecutorService} shared
+ * across jobs, tracking the tasks scheduled by the job.
+ * <p>
+ * As with {@link TrackingScheduledExecutor}, when a task completes
+ * abruptly due to an exception all the job's tasks are cancelled
+ * and the completion handler is invoked with the exception.
+ * The completion handler is also invoked when all the job's tasks
+ * have completed. Shutting down this executor only affects the
+ * job's tasks, the shared executor is not shut down, its owner
+ * shuts it down once no job uses it.</p>
+ */
+public final class TrackingSharedExecutor extends AbstractExecutorService
+        implements ScheduledExecutorService {
+    private final ScheduledExecutorService pool;
+    private final BiConsumer<Object, Throwable> completer;
+    private static final Logger logger = LoggerFactory.getLogger(TrackingSharedExecutor.class);
+
+    /**
+     * Tasks that have been scheduled and not completed.
+     * Periodic tasks remain until they have been cancelled.
+     */
+    private final Set<TrackedTask<?>> asyncTasks = Collections
+            .newSetFromMap(new ConcurrentHashMap<TrackedTask<?>, Boolean>());
+    private final AtomicLong activeTasks = new AtomicLong();
+    private volatile boolean shutdown;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<TrackedTask> UNTRACKED =
+            AtomicIntegerFieldUpdater.newUpdater(TrackedTask.class, "untracked");
+
+    /**
+     * Creates a {@code TrackingSharedExecutor} scheduling tasks
+     * on {@code pool}.
+     * 
+     * @param pool the shared executor that runs the tasks
+     * @param completionHandler handler invoked when all task have completed, 
+     *      due to normal termination, exception, or cancellation.
+     */
+    public TrackingSharedExecutor(ScheduledExecutorService pool,
+            BiConsumer<Object, Throwable> completionHandler) {
+        this.pool = pool;
+        this.completer = completionHandler;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        TrackedTask<Object> task = track(Executors.callable(command), false);
+        try {
+            task.setFuture(pool.schedule((Callable<Object>) task, delay, unit));
+        } catch (RejectedExecutionException e) {
+            task.untrack();
+            throw e;
+        }
+        return task;
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        TrackedTask<V> task = track(callable, false);
+        try {
+            task.setFuture(pool.schedule((Callable<V>) task, delay, unit));
+        } catch (RejectedExecutionException e) {
+            task.untrack();
+            throw e;
+        }
+        return task;
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+            long initialDelay, long period, TimeUnit unit) {
+        TrackedTask<Object> task = track(Executors.callable(command), true);
+        try {
+            task.setFuture(pool.scheduleAtFixedRate(task, initialDelay, period, unit));
+        } catch (RejectedExecutionException e) {
+            task.untrack();
+            throw e;
+        }
+        return task;
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+            long initialDelay, long delay, TimeUnit unit) {
+        TrackedTask<Object> task = track(Executors.callable(command), true);
+        try {
+            task.setFuture(pool.scheduleWithFixedDelay(task, initialDelay, delay, unit));
+        } catch (RejectedExecutionException e) {
+            task.untrack();
+            throw e;
+        }
+        return task;
+    }
+
+    private <V> TrackedTask<V> track(Callable<V> callable, boolean periodic) {
+        if (callable == null)
+            throw new NullPointerException();
+        if (shutdown)
+            throw new RejectedExecutionException("Executor is shutdown");
+        TrackedTask<V> task = new TrackedTask<>(callable, periodic);
+        activeTasks.incrementAndGet();
+        asyncTasks.add(task);
+        return task;
+    }
+
+    /**
+     * Determines whether there are tasks which have been scheduled
+     * and not completed.
+     * 
+     * @return {@code true} is active tasks exist.
+     */
+    public boolean hasActiveTasks() {
+        return activeTasks.get() > 0;
+    }
+
+    /**
+     * No new tasks are accepted and periodic tasks are cancelled,
+     * previously submitted delayed tasks are executed.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (TrackedTask<?> task : asyncTasks) {
+            if (task.periodic)
+                task.cancel(false);
+        }
+    }
+
+    /**
+     * No new tasks are accepted and all tasks are cancelled.
+     * @return an empty list, cancelled tasks are not returned.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        cancelAllAsyncTasks(true);
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && !hasActiveTasks();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            if (System.nanoTime() - deadline >= 0)
+                return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private void cancelAllAsyncTasks(boolean mayInterruptIfRunning) {
+        for (TrackedTask<?> task : asyncTasks)
+            task.cancel(mayInterruptIfRunning);
+    }
+
+    private void failed(Throwable t) {
+        getLogger().error("Thread: " + Thread.currentThread().getName() +
+                ": task terminated with exception : ", t);
+        cancelAllAsyncTasks(true);
+        completer.accept(this, t);
+    }
+
+    private Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * Task scheduled on the shared executor, and the future
+     * returned to the job for that task.
+     */
+    final class TrackedTask<V> implements Runnable, Callable<V>, ScheduledFuture<V> {
+        private final Callable<V> task;
+        private final boolean periodic;
+        private volatile ScheduledFuture<?> future;
+        volatile int untracked;
+        
+        /**
+         * Set if the task is cancelled before its future is set,
+         * written with the task's intrinsic lock held.
+         */
+        private volatile boolean cancelled;
+        private boolean interruptOnCancel;
+
+        TrackedTask(Callable<V> task, boolean periodic) {
+            this.task = task;
+            this.periodic = periodic;
+        }
+
+        /**
+         * Set the pool's future for the task, cancelling it
+         * if the task was cancelled while it was being scheduled.
+         */
+        void setFuture(ScheduledFuture<?> future) {
+            synchronized (this) {
+                this.future = future;
+                if (!cancelled)
+                    return;
+            }
+            future.cancel(interruptOnCancel);
+        }
+
+        @Override
+        public V call() throws Exception {
+            // The pool may run the task before its future is set.
+            if (cancelled)
+                return null;
+            try {
+                return task.call();
+            } catch (Throwable t) {
+                untrack();
+                failed(t);
+                throw t;
+            } finally {
+                if (!periodic)
+                    untrack();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                call();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * Remove tracking of the task and notify the completer
+         * if the job has no other tasks.
+         */
+        void untrack() {
+            if (!UNTRACKED.compareAndSet(this, 0, 1))
+                return;
+            asyncTasks.remove(this);
+            if (activeTasks.decrementAndGet() == 0)
+                completer.accept(TrackingSharedExecutor.this, null);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            ScheduledFuture<?> f;
+            synchronized (this) {
+                f = future;
+                if (f == null) {
+                    // Still being scheduled, the future is
+                    // cancelled when it is set.
+                    if (cancelled)
+                        return false;
+                    cancelled = true;
+                    interruptOnCancel = mayInterruptIfRunning;
+                }
+            }
+            boolean wasCancelled = f == null || f.cancel(mayInterruptIfRunning);
+            if (wasCancelled)
+                untrack();
+            return wasCancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            ScheduledFuture<?> f = future;
+            return cancelled || (f != null && f.isCancelled());
+        }
+
+        @Override
+        public boolean isDone() {
+            ScheduledFuture<?> f = future;
+            return cancelled || (f != null && f.isDone());
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            if (cancelled)
+                throw new CancellationException();
+            return (V) future.get();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException,
+                ExecutionException, TimeoutException {
+            if (cancelled)
+                throw new CancellationException();
+            return (V) future.get(timeout, unit);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return future.getDelay(unit);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return future.compareTo(o);
+        }
+    }
+}
@@ -21,6 +21,7 @@ package quarks.runtime.etiao.mbeans;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import quarks.execution.Job;
 import quarks.execution.mbeans.JobMXBean;
 import quarks.runtime.etiao.EtiaoJob;
 import quarks.runtime.etiao.graph.model.GraphType;
@@ -69,4 +70,14 @@ public class EtiaoJobBean implements JobMXBean {
     public String getLastError() {
         return job.getLastError();
     }
+
+    @Override
+    public void pause() {
+        job.stateChange(Job.Action.PAUSE);
+    }
+
+    @Override
+    public void resume() {
+        job.stateChange(Job.Action.RESUME);
+    }
 }
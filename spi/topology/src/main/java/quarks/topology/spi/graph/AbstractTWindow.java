@@ -18,7 +18,21 @@ under the License.
 */
 package quarks.topology.spi.graph;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import quarks.function.BiConsumer;
+import quarks.function.BiFunction;
+import quarks.function.Consumer;
 import quarks.function.Function;
+import quarks.function.Supplier;
+import quarks.oplet.window.Aggregate;
+import quarks.oplet.window.KeyGroupAggregate;
+import quarks.window.IncrementalAggregator;
+import quarks.window.Partition;
+import quarks.window.Window;
+import quarks.window.Windows;
 import quarks.topology.TStream;
 import quarks.topology.TWindow;
 import quarks.topology.Topology;
@@ -26,12 +40,68 @@ import quarks.topology.Topology;
 public abstract class AbstractTWindow<T, K> implements TWindow<T, K> {
     private final TStream<T> feed;
     private Function<T, K> keyFunction;
+    private int maxPartitions;
+    private long idleTime;
+    private TimeUnit idleUnit = TimeUnit.MILLISECONDS;
+    private int keyGroups = 1;
     
     AbstractTWindow(TStream<T> feed, Function<T, K> keyFunction){
         this.feed = feed;
         this.keyFunction = keyFunction;
     } 
     
+    /**
+     * Limit the partitions of windows created for this {@code TWindow}.
+     * @see Windows#window(BiFunction, BiConsumer, Consumer, BiConsumer, Function, Supplier, int, long, TimeUnit)
+     */
+    void limitPartitions(int maxPartitions, long idleTime, TimeUnit idleUnit) {
+        if (maxPartitions < 0)
+            throw new IllegalArgumentException("maxPartitions: " + maxPartitions);
+        if (idleTime < 0)
+            throw new IllegalArgumentException("idleTime: " + idleTime);
+        this.maxPartitions = maxPartitions;
+        this.idleTime = idleTime;
+        this.idleUnit = idleUnit;
+    }
+    
+    @Override
+    public TWindow<T, K> keyGroups(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("count: " + count);
+        this.keyGroups = count;
+        return this;
+    }
+    
+    /**
+     * Create a window with this {@code TWindow}'s key function
+     * and partition limits, which are divided between key groups.
+     */
+    <L extends List<T>> Window<T, K, L> newWindow(
+            BiFunction<Partition<T, K, L>, T, Boolean> insertionPolicy,
+            BiConsumer<Partition<T, K, L>, T> contentsPolicy,
+            Consumer<Partition<T, K, L> > evictDeterminer,
+            BiConsumer<Partition<T, K, L>, T> triggerPolicy,
+            Supplier<L> listSupplier) {
+        int groupPartitions = (maxPartitions + keyGroups - 1) / keyGroups;
+        return Windows.window(insertionPolicy, contentsPolicy, evictDeterminer, triggerPolicy,
+                getKeyFunction(), listSupplier, groupPartitions, idleTime, idleUnit);
+    }
+    
+    /**
+     * Aggregate the feeder using windows created by {@code windows},
+     * a single window or one window for each key group.
+     */
+    <U, L extends List<T>> TStream<U> pipeAggregate(Supplier<Window<T, K, L>> windows,
+            BiFunction<List<T>, K, U> processor) {
+        if (keyGroups == 1)
+            return feeder().pipe(new Aggregate<T,U,K>(windows.get(), processor));
+        
+        List<Window<T, K, L>> groups = new ArrayList<>(keyGroups);
+        for (int i = 0; i < keyGroups; i++)
+            groups.add(windows.get());
+        return feeder().pipe(new KeyGroupAggregate<T,U,K>(groups, processor));
+    }
+    
     @Override
     public Topology topology() {
         return feed.topology();
@@ -45,4 +115,9 @@ public abstract class AbstractTWindow<T, K> implements TWindow<T, K> {
     public TStream<T> feeder() {
         return feed;
     }
+
+    @Override
+    public <A, U> TStream<U> aggregate(IncrementalAggregator<T, A, U> aggregator) {
+        return aggregate(aggregator, (result, key) -> result);
+    }
 }
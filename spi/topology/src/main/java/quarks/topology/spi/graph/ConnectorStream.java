@@ -20,16 +20,22 @@ package quarks.topology.spi.graph;
 
 import static quarks.function.Functions.synchronizedFunction;
 import static quarks.window.Policies.alwaysInsert;
+import static quarks.window.Policies.circularList;
+import static quarks.window.Policies.countContentsPolicy;
+import static quarks.window.Policies.evictOldest;
 import static quarks.window.Policies.evictOlderWithProcess;
 import static quarks.window.Policies.insertionTimeList;
+import static quarks.window.Policies.processOnInsert;
 import static quarks.window.Policies.scheduleEvictIfEmpty;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import quarks.function.BiFunction;
@@ -38,6 +44,7 @@ import quarks.function.Function;
 import quarks.function.Functions;
 import quarks.function.Predicate;
 import quarks.function.ToIntFunction;
+import quarks.function.ToLongFunction;
 import quarks.graph.Connector;
 import quarks.graph.Graph;
 import quarks.graph.Vertex;
@@ -55,8 +62,8 @@ import quarks.topology.TStream;
 import quarks.topology.TWindow;
 import quarks.topology.Topology;
 import quarks.topology.spi.AbstractTStream;
+import quarks.window.CircularList;
 import quarks.window.Partition;
-import quarks.window.Policies;
 import quarks.window.Window;
 import quarks.window.Windows;
 
@@ -68,6 +75,12 @@ import quarks.window.Windows;
  */
 public class ConnectorStream<G extends Topology, T> extends AbstractTStream<G, T> {
 
+    /**
+     * Key under which the partition for the null key is published
+     * for a join, which a {@code ConcurrentHashMap} does not allow.
+     */
+    private static final Object NULL_KEY = new Object();
+    
     private final Connector<T> connector;
 
     protected ConnectorStream(G topology, Connector<T> connector) {
@@ -173,29 +186,82 @@ public class ConnectorStream<G extends Topology, T> extends AbstractTStream<G, T
         return window;
     }
     
+    @Override
+    public <K> TWindow<T, K> last(long time, TimeUnit unit, ToLongFunction<T> timestampFunction,
+            long allowedLateness, Function<T, K> keyFunction) {
+        TWindowEventTimeImpl<T, K> window = new TWindowEventTimeImpl<T, K>(
+                time, unit, timestampFunction, allowedLateness, this, keyFunction);
+        return window;
+    }
+    
+    @Override
+    public <K> TWindow<T, K> hopping(long size, TimeUnit sizeUnit, long advance, TimeUnit advanceUnit,
+            Function<T, K> keyFunction) {
+        // Both expressed in the finer unit
+        TimeUnit unit = sizeUnit.compareTo(advanceUnit) < 0 ? sizeUnit : advanceUnit;
+        TWindowHoppingImpl<T, K> window = new TWindowHoppingImpl<T, K>(
+                unit.convert(size, sizeUnit), unit.convert(advance, advanceUnit), unit, this, keyFunction);
+        return window;
+    }
+
+    @Override
+    public <K> TWindow<T, K> tumbling(long size, TimeUnit unit, Function<T, K> keyFunction) {
+        return hopping(size, unit, size, unit, keyFunction);
+    }
+
+    @Override
+    public <K> TWindow<T, K> session(long gap, TimeUnit unit, Function<T, K> keyFunction) {
+        TWindowSessionImpl<T, K> window = new TWindowSessionImpl<T, K>(gap, unit, this, keyFunction);
+        return window;
+    }
+    
+    @Override
+    public <K> TWindow<T, K> last(int count, Function<T, K> keyFunction,
+            int maxPartitions, long idleTime, TimeUnit idleUnit) {
+        TWindowImpl<T, K> window = new TWindowImpl<T, K>(count, this, keyFunction);
+        window.limitPartitions(maxPartitions, idleTime, idleUnit);
+        return window;
+    }
+
+    @Override
+    public <K> TWindow<T, K> last(long time, TimeUnit unit, Function<T, K> keyFunction,
+            int maxPartitions, long idleTime, TimeUnit idleUnit) {
+        TWindowTimeImpl<T, K> window = new TWindowTimeImpl<T, K>(time, unit, this, keyFunction);
+        window.limitPartitions(maxPartitions, idleTime, idleUnit);
+        return window;
+    }
+    
     @Override
     public <J, U, K> TStream<J> join(Function<T, K> keyer,
             TWindow<U, K> twindow, BiFunction<T, List<U>, J> joiner) {
         
         TStream<U> lastStream = twindow.feeder();
-        BiFunction<List<U>,K, Object> processor = Functions.synchronizedBiFunction((list, key) -> null);
         Window<U, K, ?> window;
         if(twindow instanceof TWindowImpl){   
-            window = Windows.lastNProcessOnInsert(((TWindowImpl<U, K>)twindow).getSize(), twindow.getKeyFunction());
+            int size = ((TWindowImpl<U, K>)twindow).getSize();
+            window = ((TWindowImpl<U, K>)twindow).newWindow(
+                            alwaysInsert(),
+                            countContentsPolicy(size),
+                            evictOldest(),
+                            processOnInsert(),
+                            circularList(size));
             
         }
         
         else if (twindow instanceof TWindowTimeImpl){
             long time = ((TWindowTimeImpl<U, K>)(twindow)).getTime();
             TimeUnit unit = ((TWindowTimeImpl<U, K>)(twindow)).getUnit();
-            window = Windows.window(
+            window = ((TWindowTimeImpl<U, K>)twindow).newWindow(
                             alwaysInsert(),
                             scheduleEvictIfEmpty(time, unit),
                             evictOlderWithProcess(time, unit),
-                            Policies.doNothing(),
-                            twindow.getKeyFunction(),
+                            processOnInsert(),
                             insertionTimeList());
         }
+        else if (twindow instanceof TWindowEventTimeImpl){
+            TWindowEventTimeImpl<U, K> eventTimeWindow = (TWindowEventTimeImpl<U, K>) twindow;
+            window = eventTimeWindow.newWindow(eventTimeWindow.newPolicy());
+        }
         else{
             throw new IllegalStateException("Unsupported window format");
         }
@@ -204,47 +270,68 @@ public class ConnectorStream<G extends Topology, T> extends AbstractTStream<G, T
         // the tuples from the twindow.feeder TStream. To do this, it's 
         // necessary to create an Aggregate oplet and insert it into the
         // graph with lastStream.pipe.
+        //
+        // Each time a partition is processed (holding its lock) an immutable
+        // copy of its contents is published, so that lookups never lock
+        // the partition while the feeder thread is modifying it.
+        ConcurrentMap<Object, List<U>> snapshots = new ConcurrentHashMap<>();
+        BiFunction<List<U>,K, Object> processor = (list, key) -> {
+            snapshots.put(publishedKey(key), list.isEmpty() ? Collections.<U>emptyList()
+                    : Collections.unmodifiableList(new ArrayList<>(list)));
+            return null;
+        };
+        unpublishRemovedPartitions(window, snapshots);
         Aggregate<U,Object,K> op = new Aggregate<U,Object,K>(window, processor);
         lastStream.pipe(op);
         
         return this.map((tuple) -> {
-            // The window object can be referenced via closure, and the corresponding
-            // partition can be retrieved based on the keyer. This way, we avoid
+            // The snapshots can be referenced via closure, and the corresponding
+            // contents can be retrieved based on the keyer. This way, we avoid
             // needing to create an additional oplet type with multiple input ports.
-           
-            java.util.Map<K, ?> partitions = window.getPartitions();
-            Partition<U, K, ? extends List<U>> part;
-            synchronized(partitions){
-                part = window.getPartitions().get(keyer.apply(tuple));
-            }
-            if(part == null)
+            List<U> last = snapshots.get(publishedKey(keyer.apply(tuple)));
+            if(last == null)
                 return null;
-            J ret;
-            synchronized (part) {
-                List<U> last = part.getContents();
-                ret = joiner.apply(tuple, last);
-            }
-            return ret;
+            return joiner.apply(tuple, last);
+        });
+    }
+    
+    /**
+     * Discard the published contents of partitions
+     * removed from the window, in addition to any
+     * existing removal listener.
+     */
+    private static <U, K, L extends List<U>> void unpublishRemovedPartitions(
+            Window<U, K, L> window, ConcurrentMap<Object, ?> published) {
+        Consumer<Partition<U, K, L>> listener = window.getPartitionRemovalListener();
+        window.registerPartitionRemovalListener(partition -> {
+            if (listener != null)
+                listener.accept(partition);
+            published.remove(publishedKey(partition.getKey()));
         });
     }
+    
+    private static Object publishedKey(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
 
     @Override
     public <J, U, K> TStream<J> joinLast(Function<T, K> keyer,
             TStream<U> lastStream, Function<U, K> lastStreamKeyer, BiFunction<T, U, J> joiner) {
-        BiFunction<List<U>,K, Object> processor = Functions.synchronizedBiFunction((list, key) -> null);
-        Window<U, K, LinkedList<U>> window = Windows.lastNProcessOnInsert(1, lastStreamKeyer);
+        // The last tuple for each key is published as it
+        // is inserted, lookups do not lock the partition.
+        ConcurrentMap<Object, U> lastTuples = new ConcurrentHashMap<>();
+        BiFunction<List<U>,K, Object> processor = (list, key) -> {
+            lastTuples.put(publishedKey(key), list.get(list.size() - 1));
+            return null;
+        };
+        Window<U, K, CircularList<U>> window = Windows.lastNCircularProcessOnInsert(1, lastStreamKeyer);
         Aggregate<U,Object,K> op = new Aggregate<U,Object,K>(window, processor);
         lastStream.pipe(op);
         return this.map((tuple) -> {
-            Partition<U, K, ? extends List<U>> part = window.getPartitions().get(keyer.apply(tuple));
-            if(part == null)
+            U last = lastTuples.get(publishedKey(keyer.apply(tuple)));
+            if(last == null)
                 return null;
-            J ret;
-            synchronized (part) {
-                U last = part.getContents().get(0);
-                ret = joiner.apply(tuple, last);
-            }
-            return ret;
+            return joiner.apply(tuple, last);
         });
     }
     
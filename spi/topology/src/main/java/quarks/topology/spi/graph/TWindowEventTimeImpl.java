@@ -0,0 +1,160 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.topology.spi.graph;
+
+import static quarks.window.Policies.insertionTimeList;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import quarks.function.BiConsumer;
+import quarks.function.BiFunction;
+import quarks.function.Function;
+import quarks.function.Functions;
+import quarks.function.ToLongFunction;
+import quarks.topology.TStream;
+import quarks.window.EventTimePolicy;
+import quarks.window.IncrementalAggregation;
+import quarks.window.IncrementalAggregator;
+import quarks.window.InsertionTimeList;
+import quarks.window.Partition;
+import quarks.window.Policies;
+import quarks.window.Window;
+
+/**
+ * Window of the last {@code time} of tuples by event time.
+ * 
+ * @see EventTimePolicy
+ */
+public class TWindowEventTimeImpl<T, K> extends AbstractTWindow<T, K> {
+    private final long time;
+    private final TimeUnit unit;
+    private final ToLongFunction<T> timestampFunction;
+    private final long allowedLateness;
+    
+    TWindowEventTimeImpl(long time, TimeUnit unit, ToLongFunction<T> timestampFunction,
+            long allowedLateness, TStream<T> feed, Function<T, K> keyFunction){
+        super(feed, keyFunction);
+        this.time = time;
+        this.unit = unit;
+        this.timestampFunction = timestampFunction;
+        this.allowedLateness = allowedLateness;
+    }
+    
+    /**
+     * Create a window whose tuples are inserted by {@code policy}.
+     */
+    Window<T, K, InsertionTimeList<T>> newWindow(EventTimePolicy<T, K> policy) {
+        Window<T, K, InsertionTimeList<T>> window =
+                newWindow(
+                        policy,
+                        Policies.doNothing(),
+                        partition -> {},
+                        Policies.doNothing(),
+                        insertionTimeList());
+        window.registerPartitionRemovalListener(policy.partitionRemoved());
+        return window;
+    }
+    
+    /**
+     * Create a policy for a window that slides with each tuple.
+     */
+    EventTimePolicy<T, K> newPolicy() {
+        return newPolicy(false, Policies.doNothing(), Policies.doNothing());
+    }
+    
+    /**
+     * Create a policy whose partitions release tuples held for
+     * late arrivals once no tuple has arrived for the allowed lateness.
+     */
+    EventTimePolicy<T, K> newPolicy(boolean batch,
+            BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> inserted,
+            BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> evicted) {
+        return new EventTimePolicy<T, K>(time, allowedLateness, unit, timestampFunction, batch,
+                allowedLateness, inserted, evicted);
+    }
+
+    /**
+     * Window behaviour here is that tuples are inserted
+     * in event time order once the partition's watermark
+     * reaches them, or no tuple has arrived for the
+     * allowed lateness. Each insertion evicts tuples
+     * older than the configured size (by event time)
+     * and triggers this continuous aggregation.
+     */
+    @Override
+    public <U> TStream<U> aggregate(BiFunction<List<T>,K, U> processor) {    
+        processor = Functions.synchronizedBiFunction(processor);
+        return pipeAggregate(() -> newWindow(newPolicy()), processor);
+    }
+
+    @Override
+    public <A, U, R> TStream<R> aggregate(IncrementalAggregator<T, A, U> aggregator,
+            BiFunction<U, K, R> resultFunction) {
+        BiFunction<U, K, R> resultProcessor = Functions.synchronizedBiFunction(resultFunction);
+        IncrementalAggregation<T, K, A, U> aggregation = new IncrementalAggregation<>(aggregator);
+        return pipeAggregate(() -> {
+            EventTimePolicy<T, K> policy = newPolicy(false, aggregation.add(), aggregation.remove());
+            Window<T, K, InsertionTimeList<T>> window = newWindow(policy);
+            window.registerPartitionRemovalListener(partition -> {
+                policy.partitionRemoved().accept(partition);
+                aggregation.<InsertionTimeList<T>>partitionRemoved().accept(partition);
+            });
+            return window;
+        }, (tuples, key) -> {
+            U result = aggregation.result(key);
+            return result == null ? null : resultProcessor.apply(result, key);
+        });
+    }
+
+    /**
+     * Batches are non-overlapping periods of {@code time}
+     * (aligned to the epoch) by event time. A batch is
+     * processed when the first tuple of a later period
+     * is inserted into the partition.
+     */
+    @Override
+    public <U> TStream<U> batch(BiFunction<List<T>, K, U> batcher) {
+        batcher = Functions.synchronizedBiFunction(batcher);
+        return pipeAggregate(() -> newWindow(
+                newPolicy(true, Policies.doNothing(), Policies.doNothing())),
+                batcher);
+    }
+
+    /**
+     * @return the time
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the unit
+     */
+    public TimeUnit getUnit() {
+        return unit;
+    }
+    
+    /**
+     * @return the allowed lateness in {@link #getUnit()}.
+     */
+    public long getAllowedLateness() {
+        return allowedLateness;
+    }
+}
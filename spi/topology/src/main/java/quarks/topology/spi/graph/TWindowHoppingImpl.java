@@ -0,0 +1,133 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.topology.spi.graph;
+
+import static quarks.window.Policies.alwaysInsert;
+import static quarks.window.Policies.insertionTimeList;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import quarks.function.BiFunction;
+import quarks.function.Function;
+import quarks.function.Functions;
+import quarks.topology.TStream;
+import quarks.window.HoppingPolicy;
+import quarks.window.IncrementalAggregation;
+import quarks.window.IncrementalAggregator;
+import quarks.window.InsertionTimeList;
+import quarks.window.Policies;
+import quarks.window.Window;
+
+/**
+ * Hopping window, processed every {@code advance} with
+ * the tuples of the last {@code size}.
+ * 
+ * @see HoppingPolicy
+ */
+public class TWindowHoppingImpl<T, K> extends AbstractTWindow<T, K> {
+    private final long size;
+    private final long advance;
+    private final TimeUnit unit;
+    
+    TWindowHoppingImpl(long size, long advance, TimeUnit unit, TStream<T> feed, Function<T, K> keyFunction){
+        super(feed, keyFunction);
+        this.size = size;
+        this.advance = advance;
+        this.unit = unit;
+    }
+    
+    private Window<T, K, InsertionTimeList<T>> newWindow(HoppingPolicy<T, K> policy) {
+        Window<T, K, InsertionTimeList<T>> window =
+                newWindow(
+                        alwaysInsert(),
+                        policy.contentsPolicy(),
+                        policy.evictDeterminer(),
+                        Policies.doNothing(),
+                        insertionTimeList());
+        window.registerPartitionRemovalListener(policy.partitionRemoved());
+        return window;
+    }
+
+    /**
+     * Each partition is aggregated every {@code advance}
+     * with the tuples of the last {@code size}.
+     */
+    @Override
+    public <U> TStream<U> aggregate(BiFunction<List<T>,K, U> processor) {    
+        processor = Functions.synchronizedBiFunction(processor);
+        return pipeAggregate(() -> newWindow(new HoppingPolicy<T, K>(size, advance, unit)), processor);
+    }
+
+    /**
+     * Each tuple is added to the aggregation once, when the first
+     * window containing it is aggregated, and removed once.
+     */
+    @Override
+    public <A, U, R> TStream<R> aggregate(IncrementalAggregator<T, A, U> aggregator,
+            BiFunction<U, K, R> resultFunction) {
+        BiFunction<U, K, R> resultProcessor = Functions.synchronizedBiFunction(resultFunction);
+        IncrementalAggregation<T, K, A, U> aggregation = new IncrementalAggregation<>(aggregator);
+        return pipeAggregate(() -> {
+            HoppingPolicy<T, K> policy = new HoppingPolicy<T, K>(size, advance, unit,
+                    aggregation.add(), aggregation.remove());
+            Window<T, K, InsertionTimeList<T>> window = newWindow(policy);
+            window.registerPartitionRemovalListener(partition -> {
+                policy.partitionRemoved().accept(partition);
+                aggregation.<InsertionTimeList<T>>partitionRemoved().accept(partition);
+            });
+            return window;
+        }, (tuples, key) -> {
+            U result = aggregation.result(key);
+            return result == null ? null : resultProcessor.apply(result, key);
+        });
+    }
+
+    /**
+     * Batches of a tumbling window are its windows. Batches
+     * of a hopping window would overlap, so are not supported.
+     */
+    @Override
+    public <U> TStream<U> batch(BiFunction<List<T>, K, U> batcher) {
+        if (unit.toMillis(size) != unit.toMillis(advance))
+            throw new UnsupportedOperationException("Batches of a hopping window overlap, use aggregate()");
+        return aggregate(batcher);
+    }
+
+    /**
+     * @return the size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the advance
+     */
+    public long getAdvance() {
+        return advance;
+    }
+
+    /**
+     * @return the unit
+     */
+    public TimeUnit getUnit() {
+        return unit;
+    }
+}
@@ -21,17 +21,17 @@ package quarks.topology.spi.graph;
 import static quarks.window.Policies.alwaysInsert;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import quarks.function.BiFunction;
 import quarks.function.Function;
 import quarks.function.Functions;
-import quarks.oplet.window.Aggregate;
 import quarks.topology.TStream;
+import quarks.window.CircularList;
+import quarks.window.IncrementalAggregation;
+import quarks.window.IncrementalAggregator;
 import quarks.window.Policies;
 import quarks.window.Window;
-import quarks.window.Windows;
 
 public class TWindowImpl<T, K> extends AbstractTWindow<T, K> {
     private final int size;
@@ -44,25 +44,49 @@ public class TWindowImpl<T, K> extends AbstractTWindow<T, K> {
     @Override
     public <U> TStream<U> aggregate(BiFunction<List<T>,K, U> processor) { 
         processor = Functions.synchronizedBiFunction(processor);
-        Window<T, K, LinkedList<T>> window = Windows.lastNProcessOnInsert(size, getKeyFunction());
-        Aggregate<T,U,K> op = new Aggregate<T,U,K>(window, processor);
-        return feeder().pipe(op); 
+        return pipeAggregate(() ->
+                newWindow(
+                        alwaysInsert(),
+                        Policies.countContentsPolicy(size),
+                        Policies.evictOldest(),
+                        Policies.processOnInsert(),
+                        Policies.circularList(size)),
+                processor);
+    }
+
+    @Override
+    public <A, U, R> TStream<R> aggregate(IncrementalAggregator<T, A, U> aggregator,
+            BiFunction<U, K, R> resultFunction) {
+        BiFunction<U, K, R> resultProcessor = Functions.synchronizedBiFunction(resultFunction);
+        IncrementalAggregation<T, K, A, U> aggregation = new IncrementalAggregation<>(aggregator);
+        return pipeAggregate(() -> {
+            Window<T, K, CircularList<T>> window =
+                    newWindow(
+                            alwaysInsert(),
+                            Policies.countContentsPolicy(size),
+                            aggregation.evictOldest(),
+                            aggregation.addAndProcess(),
+                            Policies.circularList(size));
+
+            window.registerPartitionRemovalListener(aggregation.partitionRemoved());
+            return window;
+        }, (tuples, key) -> {
+            U result = aggregation.result(key);
+            return result == null ? null : resultProcessor.apply(result, key);
+        });
     }
 
     @Override
     public <U> TStream<U> batch(BiFunction<List<T>, K, U> batcher) {
         batcher = Functions.synchronizedBiFunction(batcher);
-        Window<T, K, List<T>> window =
-                Windows.window(
+        return pipeAggregate(() ->
+                newWindow(
                         alwaysInsert(),
                         Policies.doNothing(),
                         Policies.evictAll(),
                         Policies.processWhenFullAndEvict(size),
-                        getKeyFunction(),
-                        () -> new ArrayList<T>(size));
-        
-        Aggregate<T,U,K> op = new Aggregate<T,U,K>(window, batcher);
-        return feeder().pipe(op); 
+                        () -> new ArrayList<T>(size)),
+                batcher);
     }
 
     /**
@@ -0,0 +1,125 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package quarks.topology.spi.graph;
+
+import static quarks.window.Policies.alwaysInsert;
+import static quarks.window.Policies.closeSessionWithProcess;
+import static quarks.window.Policies.insertionTimeList;
+import static quarks.window.Policies.scheduleEvictIfEmpty;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import quarks.function.BiConsumer;
+import quarks.function.BiFunction;
+import quarks.function.Function;
+import quarks.function.Functions;
+import quarks.topology.TStream;
+import quarks.window.IncrementalAggregation;
+import quarks.window.IncrementalAggregator;
+import quarks.window.InsertionTimeList;
+import quarks.window.Partition;
+import quarks.window.Policies;
+import quarks.window.Window;
+
+/**
+ * Session window, each partition is processed once when
+ * no tuple has arrived for the inactivity gap.
+ */
+public class TWindowSessionImpl<T, K> extends AbstractTWindow<T, K> {
+    private final long gap;
+    private final TimeUnit unit;
+    
+    TWindowSessionImpl(long gap, TimeUnit unit, TStream<T> feed, Function<T, K> keyFunction){
+        super(feed, keyFunction);
+        this.gap = gap;
+        this.unit = unit;
+    }
+    
+    private Window<T, K, InsertionTimeList<T>> newWindow(
+            BiConsumer<Partition<T, K, InsertionTimeList<T>>, T> triggerPolicy) {
+        return newWindow(
+                alwaysInsert(),
+                scheduleEvictIfEmpty(gap, unit),
+                closeSessionWithProcess(gap, unit),
+                triggerPolicy,
+                insertionTimeList());
+    }
+
+    /**
+     * Window behaviour here is that:
+     * 
+     * Tuples are always inserted into the partition.
+     * 
+     * If before insertion the partition is empty a
+     * session close is scheduled for the gap.
+     * 
+     * When the close is due and no tuple has been inserted
+     * for the gap the partition is processed once and removed
+     * from the window, otherwise the close is rescheduled.
+     */
+    @Override
+    public <U> TStream<U> aggregate(BiFunction<List<T>,K, U> processor) {    
+        processor = Functions.synchronizedBiFunction(processor);
+        return pipeAggregate(() -> newWindow(Policies.<T, K, InsertionTimeList<T>>doNothing()), processor);
+    }
+
+    /**
+     * As {@link #aggregate(BiFunction)} with tuples added to
+     * the aggregation as they are inserted, the session's
+     * accumulator is discarded when the session closes.
+     */
+    @Override
+    public <A, U, R> TStream<R> aggregate(IncrementalAggregator<T, A, U> aggregator,
+            BiFunction<U, K, R> resultFunction) {
+        BiFunction<U, K, R> resultProcessor = Functions.synchronizedBiFunction(resultFunction);
+        IncrementalAggregation<T, K, A, U> aggregation = new IncrementalAggregation<>(aggregator);
+        return pipeAggregate(() -> {
+            Window<T, K, InsertionTimeList<T>> window = newWindow(aggregation.add());
+            window.registerPartitionRemovalListener(aggregation.partitionRemoved());
+            return window;
+        }, (tuples, key) -> {
+            U result = aggregation.result(key);
+            return result == null ? null : resultProcessor.apply(result, key);
+        });
+    }
+
+    /**
+     * Each session is a batch, so this is
+     * equivalent to {@link #aggregate(BiFunction)}.
+     */
+    @Override
+    public <U> TStream<U> batch(BiFunction<List<T>, K, U> batcher) {
+        return aggregate(batcher);
+    }
+
+    /**
+     * @return the gap
+     */
+    public long getGap() {
+        return gap;
+    }
+
+    /**
+     * @return the unit
+     */
+    public TimeUnit getUnit() {
+        return unit;
+    }
+}
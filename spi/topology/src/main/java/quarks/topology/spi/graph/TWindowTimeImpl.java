@@ -27,12 +27,12 @@ import static quarks.window.Policies.scheduleEvictIfEmpty;
 import quarks.function.BiFunction;
 import quarks.function.Function;
 import quarks.function.Functions;
-import quarks.oplet.window.Aggregate;
 import quarks.topology.TStream;
+import quarks.window.IncrementalAggregation;
+import quarks.window.IncrementalAggregator;
 import quarks.window.InsertionTimeList;
 import quarks.window.Policies;
 import quarks.window.Window;
-import quarks.window.Windows;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -67,33 +67,54 @@ public class TWindowTimeImpl<T, K> extends AbstractTWindow<T, K> {
     @Override
     public <U> TStream<U> aggregate(BiFunction<List<T>,K, U> processor) {    
         processor = Functions.synchronizedBiFunction(processor);
-        Window<T, K, InsertionTimeList<T>> window =
-                Windows.window(
+        return pipeAggregate(() ->
+                newWindow(
                         alwaysInsert(),
                         scheduleEvictIfEmpty(time, unit),
                         evictOlderWithProcess(time, unit),
                         processOnInsert(),
-                        getKeyFunction(),
-                        insertionTimeList());
-        
-        Aggregate<T,U,K> op = new Aggregate<T,U,K>(window, processor);
-        return feeder().pipe(op); 
+                        insertionTimeList()),
+                processor);
+    }
+
+    /**
+     * As {@link #aggregate(BiFunction)} with tuples added to
+     * and removed from the aggregation as they are inserted
+     * and evicted.
+     */
+    @Override
+    public <A, U, R> TStream<R> aggregate(IncrementalAggregator<T, A, U> aggregator,
+            BiFunction<U, K, R> resultFunction) {
+        BiFunction<U, K, R> resultProcessor = Functions.synchronizedBiFunction(resultFunction);
+        IncrementalAggregation<T, K, A, U> aggregation = new IncrementalAggregation<>(aggregator);
+        return pipeAggregate(() -> {
+            Window<T, K, InsertionTimeList<T>> window =
+                    newWindow(
+                            alwaysInsert(),
+                            scheduleEvictIfEmpty(time, unit),
+                            aggregation.evictOlderWithProcess(time, unit),
+                            aggregation.addAndProcess(),
+                            insertionTimeList());
+
+            window.registerPartitionRemovalListener(aggregation.partitionRemoved());
+            return window;
+        }, (tuples, key) -> {
+            U result = aggregation.result(key);
+            return result == null ? null : resultProcessor.apply(result, key);
+        });
     }
 
     @Override
     public <U> TStream<U> batch(BiFunction<List<T>, K, U> batcher) {
         batcher = Functions.synchronizedBiFunction(batcher);
-        Window<T, K, List<T>> window =
-                Windows.window(
+        return pipeAggregate(() ->
+                newWindow(
                         alwaysInsert(),
                         Policies.scheduleEvictOnFirstInsert(time, unit),
                         Policies.evictAllAndScheduleEvictWithProcess(time, unit),
                         (partition, tuple) -> {},
-                        getKeyFunction(),
-                        () -> new ArrayList<T>());
-        
-        Aggregate<T,U,K> op = new Aggregate<T,U,K>(window, batcher);
-        return feeder().pipe(op); 
+                        () -> new ArrayList<T>()),
+                batcher);
     }
 
     /**